@@ -0,0 +1,60 @@
+package com.boardgames.jmh;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiGame;
+
+import java.util.Random;
+
+/** Seeded random games and positions for benchmark state, so every run measures the same work. */
+final class Games {
+
+    private Games() {
+    }
+
+    /** Plays a random game to the end on a {@code size} x {@code size} board and returns its moves as squares. */
+    static int[] randomGame(int size, Random random) {
+        ReversiGame game = new ReversiGame(size);
+        int[] moves = new int[size * size];
+        int count = 0;
+        while (game.getGameState() == ReversiGame.GameState.PLAYING) {
+            int move = -1;
+            for (int skip = random.nextInt(game.getLegalMoveCount()); skip >= 0; skip--) {
+                move = game.nextLegalMove(move + 1);
+            }
+            game.makeMove(move / size, move % size);
+            moves[count++] = move;
+        }
+        int[] played = new int[count];
+        System.arraycopy(moves, 0, played, 0, count);
+        return played;
+    }
+
+    /** Replays the first {@code plies} of {@code moves} on a new game of the given size. */
+    static ReversiGame replay(int size, int[] moves, int plies) {
+        ReversiGame game = new ReversiGame(size);
+        for (int i = 0; i < plies; i++) {
+            game.makeMove(moves[i] / size, moves[i] % size);
+        }
+        return game;
+    }
+
+    /** Positions from random games, each at a random ply and still in play. */
+    static ReversiGame[] randomPositions(int size, int count, Random random) {
+        ReversiGame[] positions = new ReversiGame[count];
+        for (int i = 0; i < count; i++) {
+            int[] moves = randomGame(size, random);
+            positions[i] = replay(size, moves, random.nextInt(moves.length));
+        }
+        return positions;
+    }
+
+    /** {@link #randomPositions} on 8x8 as {player, opponent} bitboards. */
+    static long[][] randomBitboards(int count, Random random) {
+        long[][] bitboards = new long[count][];
+        ReversiGame[] positions = randomPositions(Bitboard.SIZE, count, random);
+        for (int i = 0; i < count; i++) {
+            bitboards[i] = new long[]{positions[i].getPlayerDiscs(), positions[i].getOpponentDiscs()};
+        }
+        return bitboards;
+    }
+}
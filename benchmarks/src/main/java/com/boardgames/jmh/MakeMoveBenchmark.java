@@ -0,0 +1,66 @@
+package com.boardgames.jmh;
+
+import com.boardgames.reversi.ReversiGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReversiGame#makeMove} and {@link ReversiGame#undoMove} on each board size:
+ * one operation replays a whole seeded random game from the start position, and
+ * {@code makeUndo} also takes it back. Sizes above 8 use the
+ * {@link com.boardgames.reversi.WideBoard} path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MakeMoveBenchmark {
+
+    @Param({"8", "10", "12", "16"})
+    public int size;
+
+    private int[] moves;
+    private ReversiGame game;
+
+    @Setup
+    public void setUp() {
+        moves = Games.randomGame(size, new Random(11));
+        game = new ReversiGame(size);
+    }
+
+    @Benchmark
+    public int makeMove() {
+        game.reset();
+        for (int move : moves) {
+            game.makeMove(move / size, move % size);
+        }
+        return game.getMoveCount();
+    }
+
+    @Benchmark
+    public int makeUndo() {
+        for (int move : moves) {
+            game.makeMove(move / size, move % size);
+        }
+        int played = game.getMoveCount();
+        while (game.undoMove()) {
+            // Back to the start position
+        }
+        return played;
+    }
+}
@@ -0,0 +1,100 @@
+package com.boardgames.jmh;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.reversi.WideBoard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legal-move generation: {@link Bitboard#legalMoves} over a fixed set of midgame
+ * positions, {@link ReversiGame#isValidMove} for every square of one position, and
+ * {@link WideBoard#legalMoves} over positions of each board size. Scores are per
+ * position or per square.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MoveGenBenchmark {
+
+    private static final int POSITIONS = 256;
+    private static final int WIDE_POSITIONS = 64;
+
+    /** Positions on one {@link WideBoard} size, with the buffer legal moves are written to. */
+    @State(Scope.Thread)
+    public static class Wide {
+
+        @Param({"8", "10", "12", "16"})
+        public int size;
+
+        WideBoard board;
+        long[][][] positions;
+        long[] moves;
+
+        @Setup
+        public void setUp() {
+            board = new WideBoard(size);
+            moves = new long[board.getWords()];
+            ReversiGame[] games = Games.randomPositions(size, WIDE_POSITIONS, new Random(11));
+            positions = new long[WIDE_POSITIONS][][];
+            for (int i = 0; i < WIDE_POSITIONS; i++) {
+                positions[i] = new long[][]{games[i].getPlayerWords(), games[i].getOpponentWords()};
+            }
+        }
+    }
+
+    private long[][] positions;
+    private ReversiGame game;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        positions = Games.randomBitboards(POSITIONS, random);
+        int[] moves = Games.randomGame(Bitboard.SIZE, random);
+        game = Games.replay(Bitboard.SIZE, moves, moves.length / 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void legalMoves(Blackhole blackhole) {
+        for (long[] position : positions) {
+            blackhole.consume(Bitboard.legalMoves(position[0], position[1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Bitboard.SQUARES)
+    public void isValidMove(Blackhole blackhole) {
+        for (int row = 0; row < Bitboard.SIZE; row++) {
+            for (int col = 0; col < Bitboard.SIZE; col++) {
+                blackhole.consume(game.isValidMove(row, col));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WIDE_POSITIONS)
+    public void wideLegalMoves(Wide wide, Blackhole blackhole) {
+        for (long[][] position : wide.positions) {
+            blackhole.consume(wide.board.legalMoves(position[0], position[1], wide.moves));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.boardgames.jmh;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.WideBoard;
+import com.boardgames.tictactoe.TicTacToeGame;
+
+/**
+ * Reference tree walks and their known node counts: Reversi perft from the start
+ * position, on the 8x8 bitboard and on an 8x8 {@link WideBoard}, and the number of
+ * distinct Tic-Tac-Toe games. The benchmarks that walk these trees check the counts
+ * before measuring, and {@code mvn verify} runs {@link #main} as the build's
+ * correctness gate.
+ *
+ * <pre>java -cp benchmarks/target/benchmarks.jar com.boardgames.jmh.Perft [depth]</pre>
+ */
+public final class Perft {
+
+    /** Perft node counts from the start position for depths 1, 2, 3 ... */
+    static final long[] NODES = {4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288, 24571284};
+    /** Perft on the multi-word board is slower, so it is only checked this deep. */
+    static final int MAX_WIDE_DEPTH = 6;
+    /** Number of distinct Tic-Tac-Toe games. */
+    static final long TIC_TAC_TOE_GAMES = 255168;
+
+    private Perft() {
+    }
+
+    /**
+     * Checks perft to {@code maxDepth} on both boards (the wide one to at most
+     * {@link #MAX_WIDE_DEPTH}) and the Tic-Tac-Toe game count.
+     *
+     * @throws IllegalStateException on the first count that differs.
+     */
+    static void check(int maxDepth) {
+        if (maxDepth < 1 || maxDepth > NODES.length) {
+            throw new IllegalArgumentException("Perft depth must be 1.." + NODES.length + ": " + maxDepth);
+        }
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            expect("perft(" + depth + ")", perft(Bitboard.INITIAL_BLACK, Bitboard.INITIAL_WHITE, depth, false),
+                    NODES[depth - 1]);
+        }
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_WIDE_DEPTH); depth++) {
+            expect("wide perft(" + depth + ")", widePerft(depth), NODES[depth - 1]);
+        }
+        expect("Tic-Tac-Toe games", ticTacToeGames(new TicTacToeGame()), TIC_TAC_TOE_GAMES);
+    }
+
+    private static void expect(String what, long actual, long expected) {
+        if (actual != expected) {
+            throw new IllegalStateException(what + " = " + actual + ", expected " + expected);
+        }
+    }
+
+    /** Counts leaf nodes {@code depth} plies below a position; a forced pass counts as a ply. */
+    static long perft(long player, long opponent, int depth, boolean passed) {
+        long legal = Bitboard.legalMoves(player, opponent);
+        if (legal == 0) {
+            if (passed) {
+                return 1; // game over
+            }
+            return depth == 1 ? 1 : perft(opponent, player, depth - 1, true);
+        }
+        if (depth == 1) {
+            return Long.bitCount(legal);
+        }
+        long nodes = 0;
+        for (; legal != 0; legal &= legal - 1) {
+            int square = Long.numberOfTrailingZeros(legal);
+            long flipped = Bitboard.flips(square, player, opponent);
+            nodes += perft(opponent & ~flipped, player | flipped | (1L << square), depth - 1, false);
+        }
+        return nodes;
+    }
+
+    /** {@link #perft} from the start position on an 8x8 {@link WideBoard}. */
+    static long widePerft(int depth) {
+        WideBoard wide = new WideBoard(Bitboard.SIZE);
+        long[][] players = new long[depth + 1][1];
+        long[][] opponents = new long[depth + 1][1];
+        wide.initial(players[0], opponents[0]);
+        return widePerft(wide, players, opponents, new long[depth + 1][1], 0, depth, false);
+    }
+
+    /** {@link #perft} on a {@link WideBoard}, with one preallocated position and flip buffer per ply. */
+    private static long widePerft(WideBoard board, long[][] players, long[][] opponents, long[][] flips,
+                                  int ply, int depth, boolean passed) {
+        long[] player = players[ply];
+        long[] opponent = opponents[ply];
+        long[] legal = flips[ply];
+        int count = board.legalMoves(player, opponent, legal);
+        if (count == 0) {
+            if (passed) {
+                return 1; // game over
+            }
+            if (depth == 1) {
+                return 1;
+            }
+            System.arraycopy(opponent, 0, players[ply + 1], 0, opponent.length);
+            System.arraycopy(player, 0, opponents[ply + 1], 0, player.length);
+            return widePerft(board, players, opponents, flips, ply + 1, depth - 1, true);
+        }
+        if (depth == 1) {
+            return count;
+        }
+        long[] moves = legal.clone();
+        long nodes = 0;
+        for (int w = 0; w < moves.length; w++) {
+            for (long bits = moves[w]; bits != 0; bits &= bits - 1) {
+                int square = (w << 6) + Long.numberOfTrailingZeros(bits);
+                long[] flipped = flips[ply];
+                board.flips(square, player, opponent, flipped);
+                System.arraycopy(opponent, 0, players[ply + 1], 0, opponent.length);
+                System.arraycopy(player, 0, opponents[ply + 1], 0, player.length);
+                WideBoard.apply(square, flipped, opponents[ply + 1], players[ply + 1]);
+                nodes += widePerft(board, players, opponents, flips, ply + 1, depth - 1, false);
+            }
+        }
+        return nodes;
+    }
+
+    /** Counts the finished games reachable from {@code game}, walking the tree with make/undo. */
+    static long ticTacToeGames(TicTacToeGame game) {
+        if (game.getGameState() != TicTacToeGame.GameState.PLAYING) {
+            return 1;
+        }
+        long games = 0;
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                if (game.makeMove(row, col)) {
+                    games += ticTacToeGames(game);
+                    game.undoMove();
+                }
+            }
+        }
+        return games;
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long start = System.nanoTime();
+        check(depth);
+        System.out.printf("perft to depth %d and Tic-Tac-Toe game count OK (%.2f s)%n", depth,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
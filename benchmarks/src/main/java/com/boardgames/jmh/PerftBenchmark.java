@@ -0,0 +1,50 @@
+package com.boardgames.jmh;
+
+import com.boardgames.reversi.Bitboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reversi perft from the start position to a fixed depth, on the bitboard and on an 8x8
+ * {@link com.boardgames.reversi.WideBoard}. The node counts are checked against
+ * {@link Perft#NODES} before anything is measured, so a faster but wrong move
+ * generator fails the run instead of posting a better score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PerftBenchmark {
+
+    @Param({"7"})
+    public int depth;
+
+    @Setup
+    public void check() {
+        Perft.check(depth);
+    }
+
+    @Benchmark
+    public long bitboard() {
+        return Perft.perft(Bitboard.INITIAL_BLACK, Bitboard.INITIAL_WHITE, depth, false);
+    }
+
+    @Benchmark
+    public long wideBoard() {
+        return Perft.widePerft(depth);
+    }
+}
@@ -0,0 +1,41 @@
+package com.boardgames.jmh;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** {@link ReversiGame#getScore} on a midgame position. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ScoreBenchmark {
+
+    private ReversiGame game;
+
+    @Setup
+    public void setUp() {
+        int[] moves = Games.randomGame(Bitboard.SIZE, new Random(11));
+        game = Games.replay(Bitboard.SIZE, moves, moves.length / 2);
+    }
+
+    @Benchmark
+    public int[] getScore() {
+        return game.getScore();
+    }
+}
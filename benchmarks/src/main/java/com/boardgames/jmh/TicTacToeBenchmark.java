@@ -0,0 +1,45 @@
+package com.boardgames.jmh;
+
+import com.boardgames.tictactoe.TicTacToeGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumerates the full Tic-Tac-Toe game tree with {@link TicTacToeGame#makeMove} and
+ * {@link TicTacToeGame#undoMove}; the game count is checked against
+ * {@link Perft#TIC_TAC_TOE_GAMES} before measuring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TicTacToeBenchmark {
+
+    private final TicTacToeGame game = new TicTacToeGame();
+
+    @Setup
+    public void check() {
+        long games = Perft.ticTacToeGames(game);
+        if (games != Perft.TIC_TAC_TOE_GAMES) {
+            throw new IllegalStateException("Tic-Tac-Toe games = " + games + ", expected " + Perft.TIC_TAC_TOE_GAMES);
+        }
+    }
+
+    @Benchmark
+    public long fullTree() {
+        return Perft.ticTacToeGames(game);
+    }
+}
@@ -0,0 +1,38 @@
+package com.boardgames.bench;
+
+import com.boardgames.reversi.ReversiEndgameSolver;
+
+/**
+ * Times the exact endgame solver at increasing numbers of empty squares, to pick the
+ * {@code ReversiSearch.setEndgameEmpties} threshold for a given machine: use the largest
+ * empty count whose solve time fits comfortably in the AI's move budget.
+ *
+ * <pre>java -cp bin com.boardgames.bench.EndgameBenchmark [minEmpties] [maxEmpties] [positions]</pre>
+ */
+public class EndgameBenchmark {
+
+    public static void main(String[] args) {
+        int minEmpties = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int maxEmpties = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int positionCount = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        ReversiEndgameSolver solver = new ReversiEndgameSolver();
+        System.out.printf("%-8s %12s %14s %14s %s%n", "empties", "avg ms", "avg nodes", "nodes/s", "scores");
+        for (int empties = minEmpties; empties <= maxEmpties; empties++) {
+            long[][] positions = SearchScaling.randomPositions(positionCount, 60 - empties, empties);
+            long nodes = 0;
+            long elapsedNanos = 0;
+            StringBuilder scores = new StringBuilder();
+            for (long[] position : positions) {
+                long start = System.nanoTime();
+                solver.solve(position[0], position[1]);
+                elapsedNanos += System.nanoTime() - start;
+                nodes += solver.getNodes();
+                scores.append(' ').append(solver.getScore());
+            }
+            System.out.printf("%-8d %12.2f %14d %14.0f%s%n", empties,
+                    elapsedNanos / 1e6 / positions.length, nodes / positions.length,
+                    nodes / (elapsedNanos / 1e9), scores);
+        }
+    }
+}
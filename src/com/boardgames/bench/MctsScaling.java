@@ -0,0 +1,44 @@
+package com.boardgames.bench;
+
+import com.boardgames.common.MctsEngine;
+import com.boardgames.reversi.ReversiMctsRules;
+
+/**
+ * Measures Reversi MCTS throughput against the number of threads: for 1, 2, 4 ... N
+ * threads it searches the same midgame positions with a fixed time budget per move and
+ * prints playouts per second and the size of the tree built.
+ *
+ * <pre>java -cp bin com.boardgames.bench.MctsScaling [maxThreads] [millisPerMove] [positions]</pre>
+ */
+public class MctsScaling {
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int positionCount = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        long[][] positions = SearchScaling.randomPositions(positionCount, 20, 42);
+
+        System.out.printf("%-8s %14s %12s %10s%n", "threads", "playouts/s", "avg nodes", "speedup");
+        MctsEngine engine = new MctsEngine(ReversiMctsRules.INSTANCE);
+        engine.setTimeLimit(millis);
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads && threads * 2 > maxThreads ? maxThreads : threads * 2) {
+            engine.setThreads(threads);
+            long playouts = 0;
+            double seconds = 0;
+            long nodes = 0;
+            for (long[] position : positions) {
+                engine.search(position);
+                playouts += engine.getPlayouts();
+                seconds += engine.getPlayouts() / Math.max(1, engine.getPlayoutsPerSecond());
+                nodes += engine.getNodeCount();
+            }
+            double playoutsPerSecond = playouts / seconds;
+            if (threads == 1) {
+                baseline = playoutsPerSecond;
+            }
+            System.out.printf("%-8d %14.0f %12d %9.2fx%n", threads, playoutsPerSecond,
+                    nodes / positions.length, playoutsPerSecond / baseline);
+        }
+    }
+}
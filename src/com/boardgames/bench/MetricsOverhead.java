@@ -0,0 +1,122 @@
+package com.boardgames.bench;
+
+import com.boardgames.metrics.EngineMetrics;
+import com.boardgames.metrics.EngineMetrics.MoveSource;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures what {@link EngineMetrics} costs the Reversi search. The per-node hash
+ * counters are a constant the JIT compiles in or out when the JVM starts
+ * ({@link EngineMetrics#NODE_COUNTERS}), so each arm runs in a JVM of its own: "on"
+ * counts at every node and records every move, "off" has the counters compiled out
+ * and recording disabled. The arms alternate over the rounds so that drift hits both
+ * alike. Each child warms up on the positions, then searches them to a fixed depth
+ * several times and reports its best nodes per second; the parent prints the best of
+ * each arm and the difference, and then times {@link EngineMetrics#recordMove} on its own.
+ *
+ * <pre>java -cp bin com.boardgames.bench.MetricsOverhead [depth] [positions] [rounds]</pre>
+ */
+public class MetricsOverhead {
+
+    private static final String CHILD = "--child";
+    private static final int PASSES = 3;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals(CHILD)) {
+            measure(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int positionCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        double bestOn = 0;
+        double bestOff = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (boolean on : new boolean[]{true, false}) {
+                double nodesPerSecond = runChild(on, depth, positionCount);
+                System.out.printf("round %d  metrics %-3s %14.0f nodes/s%n", round + 1, on ? "on" : "off",
+                        nodesPerSecond);
+                if (on) {
+                    bestOn = Math.max(bestOn, nodesPerSecond);
+                } else {
+                    bestOff = Math.max(bestOff, nodesPerSecond);
+                }
+            }
+        }
+        System.out.printf("best: on %.0f, off %.0f nodes/s, overhead %+.2f%%%n", bestOn, bestOff,
+                100 * (bestOff - bestOn) / bestOff);
+
+        EngineMetrics metrics = EngineMetrics.forEngine("bench");
+        int calls = 10_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            metrics.recordMove(MoveSource.SEARCH, 1_000_000L + i, 50_000, 10, 8, 40_000, 10_000);
+        }
+        System.out.printf("recordMove: %.1f ns per call%n", (System.nanoTime() - start) / (double) calls);
+    }
+
+    /** Runs one arm in a fresh JVM with the same class path and returns its nodes per second. */
+    private static double runChild(boolean on, int depth, int positionCount) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-D" + EngineMetrics.NODE_COUNTERS_PROPERTY + "=" + on);
+        command.add("-D" + EngineMetrics.ENABLED_PROPERTY + "=" + on);
+        command.add(MetricsOverhead.class.getName());
+        command.add(CHILD);
+        command.add(Integer.toString(depth));
+        command.add(Integer.toString(positionCount));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String last = null;
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = output.readLine(); line != null; line = output.readLine()) {
+                last = line;
+            }
+        }
+        if (process.waitFor() != 0 || last == null) {
+            throw new IOException("Benchmark child failed with exit code " + process.exitValue());
+        }
+        return Double.parseDouble(last);
+    }
+
+    /** The child: one warm-up pass, then prints the best nodes per second of {@link #PASSES} passes. */
+    private static void measure(int depth, int positionCount) {
+        long[][] positions = SearchScaling.randomPositions(positionCount, 20, 42);
+        EngineMetrics metrics = EngineMetrics.forEngine("bench");
+        ReversiSearch search = new ReversiSearch(new TranspositionTable(64));
+        search.setThreads(1);
+        search.setTimeLimit(Long.MAX_VALUE);
+        search.setMaxDepth(depth);
+        double best = 0;
+        for (int pass = -1; pass < PASSES; pass++) {
+            long nodes = 0;
+            long elapsedNanos = 0;
+            for (long[] position : positions) {
+                search.getTable().clear();
+                long start = System.nanoTime();
+                search.findBestMove(position[0], position[1], (int) position[2]);
+                long nanos = System.nanoTime() - start;
+                metrics.recordMove(MoveSource.SEARCH, nanos, search.getNodes(), search.getDepthReached(),
+                        -1, search.getHashProbes(), search.getHashHits());
+                elapsedNanos += System.nanoTime() - start;
+                nodes += search.getNodes();
+            }
+            if (pass >= 0) {
+                best = Math.max(best, nodes / (elapsedNanos / 1e9));
+            }
+        }
+        System.out.println(best);
+    }
+}
@@ -0,0 +1,86 @@
+package com.boardgames.bench;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.TranspositionTable;
+
+import java.util.Random;
+
+/**
+ * Measures how the Reversi search scales with the number of threads: for 1, 2, 4 ... N
+ * threads it searches the same midgame positions with a fixed time budget per move and
+ * prints nodes per second and the average depth reached.
+ *
+ * <pre>java -cp bin com.boardgames.bench.SearchScaling [maxThreads] [millisPerMove] [positions]</pre>
+ */
+public class SearchScaling {
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int positionCount = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        long[][] positions = randomPositions(positionCount, 20, 42);
+
+        System.out.printf("%-8s %14s %12s %10s%n", "threads", "nodes/s", "avg depth", "speedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            ReversiSearch search = new ReversiSearch(new TranspositionTable(64));
+            search.setThreads(threads);
+            search.setTimeLimit(millis);
+            long nodes = 0;
+            long elapsedNanos = 0;
+            int depthSum = 0;
+            for (long[] position : positions) {
+                search.getTable().clear();
+                long start = System.nanoTime();
+                search.findBestMove(position[0], position[1], (int) position[2]);
+                elapsedNanos += System.nanoTime() - start;
+                nodes += search.getNodes();
+                depthSum += search.getDepthReached();
+            }
+            double nodesPerSecond = nodes / (elapsedNanos / 1e9);
+            if (threads == 1) {
+                baseline = nodesPerSecond;
+            }
+            System.out.printf("%-8d %14.0f %12.2f %9.2fx%n", threads, nodesPerSecond,
+                    (double) depthSum / positions.length, nodesPerSecond / baseline);
+        }
+    }
+
+    private static int nextThreadCount(int threads, int maxThreads) {
+        return threads < maxThreads && threads * 2 > maxThreads ? maxThreads : threads * 2;
+    }
+
+    /** Plays {@code plies} random moves from the start position; returns {player, opponent, side} triples. */
+    static long[][] randomPositions(int count, int plies, long seed) {
+        Random random = new Random(seed);
+        long[][] positions = new long[count][];
+        for (int n = 0; n < count; n++) {
+            long player = Bitboard.INITIAL_BLACK;
+            long opponent = Bitboard.INITIAL_WHITE;
+            int side = 0;
+            for (int ply = 0; ply < plies; ply++) {
+                long legal = Bitboard.legalMoves(player, opponent);
+                if (legal == 0) {
+                    // Pass; random openings this short never end the game
+                    long next = opponent;
+                    opponent = player;
+                    player = next;
+                    side ^= 1;
+                    continue;
+                }
+                for (int skip = random.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+                    legal &= legal - 1;
+                }
+                int sq = Long.numberOfTrailingZeros(legal);
+                long flipped = Bitboard.flips(sq, player, opponent);
+                long next = opponent & ~flipped;
+                opponent = player | flipped | (1L << sq);
+                player = next;
+                side ^= 1;
+            }
+            positions[n] = new long[]{player, opponent, side};
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,383 @@
+package com.boardgames.common;
+
+import com.boardgames.jfr.SearchEvent;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Monte Carlo tree search (UCT) over any game described by {@link MctsRules}.
+ *
+ * The tree lives in parallel primitive arrays indexed by node number rather than in
+ * node objects: a node's children occupy a contiguous block allocated by bumping a
+ * counter, so expanding a node is one atomic add and a few array writes. Every search
+ * thread walks the same tree (tree parallelism). Visit and win counters are atomic,
+ * and a thread descending through a node adds a virtual loss to it so other threads
+ * are steered towards different lines until the playout result comes back.
+ *
+ * A search runs until its time limit or playout limit is reached, whichever comes
+ * first, and then plays the most visited root move. When the arena fills up the tree
+ * stops growing but playouts continue from its leaves.
+ */
+public class MctsEngine {
+
+    public static final int DEFAULT_MAX_NODES = 1 << 20;
+    public static final double DEFAULT_EXPLORATION = 1.4;
+
+    /** Visits a thread adds to each node on its way down and takes back when its playout ends. */
+    private static final int VIRTUAL_LOSS = 3;
+    /** A leaf is expanded once it has been visited this often. */
+    private static final int EXPAND_VISITS = 2;
+    private static final int CHECK_INTERVAL = 63;
+
+    private static final int LEAF = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+
+    private final MctsRules rules;
+    private final int capacity;
+
+    // Node arena; node 0 is the root
+    private final int[] moves;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final AtomicIntegerArray expansion;
+    private final AtomicIntegerArray visits;
+    /** Half-points (win = 2, draw = 1) for the player who made the move leading to the node. */
+    private final AtomicLongArray wins;
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean full;
+
+    private long timeLimitMillis = 1000;
+    private long playoutLimit = Long.MAX_VALUE;
+    private double exploration = DEFAULT_EXPLORATION;
+
+    private Worker[] workers;
+    private ExecutorService helperPool;
+    private long seed = System.nanoTime();
+
+    private final long[] root;
+    private final AtomicLong started = new AtomicLong();
+    private volatile boolean stopped;
+    private volatile BooleanSupplier abortSignal;
+    private long deadline;
+    private long playouts;
+    private long elapsedNanos;
+
+    public MctsEngine(MctsRules rules) {
+        this(rules, DEFAULT_MAX_NODES);
+    }
+
+    public MctsEngine(MctsRules rules, int maxNodes) {
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException("Node capacity must be positive: " + maxNodes);
+        }
+        this.rules = rules;
+        this.capacity = maxNodes;
+        moves = new int[maxNodes];
+        firstChild = new int[maxNodes];
+        childCount = new int[maxNodes];
+        expansion = new AtomicIntegerArray(maxNodes);
+        visits = new AtomicIntegerArray(maxNodes);
+        wins = new AtomicLongArray(maxNodes);
+        root = new long[rules.stateLength()];
+        setThreads(1);
+    }
+
+    /** Sets how many threads run playouts; the calling thread is one of them. */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        if (workers != null && threads == workers.length) {
+            return;
+        }
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+            helperPool = null;
+        }
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(seed + i);
+        }
+        if (threads > 1) {
+            helperPool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "mcts-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    public void setTimeLimit(long millis) {
+        timeLimitMillis = millis;
+    }
+
+    public void setPlayoutLimit(long playouts) {
+        playoutLimit = playouts;
+    }
+
+    /** Sets the UCT exploration constant. */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /** Reseeds the playout generators so searches with a playout limit are repeatable on one thread. */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].random = new SplittableRandom(seed + i);
+        }
+    }
+
+    /**
+     * Sets a condition polled along with the time limit, e.g. whether the request the
+     * search serves was cancelled; once it holds the search returns as after
+     * {@link #stop()}. {@code null} for none.
+     */
+    public void setAbortSignal(BooleanSupplier signal) {
+        abortSignal = signal;
+    }
+
+    /** Asks a running search to return as soon as possible. */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Searches {@code state} and returns the most visited move, or -1 if the game is
+     * over. The state is not modified.
+     */
+    public int search(long[] state) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        int move = searchState(state);
+        if (event.shouldCommit()) {
+            event.engine = "mcts";
+            event.threads = workers.length;
+            event.nodes = playouts;
+            event.bestMove = move;
+            event.commit();
+        }
+        return move;
+    }
+
+    private int searchState(long[] state) {
+        System.arraycopy(state, 0, root, 0, root.length);
+        int[] rootMoves = workers[0].moveBuffer;
+        int count = rules.moves(root, rootMoves);
+        playouts = 0;
+        elapsedNanos = 0;
+        if (count <= 1) {
+            return count == 0 ? -1 : rootMoves[0];
+        }
+
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        deadline = timeLimitMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeLimitMillis;
+        stopped = false;
+        started.set(0);
+        full = false;
+        size.set(1);
+        resetNode(0);
+
+        Future<?>[] running = new Future<?>[workers.length - 1];
+        for (int i = 1; i < workers.length; i++) {
+            running[i - 1] = helperPool.submit(workers[i]);
+        }
+        workers[0].run();
+        stopped = true;
+        try {
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("MCTS helper failed", e.getCause());
+        }
+        for (Worker worker : workers) {
+            playouts += worker.playouts;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        int best = bestChild();
+        return best < 0 ? rootMoves[0] : moves[best];
+    }
+
+    /** Playouts finished by the last search. */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public double getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+    }
+
+    /** Nodes in the tree built by the last search. */
+    public int getNodeCount() {
+        return Math.min(size.get(), capacity);
+    }
+
+    /** Fraction of the last search's playouts through the chosen move that its player won (draws count half). */
+    public double getWinRate() {
+        int best = bestChild();
+        int n = best < 0 ? 0 : visits.get(best);
+        return n == 0 ? 0.5 : wins.get(best) / (2.0 * n);
+    }
+
+    private int bestChild() {
+        if (expansion.get(0) != EXPANDED) {
+            return -1;
+        }
+        int best = -1;
+        int bestVisits = -1;
+        for (int c = firstChild[0], end = c + childCount[0]; c < end; c++) {
+            int n = visits.get(c);
+            if (n > bestVisits) {
+                bestVisits = n;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private void resetNode(int node) {
+        expansion.set(node, LEAF);
+        visits.set(node, 0);
+        wins.set(node, 0);
+    }
+
+    /**
+     * Allocates children for {@code node}, whose position is {@code state}. Returns false
+     * (and leaves the node a leaf) when the arena is full.
+     */
+    private boolean expand(int node, long[] state, int[] buffer) {
+        int count = rules.moves(state, buffer);
+        int first = count == 0 ? 0 : size.getAndAdd(count);
+        if (first + count > capacity) {
+            full = true;
+            expansion.set(node, LEAF);
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            moves[first + i] = buffer[i];
+            resetNode(first + i);
+        }
+        firstChild[node] = first;
+        childCount[node] = count;
+        expansion.set(node, EXPANDED); // publishes the children
+        return true;
+    }
+
+    /** Picks the child of {@code node} with the highest UCT value; unvisited children first. */
+    private int select(int node, SplittableRandom random) {
+        int first = firstChild[node];
+        int count = childCount[node];
+        double logParent = Math.log(Math.max(1, visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int offset = random.nextInt(count); // breaks ties between unvisited children
+        for (int i = 0; i < count; i++) {
+            int child = first + (i + offset) % count;
+            int n = visits.get(child);
+            if (n == 0) {
+                return child;
+            }
+            double value = wins.get(child) / (2.0 * n) + exploration * Math.sqrt(logParent / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /** Per-thread playout state, allocated once so playouts do not allocate. */
+    private boolean outOfTime() {
+        BooleanSupplier abort = abortSignal;
+        return System.currentTimeMillis() >= deadline || (abort != null && abort.getAsBoolean());
+    }
+
+    private final class Worker implements Runnable {
+
+        SplittableRandom random;
+        final long[] state = new long[rules.stateLength()];
+        final int[] moveBuffer = new int[rules.maxMoves()];
+        int[] path = new int[128];
+        int[] movers = new int[128];
+        long playouts;
+
+        Worker(long seed) {
+            random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public void run() {
+            playouts = 0;
+            while (!stopped) {
+                if (started.getAndIncrement() >= playoutLimit) {
+                    break;
+                }
+                playout();
+                playouts++;
+                if ((playouts & CHECK_INTERVAL) == 0 && outOfTime()) {
+                    stopped = true;
+                }
+            }
+        }
+
+        private void playout() {
+            System.arraycopy(root, 0, state, 0, state.length);
+            int node = 0;
+            int depth = 0;
+            path[0] = 0;
+            visits.addAndGet(0, VIRTUAL_LOSS);
+            while (true) {
+                int status = expansion.get(node);
+                if (status != EXPANDED) {
+                    boolean expand = status == LEAF && !full
+                            && (node == 0 || visits.get(node) >= EXPAND_VISITS + VIRTUAL_LOSS)
+                            && expansion.compareAndSet(node, LEAF, EXPANDING);
+                    if (!expand || !expand(node, state, moveBuffer)) {
+                        break;
+                    }
+                }
+                if (childCount[node] == 0) {
+                    break; // game over
+                }
+                int mover = rules.sideToMove(state);
+                node = select(node, random);
+                visits.addAndGet(node, VIRTUAL_LOSS);
+                rules.play(state, moves[node]);
+                if (++depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                    movers = Arrays.copyOf(movers, depth * 2);
+                }
+                path[depth] = node;
+                movers[depth] = mover;
+            }
+
+            int winner = rules.playout(state, random, moveBuffer);
+            for (int i = depth; i >= 0; i--) {
+                int n = path[i];
+                visits.addAndGet(n, 1 - VIRTUAL_LOSS);
+                if (i > 0) {
+                    wins.addAndGet(n, winner == MctsRules.DRAW ? 1 : winner == movers[i] ? 2 : 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.boardgames.common;
+
+import java.util.SplittableRandom;
+
+/**
+ * Game rules as seen by {@link MctsEngine}. A position is a fixed-length {@code long[]}
+ * the rules define, so the engine can copy and replay positions without allocating;
+ * moves are small non-negative integers. Implementations must be stateless (or at
+ * least thread-safe), since every search thread calls them concurrently.
+ */
+public interface MctsRules {
+
+    /** Result of {@link #winner} when the game ended level. */
+    int DRAW = -1;
+
+    /** Number of {@code long}s in a position. */
+    int stateLength();
+
+    /** Player to move in {@code state}: 0 or 1. */
+    int sideToMove(long[] state);
+
+    /**
+     * Writes the legal moves of {@code state} into {@code moves} and returns how many
+     * there are; zero means the game is over. A forced pass counts as one move.
+     */
+    int moves(long[] state, int[] moves);
+
+    /** Largest number of moves {@link #moves} can return. */
+    int maxMoves();
+
+    /** Plays {@code move} in place. */
+    void play(long[] state, int move);
+
+    /** Winner (0 or 1) of a finished game, or {@link #DRAW}. */
+    int winner(long[] state);
+
+    /**
+     * Plays random moves in place until the game ends and returns {@link #winner}.
+     * Rules with a cheaper way to pick a random move than listing them all should
+     * override this.
+     */
+    default int playout(long[] state, SplittableRandom random, int[] scratch) {
+        int count;
+        while ((count = moves(state, scratch)) > 0) {
+            play(state, scratch[random.nextInt(count)]);
+        }
+        return winner(state);
+    }
+}
@@ -0,0 +1,61 @@
+package com.boardgames.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * An AI move being searched in the background, completed with {@code [row, col]}, or
+ * {@code null} when there is no move.
+ *
+ * <p>The search runs until the deadline and then completes with the best move it has
+ * found so far. Cancelling the future abandons the search: searches poll
+ * {@link #isDone()} together with their time limit, so a cancelled one stops within
+ * a few thousand nodes and its result is dropped.
+ */
+public final class MoveFuture extends CompletableFuture<int[]> {
+
+    private final long deadlineMillis;
+
+    private MoveFuture(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Runs {@code search} on {@code executor}. The search is given the future so it can
+     * read the deadline and poll for cancellation; it is skipped entirely if the future
+     * is cancelled before it starts.
+     *
+     * @param deadlineMillis Wall-clock time, as {@link System#currentTimeMillis()}, by
+     *                       which the move is wanted.
+     */
+    public static MoveFuture submit(Function<MoveFuture, int[]> search, long deadlineMillis, Executor executor) {
+        MoveFuture future = new MoveFuture(deadlineMillis);
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(search.apply(future));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    public long getDeadline() {
+        return deadlineMillis;
+    }
+
+    /** Milliseconds left until the deadline, at least 1 so a late search still returns a move. */
+    public long remainingMillis() {
+        return Math.max(1, deadlineMillis - System.currentTimeMillis());
+    }
+
+    /** Future completion stages are plain CompletableFutures, as they cannot stop the search. */
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,30 @@
+package com.boardgames.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** A paint of the board component on the event dispatch thread; only slow ones by default. */
+@Name("com.boardgames.BoardPaint")
+@Label("Board Paint")
+@Category({"Board Games", "GUI"})
+@Description("The board component painting the cells in its clip")
+@StackTrace(false)
+@Threshold("5 ms")
+public final class BoardPaintEvent extends Event {
+
+    @Label("Game")
+    public String game;
+
+    @Label("Cells")
+    @Description("Cells inside the clip, i.e. repainted")
+    public int cells;
+
+    @Label("Sprites Rendered")
+    @Description("Whether the disc sprites had to be rendered first")
+    public boolean spritesRendered;
+}
@@ -0,0 +1,40 @@
+package com.boardgames.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A move played on a game, from the GUI, the server or a tool; recorded for legal
+ * moves only. The searches do not play their moves on a game, so these are the moves
+ * of the game record.
+ */
+@Name("com.boardgames.Move")
+@Label("Move")
+@Category({"Board Games", "Game"})
+@Description("A legal move applied to a game")
+@StackTrace(false)
+public final class MoveEvent extends Event {
+
+    @Label("Game")
+    public String game;
+
+    @Label("Board Size")
+    public int boardSize;
+
+    @Label("Move Number")
+    @Description("Moves played before this one, from 0")
+    public int moveNumber;
+
+    @Label("Row")
+    public int row;
+
+    @Label("Column")
+    public int col;
+
+    @Label("Player")
+    public char player;
+}
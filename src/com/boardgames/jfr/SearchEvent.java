@@ -0,0 +1,50 @@
+package com.boardgames.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One AI search, from the call that starts it to the move it returns; its start time
+ * and duration are when the search started and how long it ran. Covers the searches
+ * of the AI players, the ponderer, the analysis and the server alike.
+ */
+@Name("com.boardgames.Search")
+@Label("AI Search")
+@Category({"Board Games", "AI"})
+@Description("An AI search for one move, with what it reached")
+@StackTrace(false)
+public final class SearchEvent extends Event {
+
+    @Label("Engine")
+    @Description("alpha-beta, analysis or mcts")
+    public String engine;
+
+    @Label("Board Size")
+    @Description("Squares per row, 0 for MCTS, which does not know its game")
+    public int boardSize;
+
+    @Label("Threads")
+    public int threads;
+
+    @Label("Depth")
+    @Description("Deepest completed iteration, 0 for MCTS")
+    public int depth;
+
+    @Label("Nodes")
+    @Description("Nodes searched, or playouts for MCTS")
+    public long nodes;
+
+    @Label("Hash Probes")
+    public long hashProbes;
+
+    @Label("Hash Hits")
+    public long hashHits;
+
+    @Label("Best Move")
+    @Description("Square of the move found, -1 if there was none")
+    public int bestMove;
+}
@@ -0,0 +1,62 @@
+package com.boardgames.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One game session from start to end: a game in a game window, until it is replaced
+ * or the window closes, or a server session, until it is closed or expires. Recorded
+ * when the session ends, with its start time and duration.
+ */
+@Name("com.boardgames.Session")
+@Label("Game Session")
+@Category({"Board Games", "Game"})
+@Description("A game from the moment it started to the moment it was left")
+@StackTrace(false)
+public final class SessionEvent extends Event {
+
+    @Label("Game")
+    public String game;
+
+    @Label("Session Id")
+    @Description("Server session id, 0 for a game window")
+    public long sessionId;
+
+    @Label("Board Size")
+    public int boardSize;
+
+    @Label("Moves")
+    public int moves;
+
+    @Label("Final State")
+    @Description("Game state when the session ended, e.g. PLAYING or BLACK_WINS")
+    public String state;
+
+    @Label("End Reason")
+    @Description("new game, window closed, closed, expired or server closed")
+    public String endReason;
+
+    /** An event for a session starting now, to be {@link #end ended} when it is left. */
+    public static SessionEvent start(String game, long sessionId, int boardSize) {
+        SessionEvent event = new SessionEvent();
+        event.game = game;
+        event.sessionId = sessionId;
+        event.boardSize = boardSize;
+        event.begin();
+        return event;
+    }
+
+    /** Ends the session and commits the event, if it is being recorded. */
+    public void end(int moves, String state, String endReason) {
+        if (shouldCommit()) {
+            this.moves = moves;
+            this.state = state;
+            this.endReason = endReason;
+            commit();
+        }
+    }
+}
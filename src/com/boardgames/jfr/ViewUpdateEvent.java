@@ -0,0 +1,29 @@
+package com.boardgames.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A game window bringing its view in line with the game after a move, undo or new
+ * game, on the event dispatch thread; only slow ones by default. The painting itself
+ * follows later as {@link BoardPaintEvent}s.
+ */
+@Name("com.boardgames.ViewUpdate")
+@Label("View Update")
+@Category({"Board Games", "GUI"})
+@Description("A game window updating its board, labels and buttons")
+@StackTrace(false)
+@Threshold("5 ms")
+public final class ViewUpdateEvent extends Event {
+
+    @Label("Game")
+    public String game;
+
+    @Label("Move Count")
+    public int moveCount;
+}
@@ -0,0 +1,321 @@
+package com.boardgames.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one AI engine: how its moves were found, how long they took, and what
+ * the searches behind them did. The AI players record one entry per move, so the cost
+ * is a handful of {@link LongAdder} updates and a {@link LatencyHistogram} bucket per
+ * move; per-node figures such as hash probes are counted by the searches themselves
+ * in plain fields and handed over with the move.
+ *
+ * <p>Each engine's metrics are registered with the platform MBean server as
+ * {@code com.boardgames:type=EngineMetrics,name=<engine>}, e.g. for jconsole. Setting
+ * {@value #DUMP_PROPERTY} to a number of seconds also prints them all to standard
+ * error at that interval; setting {@value #ENABLED_PROPERTY} to {@code false} turns
+ * recording off.
+ *
+ * <p>The per-node hash counters in the searches are switched separately, by setting
+ * {@value #NODE_COUNTERS_PROPERTY} to {@code false} at startup: {@link #NODE_COUNTERS}
+ * is a constant, so the JIT drops the counting code altogether rather than testing a
+ * flag at every node.
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+
+    /** How a move was found. */
+    public enum MoveSource {
+        SEARCH,
+        PONDER_HIT,
+        BOOK,
+        TABLE,
+        ONLY_MOVE,
+        RANDOM
+    }
+
+    public static final String ENABLED_PROPERTY = "boardgames.metrics";
+    public static final String DUMP_PROPERTY = "boardgames.metrics.dump";
+    public static final String NODE_COUNTERS_PROPERTY = "boardgames.metrics.counters";
+
+    /** Whether searches count hash probes and hits; fixed for the life of the JVM. */
+    public static final boolean NODE_COUNTERS = !"false".equalsIgnoreCase(System.getProperty(NODE_COUNTERS_PROPERTY));
+
+    private static final ConcurrentMap<String, EngineMetrics> engines = new ConcurrentSkipListMap<>();
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    private static ScheduledExecutorService dumper;
+
+    static {
+        long seconds = Long.getLong(DUMP_PROPERTY, 0);
+        if (seconds > 0) {
+            startDump(seconds);
+        }
+    }
+
+    private final String engine;
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder searchedMoves = new LongAdder();
+    private final LongAdder ponderHits = new LongAdder();
+    private final LongAdder bookMoves = new LongAdder();
+    private final LongAdder tableMoves = new LongAdder();
+    private final LongAdder onlyMoves = new LongAdder();
+    private final LongAdder randomMoves = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    // Nodes and time of searches started for the move, for nodes per second
+    private final LongAdder searchNodes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder hashProbes = new LongAdder();
+    private final LongAdder hashHits = new LongAdder();
+    private final LongAdder depthSum = new LongAdder();
+    private final LongAdder depthCount = new LongAdder();
+    private final LongAdder legalMoveSum = new LongAdder();
+    private final LongAdder legalMoveCount = new LongAdder();
+    private final LongAdder latencySum = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private EngineMetrics(String engine) {
+        this.engine = engine;
+    }
+
+    /** The metrics of {@code engine}, created and registered with JMX on first use. */
+    public static EngineMetrics forEngine(String engine) {
+        return engines.computeIfAbsent(engine, EngineMetrics::create);
+    }
+
+    private static EngineMetrics create(String engine) {
+        EngineMetrics metrics = new EngineMetrics(engine);
+        try {
+            ObjectName name = new ObjectName("com.boardgames:type=EngineMetrics,name=" + ObjectName.quote(engine));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+        } catch (JMException e) {
+            System.err.println("Engine metrics for " + engine + " not available over JMX: " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Turns recording on or off for all engines; already recorded figures are kept. */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Records one move.
+     *
+     * @param nanos       wall-clock time from the request to the move.
+     * @param nodes       nodes or playouts searched, 0 if there was no search.
+     * @param depth       depth reached, or -1 if the engine has no such notion.
+     * @param legalMoves  legal moves in the position, or -1 if not known.
+     * @param hashProbes  transposition table probes of the search, 0 if it has no table.
+     * @param hashHits    probes that found an entry.
+     */
+    public void recordMove(MoveSource source, long nanos, long nodes, int depth, int legalMoves,
+                           long hashProbes, long hashHits) {
+        if (!enabled) {
+            return;
+        }
+        moves.increment();
+        switch (source) {
+            case SEARCH:
+                searchedMoves.increment();
+                searchNodes.add(nodes);
+                searchNanos.add(nanos);
+                break;
+            case PONDER_HIT:
+                ponderHits.increment();
+                break;
+            case BOOK:
+                bookMoves.increment();
+                break;
+            case TABLE:
+                tableMoves.increment();
+                break;
+            case ONLY_MOVE:
+                onlyMoves.increment();
+                break;
+            case RANDOM:
+                randomMoves.increment();
+                break;
+        }
+        this.nodes.add(nodes);
+        this.hashProbes.add(hashProbes);
+        this.hashHits.add(hashHits);
+        if (depth >= 0) {
+            depthSum.add(depth);
+            depthCount.increment();
+        }
+        if (legalMoves >= 0) {
+            legalMoveSum.add(legalMoves);
+            legalMoveCount.increment();
+        }
+        latencySum.add(nanos);
+        latency.record(nanos);
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public long getSearchedMoves() {
+        return searchedMoves.sum();
+    }
+
+    @Override
+    public long getPonderHits() {
+        return ponderHits.sum();
+    }
+
+    @Override
+    public long getBookMoves() {
+        return bookMoves.sum();
+    }
+
+    @Override
+    public long getTableMoves() {
+        return tableMoves.sum();
+    }
+
+    @Override
+    public long getOnlyMoves() {
+        return onlyMoves.sum();
+    }
+
+    @Override
+    public long getRandomMoves() {
+        return randomMoves.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : searchNodes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getHashProbes() {
+        return hashProbes.sum();
+    }
+
+    @Override
+    public long getHashHits() {
+        return hashHits.sum();
+    }
+
+    @Override
+    public double getHashHitRate() {
+        return ratio(hashHits.sum(), hashProbes.sum());
+    }
+
+    @Override
+    public double getAverageDepth() {
+        return ratio(depthSum.sum(), depthCount.sum());
+    }
+
+    @Override
+    public double getAverageLegalMoves() {
+        return ratio(legalMoveSum.sum(), legalMoveCount.sum());
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return ratio(latencySum.sum(), latency.getCount()) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getValueAtPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return latency.getValueAtPercentile(90) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getValueAtPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP999Millis() {
+        return latency.getValueAtPercentile(99.9) / 1e6;
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return latency.getMax() / 1e6;
+    }
+
+    @Override
+    public String dump() {
+        return String.format(Locale.ROOT,
+                "%s: moves=%d (search %d, ponder %d, book %d, table %d, only %d, random %d) nodes=%d nps=%.0f hash=%.1f%% depth=%.1f "
+                        + "legal=%.1f latency ms mean=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                engine, getMoves(), getSearchedMoves(), getPonderHits(), getBookMoves(), getTableMoves(), getOnlyMoves(),
+                getRandomMoves(), getNodes(), getNodesPerSecond(), 100 * getHashHitRate(), getAverageDepth(),
+                getAverageLegalMoves(), getLatencyMeanMillis(), getLatencyP50Millis(), getLatencyP90Millis(),
+                getLatencyP99Millis(), getLatencyP999Millis(), getLatencyMaxMillis());
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[]{moves, searchedMoves, ponderHits, bookMoves, tableMoves, onlyMoves,
+                randomMoves, nodes, searchNodes, searchNanos, hashProbes, hashHits, depthSum, depthCount, legalMoveSum,
+                legalMoveCount, latencySum}) {
+            adder.reset();
+        }
+        latency.reset();
+    }
+
+    /** {@link #dump()} of every engine that has metrics, one per line. */
+    public static String dumpAll() {
+        StringBuilder text = new StringBuilder();
+        for (EngineMetrics metrics : engines.values()) {
+            text.append(metrics.dump()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /** Prints {@link #dumpAll()} to standard error every {@code periodSeconds}, from a daemon thread. */
+    public static synchronized void startDump(long periodSeconds) {
+        if (dumper != null) {
+            dumper.shutdownNow();
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "engine-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            String text = dumpAll();
+            if (!text.isEmpty()) {
+                System.err.print(text);
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+}
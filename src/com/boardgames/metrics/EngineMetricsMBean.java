@@ -0,0 +1,64 @@
+package com.boardgames.metrics;
+
+/**
+ * JMX view of {@link EngineMetrics}, registered as
+ * {@code com.boardgames:type=EngineMetrics,name=<engine>}.
+ */
+public interface EngineMetricsMBean {
+
+    /** Moves chosen, however they were found. */
+    long getMoves();
+
+    /** Moves found by a search started for the move. */
+    long getSearchedMoves();
+
+    /** Moves taken from a search that ran on the opponent's time. */
+    long getPonderHits();
+
+    long getBookMoves();
+
+    /** Moves looked up in a precomputed perfect-play table. */
+    long getTableMoves();
+
+    /** Moves played without searching because they were the only legal one. */
+    long getOnlyMoves();
+
+    /** Moves picked at random rather than searched. */
+    long getRandomMoves();
+
+    /** Nodes (or playouts) of all searches. */
+    long getNodes();
+
+    /** Nodes per second of the searches started for a move. */
+    double getNodesPerSecond();
+
+    long getHashProbes();
+
+    long getHashHits();
+
+    /** Share of transposition table probes that found an entry, 0 to 1. */
+    double getHashHitRate();
+
+    /** Average depth of the searches that report one. */
+    double getAverageDepth();
+
+    /** Average number of legal moves in the positions moved from. */
+    double getAverageLegalMoves();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP90Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyP999Millis();
+
+    double getLatencyMaxMillis();
+
+    /** The figures above as text, as the periodic dump prints them. */
+    String dump();
+
+    void reset();
+}
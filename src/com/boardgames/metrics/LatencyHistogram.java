@@ -0,0 +1,100 @@
+package com.boardgames.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values, typically nanoseconds, in the style of HdrHistogram:
+ * buckets are exact below 64 and above that split every power of two into 32 linear
+ * sub-buckets, so any recorded value is reported within about 3% whatever its
+ * magnitude. The whole {@code long} range fits in under 2000 buckets, allocated once.
+ *
+ * <p>Recording is lock-free and safe from any number of threads; readers see a
+ * consistent enough picture for monitoring, not an atomic snapshot.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values below this get a bucket each. */
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = EXACT_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The value at or below which {@code percentile} percent of the recorded values lie,
+     * reported as the highest value of its bucket but never above the maximum; 0 if
+     * nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    static int bucket(long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift); // SUB_BUCKETS .. 2 * SUB_BUCKETS - 1
+        return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS + top - SUB_BUCKETS;
+    }
+
+    static long highestInBucket(int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        int offset = bucket - EXACT_LIMIT;
+        int shift = offset / SUB_BUCKETS + 1;
+        long top = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
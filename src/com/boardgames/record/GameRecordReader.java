@@ -0,0 +1,200 @@
+package com.boardgames.record;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.tictactoe.TicTacToeGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the games of a log written by {@link GameRecordWriter}. The file is mapped
+ * into memory a window at a time and the reader is a cursor over it: {@link #next()}
+ * moves to the following record and the getters read that record in place, so
+ * scanning millions of games allocates nothing and files larger than one mapping work.
+ * A record cut short at the end of the file (the writer crashed mid-batch) ends the
+ * stream. A reader is not thread-safe; open one per thread.
+ *
+ * <pre>java -cp bin com.boardgames.record.GameRecordReader games.log</pre>
+ * prints a summary of a log.
+ */
+public final class GameRecordReader implements Closeable {
+
+    private static final long WINDOW_BYTES = 1L << 28;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private long nextRecord = GameRecordWriter.HEADER_BYTES;
+    private int recordOffset = -1; // of the current record inside the window
+
+    private GameRecordReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        if (size < GameRecordWriter.HEADER_BYTES) {
+            throw new IOException("Not a game record file");
+        }
+        map(0);
+        if (window.getInt(0) != GameRecordWriter.MAGIC) {
+            throw new IOException("Not a game record file");
+        }
+        if (window.getShort(4) != GameRecordWriter.VERSION) {
+            throw new IOException("Unsupported game record version: " + window.getShort(4));
+        }
+    }
+
+    public static GameRecordReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new GameRecordReader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Moves to the next game; returns false at the end of the log. */
+    public boolean next() throws IOException {
+        long start = nextRecord;
+        if (start + GameRecordWriter.RECORD_HEADER_BYTES > size) {
+            recordOffset = -1;
+            return false;
+        }
+        ensureMapped(start, GameRecordWriter.RECORD_HEADER_BYTES);
+        int count = window.get((int) (start - windowStart) + 2) & 0xff;
+        int length = GameRecordWriter.RECORD_HEADER_BYTES + count;
+        if (start + length > size) {
+            recordOffset = -1;
+            return false;
+        }
+        ensureMapped(start, length);
+        recordOffset = (int) (start - windowStart);
+        nextRecord = start + length;
+        return true;
+    }
+
+    /** {@link GameRecordWriter#GAME_REVERSI} or {@link GameRecordWriter#GAME_TIC_TAC_TOE}. */
+    public int getGameType() {
+        return window.get(current()) & 0xff;
+    }
+
+    /** One of the {@code GameRecordWriter.RESULT_*} constants. */
+    public int getResult() {
+        return window.get(current() + 1) & 0xff;
+    }
+
+    public int getMoveCount() {
+        return window.get(current() + 2) & 0xff;
+    }
+
+    /** When the game was recorded, in epoch milliseconds. */
+    public long getTimestamp() {
+        return window.getLong(current() + 4);
+    }
+
+    /** Move {@code index} of the current game, encoded as described in {@link GameRecordWriter}. */
+    public int getMove(int index) {
+        if (index < 0 || index >= getMoveCount()) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + getMoveCount());
+        }
+        return window.get(current() + GameRecordWriter.RECORD_HEADER_BYTES + index) & 0xff;
+    }
+
+    /** Resets {@code game} and plays the current Reversi game's moves on it. */
+    public void replay(ReversiGame game) throws IOException {
+        if (getGameType() != GameRecordWriter.GAME_REVERSI) {
+            throw new IllegalStateException("Not a Reversi game");
+        }
+        game.reset();
+        for (int i = 0, count = getMoveCount(); i < count; i++) {
+            int move = getMove(i);
+            if (!game.makeMove(move / Bitboard.SIZE, move % Bitboard.SIZE)) {
+                throw new IOException("Illegal move " + move + " at ply " + i + " of record at byte " + (windowStart + recordOffset));
+            }
+        }
+    }
+
+    /** Resets {@code game} and plays the current Tic-Tac-Toe game's moves on it. */
+    public void replay(TicTacToeGame game) throws IOException {
+        if (getGameType() != GameRecordWriter.GAME_TIC_TAC_TOE) {
+            throw new IllegalStateException("Not a Tic-Tac-Toe game");
+        }
+        game.reset();
+        for (int i = 0, count = getMoveCount(); i < count; i++) {
+            int move = getMove(i);
+            if (!game.makeMove(move / 3, move % 3)) {
+                throw new IOException("Illegal move " + move + " at ply " + i + " of record at byte " + (windowStart + recordOffset));
+            }
+        }
+    }
+
+    /** File offset just past the last record read so far. */
+    long getEndOfRecords() {
+        return nextRecord;
+    }
+
+    private int current() {
+        if (recordOffset < 0) {
+            throw new IllegalStateException("No current record; call next() first");
+        }
+        return recordOffset;
+    }
+
+    /** Remaps the window if {@code [start, start + length)} is not inside it. */
+    private void ensureMapped(long start, int length) throws IOException {
+        if (start < windowStart || start + length > windowStart + window.capacity()) {
+            map(start);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: GameRecordReader <games.log>");
+            System.exit(1);
+        }
+        long[][] results = new long[2][4];
+        long[] moves = new long[2];
+        long begin = System.nanoTime();
+        try (GameRecordReader reader = open(Paths.get(args[0]))) {
+            while (reader.next()) {
+                int type = reader.getGameType();
+                if (type < results.length) {
+                    results[type][reader.getResult() & 3]++;
+                    moves[type] += reader.getMoveCount();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        String[] names = {"Reversi", "Tic-Tac-Toe"};
+        long total = 0;
+        for (int type = 0; type < names.length; type++) {
+            long games = results[type][0] + results[type][1] + results[type][2] + results[type][3];
+            total += games;
+            if (games > 0) {
+                System.out.printf("%-12s %10d games  first %d  second %d  draw %d  unfinished %d  avg %.1f moves%n",
+                        names[type], games, results[type][0], results[type][1], results[type][2], results[type][3],
+                        (double) moves[type] / games);
+            }
+        }
+        System.out.printf("Read %d games in %.2f s (%.0f games/s)%n", total, seconds, total / Math.max(seconds, 1e-9));
+    }
+}
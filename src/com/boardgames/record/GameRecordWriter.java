@@ -0,0 +1,262 @@
+package com.boardgames.record;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.tictactoe.TicTacToeGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends finished games to a game-record log.
+ *
+ * <p>File layout (little-endian): a 16-byte header of magic {@code "BGRL"}, a 2-byte
+ * version and 10 reserved bytes, then one record per game: the game type (1 byte), the
+ * result (1), the move count (1), a reserved byte, the time the game was recorded in
+ * epoch milliseconds (8) and one byte per move. A Reversi move is its square
+ * {@code row * 8 + col} and a Tic-Tac-Toe move its cell {@code row * 3 + col}; Reversi
+ * passes are not stored since replaying the moves recovers them.
+ *
+ * <p>Records are collected in a direct buffer and written to the channel in batches,
+ * when the buffer fills up or once the oldest unwritten record is older than the flush
+ * delay, so recording a game normally costs no system call. The delay is kept by a
+ * flush scheduled on a shared daemon thread when the first unwritten record is
+ * buffered, so a lone game is written even if no other one follows. A crash can lose
+ * at most the unwritten batch, and a record cut short by one is skipped by the reader.
+ * The writer is thread-safe.
+ */
+public final class GameRecordWriter implements Closeable {
+
+    /** System property naming the log the GUIs record their games to; unset disables recording. */
+    public static final String RECORD_PROPERTY = "boardgames.record";
+
+    public static final int GAME_REVERSI = 0;
+    public static final int GAME_TIC_TAC_TOE = 1;
+
+    public static final int RESULT_FIRST_WINS = 0;
+    public static final int RESULT_SECOND_WINS = 1;
+    public static final int RESULT_DRAW = 2;
+    public static final int RESULT_UNFINISHED = 3;
+
+    static final int MAGIC = 0x4c524742; // "BGRL" read little-endian
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 12;
+    static final int MAX_MOVES = 255;
+
+    private static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+    private static final long DEFAULT_FLUSH_DELAY_MILLIS = 1000;
+
+    // Runs the delayed flushes of every writer; its thread starts with the first one
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-record-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static GameRecordWriter defaultWriter;
+    private static boolean defaultOpened;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long flushDelayMillis = DEFAULT_FLUSH_DELAY_MILLIS;
+    private long oldestUnwritten;
+    private ScheduledFuture<?> scheduledFlush;
+    private long games;
+
+    private GameRecordWriter(FileChannel channel, int bufferBytes) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Opens {@code path} for appending, creating it with a header if it does not exist.
+     * An existing log is scanned first and a record cut short by a crash is dropped, so
+     * new records follow the last complete one.
+     */
+    public static GameRecordWriter open(Path path) throws IOException {
+        long end = HEADER_BYTES;
+        if (Files.exists(path) && Files.size(path) > 0) {
+            try (GameRecordReader reader = GameRecordReader.open(path)) {
+                while (reader.next()) {
+                    // Skip to the end of the last complete record
+                }
+                end = reader.getEndOfRecords();
+            }
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putShort(VERSION).position(HEADER_BYTES).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            } else {
+                channel.truncate(end);
+                channel.position(end);
+            }
+            return new GameRecordWriter(channel, DEFAULT_BUFFER_BYTES);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the shared writer for the file named by {@link #RECORD_PROPERTY}, opened on
+     * first use and closed when the JVM exits, or {@code null} if recording is off or the
+     * file cannot be opened.
+     */
+    public static synchronized GameRecordWriter getDefault() {
+        if (!defaultOpened) {
+            defaultOpened = true;
+            String path = System.getProperty(RECORD_PROPERTY);
+            if (path != null) {
+                try {
+                    GameRecordWriter writer = open(Paths.get(path));
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        try {
+                            writer.close();
+                        } catch (IOException e) {
+                            System.err.println("Could not close game record " + path + ": " + e.getMessage());
+                        }
+                    }));
+                    defaultWriter = writer;
+                } catch (IOException e) {
+                    System.err.println("Not recording games to " + path + ": " + e.getMessage());
+                }
+            }
+        }
+        return defaultWriter;
+    }
+
+    /** Longest time a record may sit in the buffer before it is written out. */
+    public synchronized void setFlushDelay(long millis) {
+        flushDelayMillis = millis;
+    }
+
+    /** Appends the moves and result of {@code game}, which must be on the standard 8x8 board. */
+    public synchronized void append(ReversiGame game) throws IOException {
+        if (game.getBoardSize() != Bitboard.SIZE) {
+            throw new IllegalArgumentException("Only 8x8 Reversi games can be recorded, not "
+                    + game.getBoardSize() + "x" + game.getBoardSize());
+        }
+        int result;
+        switch (game.getGameState()) {
+            case BLACK_WINS: result = RESULT_FIRST_WINS; break;
+            case WHITE_WINS: result = RESULT_SECOND_WINS; break;
+            case DRAW: result = RESULT_DRAW; break;
+            default: result = RESULT_UNFINISHED; break;
+        }
+        int count = game.getMoveCount();
+        putHeader(GAME_REVERSI, result, count);
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) game.getMove(i));
+        }
+        recorded();
+    }
+
+    /** Appends the moves and result of {@code game}. */
+    public synchronized void append(TicTacToeGame game) throws IOException {
+        int result;
+        switch (game.getGameState()) {
+            case X_WINS: result = RESULT_FIRST_WINS; break;
+            case O_WINS: result = RESULT_SECOND_WINS; break;
+            case DRAW: result = RESULT_DRAW; break;
+            default: result = RESULT_UNFINISHED; break;
+        }
+        int count = game.getMoveCount();
+        putHeader(GAME_TIC_TAC_TOE, result, count);
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) game.getMove(i));
+        }
+        recorded();
+    }
+
+    /** Appends a record built elsewhere, e.g. by an importer. */
+    public synchronized void append(int type, int result, byte[] moves, int offset, int count) throws IOException {
+        putHeader(type, result, count);
+        buffer.put(moves, offset, count);
+        recorded();
+    }
+
+    /** Writes the record header, first making room for the header and {@code count} moves. */
+    private void putHeader(int type, int result, int count) throws IOException {
+        if (count > MAX_MOVES) {
+            throw new IllegalArgumentException("Too many moves for one record: " + count);
+        }
+        if (buffer.remaining() < RECORD_HEADER_BYTES + count) {
+            flush();
+        }
+        buffer.put((byte) type).put((byte) result).put((byte) count).put((byte) 0)
+                .putLong(System.currentTimeMillis());
+    }
+
+    private void recorded() throws IOException {
+        games++;
+        long now = System.currentTimeMillis();
+        if (oldestUnwritten == 0) {
+            oldestUnwritten = now;
+            scheduledFlush = flusher.schedule(this::flushIfDue, flushDelayMillis, TimeUnit.MILLISECONDS);
+        } else if (now - oldestUnwritten >= flushDelayMillis) {
+            flush();
+        }
+    }
+
+    /** The scheduled flush: writes the batch unless it has been written already. */
+    private synchronized void flushIfDue() {
+        if (oldestUnwritten == 0 || !channel.isOpen()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Could not write game records: " + e.getMessage());
+        }
+    }
+
+    /** Writes every buffered record to the file. */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        oldestUnwritten = 0;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    /** Writes every buffered record and forces the file to the storage device. */
+    public synchronized void sync() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+    /** Games appended through this writer. */
+    public synchronized long getGames() {
+        return games;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+}
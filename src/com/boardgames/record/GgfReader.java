@@ -0,0 +1,206 @@
+package com.boardgames.record;
+
+import com.boardgames.reversi.ReversiGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads GGF game files ({@code .ggf}), the text format of the Generic Game Server.
+ *
+ * <p>A game looks like {@code (;GM[Othello]PB[..]PW[..]RE[+4.000]TY[8]BO[8 ...
+ * *]B[f5//1.2]W[d6]...;)}: properties are an upper-case name and a bracketed value,
+ * moves are {@code B[..]} and {@code W[..]} with the square first and {@code pa} for a
+ * pass, and {@code RE} is Black's final disc margin. Only 8x8 Othello games from the
+ * standard start position are imported.
+ *
+ * <p>The file is read through a fixed-size buffer and games are cut out of it as they
+ * complete, so memory use does not depend on the file size.
+ */
+final class GgfReader {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    /** Longer games are assumed to be garbage and skipped. */
+    private static final int MAX_GAME_BYTES = 1 << 16;
+    private static final byte[] STANDARD_BOARD =
+            "8 -------- -------- -------- ---O*--- ---*O--- -------- -------- -------- *".getBytes(StandardCharsets.US_ASCII);
+
+    private final ReversiGame game;
+    private final ReversiImport.Sink sink;
+    private final ReversiImport.Counts counts;
+    private byte[] text = new byte[4096];
+    private int length;
+    private boolean inGame;
+    private boolean overflow;
+
+    private GgfReader(ReversiGame game, ReversiImport.Sink sink, ReversiImport.Counts counts) {
+        this.game = game;
+        this.sink = sink;
+        this.counts = counts;
+    }
+
+    /** Replays every game of {@code path} on {@code game} and hands the legal ones to {@code sink}. */
+    static void read(Path path, ReversiGame game, ReversiImport.Sink sink, ReversiImport.Counts counts) throws IOException {
+        GgfReader reader = new GgfReader(game, sink, counts);
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(chunk) >= 0) {
+                chunk.flip();
+                reader.scan(chunk.array(), chunk.limit());
+                chunk.clear();
+            }
+        }
+    }
+
+    /** Feeds the next {@code count} bytes of the file; completed games are parsed right away. */
+    private void scan(byte[] bytes, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            byte b = bytes[i];
+            if (!inGame) {
+                // A game starts at "(;"; everything between games is ignored
+                if (b == '(') {
+                    inGame = true;
+                    overflow = false;
+                    length = 0;
+                }
+                continue;
+            }
+            if (length == text.length) {
+                if (length < MAX_GAME_BYTES) {
+                    text = Arrays.copyOf(text, length * 2);
+                } else {
+                    overflow = true;
+                    length = 0;
+                }
+            }
+            text[length++] = b;
+            if (b == ')' && length >= 2 && text[length - 2] == ';') {
+                inGame = false;
+                if (overflow) {
+                    counts.rejected();
+                } else {
+                    parseGame();
+                }
+            }
+        }
+    }
+
+    /** Parses and replays the game in {@code text[0, length)}, which starts after the '('. */
+    private void parseGame() throws IOException {
+        game.reset();
+        boolean othello = false;
+        boolean standard = true;
+        int margin = Integer.MIN_VALUE;
+        int i = 0;
+        while (i < length) {
+            // Property name: a run of upper-case letters followed by '['
+            int nameStart = i;
+            while (i < length && text[i] >= 'A' && text[i] <= 'Z') {
+                i++;
+            }
+            if (i == length || text[i] != '[' || i == nameStart) {
+                i = Math.max(i + 1, nameStart + 1);
+                continue;
+            }
+            int nameLength = i - nameStart;
+            int valueStart = ++i;
+            while (i < length && text[i] != ']') {
+                i++;
+            }
+            int valueEnd = i++;
+
+            if (nameLength == 2 && text[nameStart] == 'G' && text[nameStart + 1] == 'M') {
+                othello = startsWith(valueStart, valueEnd, "Othello");
+            } else if (nameLength == 2 && text[nameStart] == 'T' && text[nameStart + 1] == 'Y') {
+                standard &= valueEnd - valueStart == 1 && text[valueStart] == '8';
+            } else if (nameLength == 2 && text[nameStart] == 'B' && text[nameStart + 1] == 'O') {
+                standard &= isStandardBoard(valueStart, valueEnd);
+            } else if (nameLength == 2 && text[nameStart] == 'R' && text[nameStart + 1] == 'E') {
+                margin = parseMargin(valueStart, valueEnd);
+            } else if (nameLength == 1 && (text[nameStart] == 'B' || text[nameStart] == 'W')) {
+                if (!othello || !standard || !playMove(text[nameStart] == 'B' ? 'B' : 'W', valueStart, valueEnd)) {
+                    counts.rejected();
+                    return;
+                }
+            }
+        }
+        if (!othello || !standard) {
+            counts.rejected();
+            return;
+        }
+        if (margin == Integer.MIN_VALUE) {
+            int[] score = game.getScore();
+            margin = score[0] - score[1];
+        }
+        counts.accepted(game);
+        sink.accept(game, margin);
+    }
+
+    /** Plays one {@code B[..]}/{@code W[..]} move; false if it is illegal or out of turn. */
+    private boolean playMove(char color, int start, int end) {
+        if (end - start < 2) {
+            return false;
+        }
+        int file = Character.toLowerCase(text[start]);
+        int rank = text[start + 1];
+        if (file == 'p' && Character.toLowerCase(rank) == 'a') {
+            // ReversiGame passes by itself, so a pass only has to be a real one
+            return game.getCurrentPlayer() != color;
+        }
+        if (game.getCurrentPlayer() != color) {
+            return false;
+        }
+        return game.makeMove(rank - '1', file - 'a');
+    }
+
+    private boolean isStandardBoard(int start, int end) {
+        int j = 0;
+        for (int i = start; i < end; i++) {
+            byte b = text[i];
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                continue; // spacing varies between servers
+            }
+            while (j < STANDARD_BOARD.length && STANDARD_BOARD[j] == ' ') {
+                j++;
+            }
+            if (j == STANDARD_BOARD.length || STANDARD_BOARD[j++] != b) {
+                return false;
+            }
+        }
+        return j == STANDARD_BOARD.length;
+    }
+
+    /** Integer part of a result such as {@code +12.000} or {@code -4:r}; MIN_VALUE if there is none. */
+    private int parseMargin(int start, int end) {
+        int i = start;
+        boolean negative = i < end && text[i] == '-';
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            i++;
+        }
+        if (i == end || text[i] < '0' || text[i] > '9') {
+            return Integer.MIN_VALUE;
+        }
+        int value = 0;
+        while (i < end && text[i] >= '0' && text[i] <= '9') {
+            value = value * 10 + text[i++] - '0';
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean startsWith(int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,665 @@
+package com.boardgames.record;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.OpeningBookBuilder;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.reversi.Symmetry;
+import com.boardgames.reversi.Zobrist;
+import com.boardgames.tictactoe.TicTacToeGame;
+import com.boardgames.tictactoe.TicTacToeSymmetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How often each position of one game type was reached in recorded games and how those
+ * games ended, with positions merged across the eight board symmetries. Every canonical
+ * position has an entry, and so does every (position, move) pair, counting the games
+ * that continued with that move; {@link #played} answers "what was played from here"
+ * with one probe per legal move, and stays exact where move orders transpose. Moves
+ * that the symmetries of a symmetric position make equivalent, such as the four
+ * Reversi openings, share an entry.
+ *
+ * <p>Entries live in an open-addressing hash table with linear probing in a
+ * memory-mapped file rather than on the Java heap, so hundreds of millions of them cost
+ * the collector nothing and the operating system pages in what is used. The file is
+ * mapped in segments, as one mapping is limited to 2 GB, and when it is three quarters
+ * full it is rehashed into a file twice the size. Adding a game allocates nothing.
+ *
+ * <p>File layout (little-endian): a 16-byte header of magic {@code "BGPI"}, a 2-byte
+ * version, the game type (1 byte), log2 of the capacity (1) and the entry count (8),
+ * then one 24-byte slot per entry of capacity: the key (8), then the games (4), first
+ * player wins (4), second player wins (4) and draws (4) as unsigned counts that stop
+ * at 2^32 - 1. A slot with no games is empty. Reversi positions are keyed by the
+ * {@link Zobrist} hash of their canonical orientation, as in the opening book, and
+ * Tic-Tac-Toe positions by their canonical {@link TicTacToeSymmetry} code; a move
+ * entry's key mixes the position key with the canonical move.
+ *
+ * <p>The methods are synchronized, so {@link ReversiImport} can feed an index from
+ * several threads.
+ *
+ * <pre>java -cp bin com.boardgames.record.PositionIndex build &lt;index&gt; [--tictactoe] &lt;log-or-archive&gt;...
+ * java -cp bin com.boardgames.record.PositionIndex query &lt;index&gt; [moves]</pre>
+ */
+public final class PositionIndex implements Closeable {
+
+    /** Counts of the games through one position or move. */
+    public static final class Stats {
+
+        private final long games;
+        private final long firstWins;
+        private final long secondWins;
+        private final long draws;
+
+        Stats(long games, long firstWins, long secondWins, long draws) {
+            this.games = games;
+            this.firstWins = firstWins;
+            this.secondWins = secondWins;
+            this.draws = draws;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        /** Games won by Black or X. */
+        public long getFirstWins() {
+            return firstWins;
+        }
+
+        /** Games won by White or O. */
+        public long getSecondWins() {
+            return secondWins;
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        /** Games recorded without a result. */
+        public long getUnfinished() {
+            return games - firstWins - secondWins - draws;
+        }
+    }
+
+    /** A move played from a queried position and the games that continued with it. */
+    public static final class PlayedMove {
+
+        private final int move;
+        private final Stats stats;
+
+        PlayedMove(int move, Stats stats) {
+            this.move = move;
+            this.stats = stats;
+        }
+
+        /** Square ({@code row * 8 + col}) or cell ({@code row * 3 + col}) of the move on the queried board. */
+        public int getMove() {
+            return move;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+    }
+
+    static final int MAGIC = 0x49504742; // "BGPI" read little-endian
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 24;
+
+    public static final int MIN_CAPACITY_BITS = 10;
+    public static final int MAX_CAPACITY_BITS = 40;
+    /** Slots per mapping: 2^26 slots of 24 bytes is 1.5 GB. */
+    private static final int SEGMENT_BITS = 26;
+
+    private static final int GAMES = 8;
+    private static final int FIRST_WINS = 12;
+    private static final int SECOND_WINS = 16;
+    private static final int DRAWS = 20;
+
+    private static final Stats NONE = new Stats(0, 0, 0, 0);
+
+    private final Path path;
+    private final int gameType;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private int capacityBits;
+    private int segmentBits;
+    private long capacity;
+    private long size;
+
+    // Canonical form of the position being added or queried: its key and the symmetries
+    // (one bit each) that map it there
+    private long positionKey;
+    private int positionSymmetries;
+
+    private PositionIndex(Path path, int gameType, FileChannel channel, int capacityBits, long size) throws IOException {
+        this.path = path;
+        this.gameType = gameType;
+        this.channel = channel;
+        this.capacityBits = capacityBits;
+        this.capacity = 1L << capacityBits;
+        this.size = size;
+        map();
+    }
+
+    /**
+     * Creates an empty index for {@code gameType} ({@link GameRecordWriter#GAME_REVERSI} or
+     * {@link GameRecordWriter#GAME_TIC_TAC_TOE}) with room for {@code 2^capacityBits}
+     * slots, replacing {@code path} if it exists. The file is sparse, so an unused
+     * capacity takes no disk space on most file systems.
+     */
+    public static PositionIndex create(Path path, int gameType, int capacityBits) throws IOException {
+        if (gameType != GameRecordWriter.GAME_REVERSI && gameType != GameRecordWriter.GAME_TIC_TAC_TOE) {
+            throw new IllegalArgumentException("Unknown game type: " + gameType);
+        }
+        if (capacityBits < MIN_CAPACITY_BITS || capacityBits > MAX_CAPACITY_BITS) {
+            throw new IllegalArgumentException("Capacity bits must be between " + MIN_CAPACITY_BITS + " and "
+                    + MAX_CAPACITY_BITS + ": " + capacityBits);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putShort(VERSION).put((byte) gameType).put((byte) capacityBits).putLong(0).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            // Extend the file to its full size without writing the slots in between
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + ((long) ENTRY_BYTES << capacityBits) - 1);
+            return new PositionIndex(path, gameType, channel, capacityBits, 0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Opens an existing index for reading and adding. */
+    public static PositionIndex open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                // Read the whole header
+            }
+            if (buffer.hasRemaining() || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a position index: " + path);
+            }
+            if (buffer.getShort(4) != VERSION) {
+                throw new IOException("Unsupported position index version: " + buffer.getShort(4));
+            }
+            int gameType = buffer.get(6);
+            int capacityBits = buffer.get(7);
+            if (capacityBits < MIN_CAPACITY_BITS || capacityBits > MAX_CAPACITY_BITS
+                    || channel.size() < HEADER_BYTES + ((long) ENTRY_BYTES << capacityBits)) {
+                throw new IOException("Position index is truncated: " + path);
+            }
+            return new PositionIndex(path, gameType, channel, capacityBits, buffer.getLong(8));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void map() throws IOException {
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        segmentBits = Math.min(SEGMENT_BITS, capacityBits);
+        long segmentBytes = (long) ENTRY_BYTES << segmentBits;
+        segments = new MappedByteBuffer[1 << (capacityBits - segmentBits)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + i * segmentBytes, segmentBytes);
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /** {@link GameRecordWriter#GAME_REVERSI} or {@link GameRecordWriter#GAME_TIC_TAC_TOE}. */
+    public int getGameType() {
+        return gameType;
+    }
+
+    /** Number of entries: distinct canonical positions plus distinct (position, move) pairs. */
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds every position of a Reversi game and every move played in it, counted toward
+     * {@code result}, one of the {@code GameRecordWriter.RESULT_*} constants. Takes the
+     * game back move by move, so {@code game} ends up at the start position.
+     */
+    public synchronized void addGame(ReversiGame game, int result) throws IOException {
+        checkType(GameRecordWriter.GAME_REVERSI);
+        checkStandard(game);
+        canonicalize(game);
+        count(positionKey, result);
+        while (game.getMoveCount() > 0) {
+            int move = game.getMove(game.getMoveCount() - 1);
+            game.undoMove();
+            canonicalize(game);
+            count(positionKey, result);
+            count(moveKey(positionKey, canonicalSquare(move)), result);
+        }
+    }
+
+    /** As {@link #addGame(ReversiGame, int)}, for a Tic-Tac-Toe game. */
+    public synchronized void addGame(TicTacToeGame game, int result) throws IOException {
+        checkType(GameRecordWriter.GAME_TIC_TAC_TOE);
+        canonicalize(game);
+        count(positionKey, result);
+        while (game.getMoveCount() > 0) {
+            int move = game.getMove(game.getMoveCount() - 1);
+            game.undoMove();
+            canonicalize(game);
+            count(positionKey, result);
+            count(moveKey(positionKey, canonicalCell(move)), result);
+        }
+    }
+
+    /** Adds every game of this index's type in a {@link GameRecordWriter} log; returns how many. */
+    public long addLog(Path log) throws IOException {
+        ReversiGame reversi = new ReversiGame();
+        TicTacToeGame ticTacToe = new TicTacToeGame();
+        long games = 0;
+        try (GameRecordReader reader = GameRecordReader.open(log)) {
+            while (reader.next()) {
+                if (reader.getGameType() != gameType) {
+                    continue;
+                }
+                if (gameType == GameRecordWriter.GAME_REVERSI) {
+                    reader.replay(reversi);
+                    addGame(reversi, reader.getResult());
+                } else {
+                    reader.replay(ticTacToe);
+                    addGame(ticTacToe, reader.getResult());
+                }
+                games++;
+            }
+        }
+        return games;
+    }
+
+    /** Counts of the games that reached the game's position, in any orientation. */
+    public synchronized Stats lookup(ReversiGame game) {
+        checkType(GameRecordWriter.GAME_REVERSI);
+        checkStandard(game);
+        canonicalize(game);
+        return stats(positionKey);
+    }
+
+    public synchronized Stats lookup(TicTacToeGame game) {
+        checkType(GameRecordWriter.GAME_TIC_TAC_TOE);
+        canonicalize(game);
+        return stats(positionKey);
+    }
+
+    /**
+     * The legal moves that recorded games continued with from the game's position, most
+     * played first. Of moves the position's own symmetries make equivalent only the
+     * first on the board is listed.
+     */
+    public synchronized List<PlayedMove> played(ReversiGame game) {
+        checkType(GameRecordWriter.GAME_REVERSI);
+        checkStandard(game);
+        canonicalize(game);
+        List<PlayedMove> moves = new ArrayList<>();
+        long listed = 0;
+        for (long legal = game.getLegalMoves(); legal != 0; legal &= legal - 1) {
+            int canonical = canonicalSquare(Long.numberOfTrailingZeros(legal));
+            if ((listed & 1L << canonical) == 0) {
+                listed |= 1L << canonical;
+                addPlayed(moves, Long.numberOfTrailingZeros(legal), canonical);
+            }
+        }
+        moves.sort((a, b) -> Long.compare(b.stats.games, a.stats.games));
+        return moves;
+    }
+
+    public synchronized List<PlayedMove> played(TicTacToeGame game) {
+        checkType(GameRecordWriter.GAME_TIC_TAC_TOE);
+        canonicalize(game);
+        List<PlayedMove> moves = new ArrayList<>();
+        if (game.getGameState() != TicTacToeGame.GameState.PLAYING) {
+            return moves;
+        }
+        int listed = 0;
+        for (int cell = 0; cell < TicTacToeSymmetry.CELLS; cell++) {
+            int canonical = canonicalCell(cell);
+            if (game.getSymbolAt(cell / 3, cell % 3) == ' ' && (listed & 1 << canonical) == 0) {
+                listed |= 1 << canonical;
+                addPlayed(moves, cell, canonical);
+            }
+        }
+        moves.sort((a, b) -> Long.compare(b.stats.games, a.stats.games));
+        return moves;
+    }
+
+    private void addPlayed(List<PlayedMove> moves, int move, int canonical) {
+        Stats stats = stats(moveKey(positionKey, canonical));
+        if (stats.games > 0) {
+            moves.add(new PlayedMove(move, stats));
+        }
+    }
+
+    // --- Canonical forms ---
+
+    private void canonicalize(ReversiGame game) {
+        long black = game.getBlackDiscs();
+        long white = game.getWhiteDiscs();
+        int side = game.getSide();
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            long hash = Zobrist.hash(Symmetry.transform(black, s), Symmetry.transform(white, s), side);
+            int order = s == 0 ? -1 : Long.compareUnsigned(hash, positionKey);
+            if (order < 0) {
+                positionKey = hash;
+                positionSymmetries = 1 << s;
+            } else if (order == 0) {
+                positionSymmetries |= 1 << s;
+            }
+        }
+    }
+
+    private void canonicalize(TicTacToeGame game) {
+        int code = TicTacToeSymmetry.encode(game);
+        for (int s = 0; s < TicTacToeSymmetry.COUNT; s++) {
+            long transformed = TicTacToeSymmetry.transform(code, s);
+            if (s == 0 || transformed < positionKey) {
+                positionKey = transformed;
+                positionSymmetries = 1 << s;
+            } else if (transformed == positionKey) {
+                positionSymmetries |= 1 << s;
+            }
+        }
+    }
+
+    /** The smallest square {@code square} maps to under the symmetries to the canonical position. */
+    private int canonicalSquare(int square) {
+        int best = Integer.MAX_VALUE;
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            if ((positionSymmetries & 1 << s) != 0) {
+                best = Math.min(best, Symmetry.transformSquare(square, s));
+            }
+        }
+        return best;
+    }
+
+    private int canonicalCell(int cell) {
+        int best = Integer.MAX_VALUE;
+        for (int s = 0; s < TicTacToeSymmetry.COUNT; s++) {
+            if ((positionSymmetries & 1 << s) != 0) {
+                best = Math.min(best, TicTacToeSymmetry.transformCell(cell, s));
+            }
+        }
+        return best;
+    }
+
+    private static long moveKey(long positionKey, int move) {
+        return mix(positionKey ^ (move + 1) * 0x9e3779b97f4a7c15L);
+    }
+
+    /** The murmur3 finalizer; spreads Tic-Tac-Toe codes and move keys over the table. */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // --- Hash table ---
+
+    /** The slot holding {@code key}, or {@code ~slot} of the empty slot where it would go. */
+    private long find(long key) {
+        long mask = capacity - 1;
+        for (long slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            ByteBuffer segment = segments[(int) (slot >>> segmentBits)];
+            int offset = offset(slot);
+            if (segment.getInt(offset + GAMES) == 0) {
+                return ~slot;
+            }
+            if (segment.getLong(offset) == key) {
+                return slot;
+            }
+        }
+    }
+
+    private int offset(long slot) {
+        return (int) (slot & ((1L << segmentBits) - 1)) * ENTRY_BYTES;
+    }
+
+    private void count(long key, int result) throws IOException {
+        long slot = find(key);
+        if (slot < 0) {
+            if (size >= capacity - (capacity >>> 2)) {
+                grow();
+                slot = find(key);
+            }
+            slot = ~slot;
+            segments[(int) (slot >>> segmentBits)].putLong(offset(slot), key);
+            size++;
+            header.putLong(8, size);
+        }
+        ByteBuffer segment = segments[(int) (slot >>> segmentBits)];
+        int offset = offset(slot);
+        increment(segment, offset + GAMES);
+        switch (result) {
+            case GameRecordWriter.RESULT_FIRST_WINS:
+                increment(segment, offset + FIRST_WINS);
+                break;
+            case GameRecordWriter.RESULT_SECOND_WINS:
+                increment(segment, offset + SECOND_WINS);
+                break;
+            case GameRecordWriter.RESULT_DRAW:
+                increment(segment, offset + DRAWS);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void increment(ByteBuffer segment, int offset) {
+        int count = segment.getInt(offset);
+        if (count != -1) {
+            segment.putInt(offset, count + 1);
+        }
+    }
+
+    private Stats stats(long key) {
+        long slot = find(key);
+        if (slot < 0) {
+            return NONE;
+        }
+        ByteBuffer segment = segments[(int) (slot >>> segmentBits)];
+        int offset = offset(slot);
+        return new Stats(Integer.toUnsignedLong(segment.getInt(offset + GAMES)),
+                Integer.toUnsignedLong(segment.getInt(offset + FIRST_WINS)),
+                Integer.toUnsignedLong(segment.getInt(offset + SECOND_WINS)),
+                Integer.toUnsignedLong(segment.getInt(offset + DRAWS)));
+    }
+
+    /**
+     * Rehashes every entry into a new file of twice the capacity next to this one, then
+     * moves it over this one and carries on with it.
+     */
+    private void grow() throws IOException {
+        if (capacityBits == MAX_CAPACITY_BITS) {
+            throw new IOException("Position index is full at " + size + " entries");
+        }
+        Path grown = path.resolveSibling(path.getFileName() + ".grow");
+        PositionIndex bigger = create(grown, gameType, capacityBits + 1);
+        try {
+            for (MappedByteBuffer segment : segments) {
+                for (int offset = 0; offset < segment.capacity(); offset += ENTRY_BYTES) {
+                    if (segment.getInt(offset + GAMES) == 0) {
+                        continue;
+                    }
+                    long slot = ~bigger.find(segment.getLong(offset));
+                    ByteBuffer target = bigger.segments[(int) (slot >>> bigger.segmentBits)];
+                    int targetOffset = bigger.offset(slot);
+                    for (int i = 0; i < ENTRY_BYTES; i += 4) {
+                        target.putInt(targetOffset + i, segment.getInt(offset + i));
+                    }
+                }
+            }
+            bigger.header.putLong(8, size);
+            Files.move(grown, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            bigger.channel.close();
+            Files.deleteIfExists(grown);
+            throw e;
+        }
+        channel.close();
+        channel = bigger.channel;
+        header = bigger.header;
+        segments = bigger.segments;
+        capacityBits = bigger.capacityBits;
+        segmentBits = bigger.segmentBits;
+        capacity = bigger.capacity;
+    }
+
+    private void checkType(int type) {
+        if (type != gameType) {
+            throw new IllegalStateException("Index holds game type " + gameType + ", not " + type);
+        }
+    }
+
+    private static void checkStandard(ReversiGame game) {
+        if (game.getBoardSize() != Bitboard.SIZE) {
+            throw new IllegalArgumentException("Only 8x8 Reversi games can be indexed");
+        }
+    }
+
+    /** Writes the mapped entries out to disk. */
+    public synchronized void force() {
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            force();
+            channel.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || !args[0].equals("build") && !args[0].equals("query")) {
+            System.err.println("Usage: PositionIndex build <index> [--tictactoe] [--capacity-bits N] [--threads N] "
+                    + "<log-or-archive>...\n       PositionIndex query <index> [moves, e.g. f5d6 or 408]");
+            System.exit(1);
+        }
+        Path indexPath = Paths.get(args[1]);
+        if (args[0].equals("query")) {
+            try (PositionIndex index = open(indexPath)) {
+                query(index, args.length > 2 ? args[2] : "");
+            }
+            return;
+        }
+
+        int gameType = GameRecordWriter.GAME_REVERSI;
+        int capacityBits = 20;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> logs = new ArrayList<>();
+        List<Path> archives = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tictactoe":
+                    gameType = GameRecordWriter.GAME_TIC_TAC_TOE;
+                    break;
+                case "--capacity-bits":
+                    capacityBits = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    Path input = Paths.get(args[i]);
+                    String name = input.getFileName().toString().toLowerCase(Locale.ROOT);
+                    if (Files.isDirectory(input) || name.endsWith(".wtb") || name.endsWith(".ggf")) {
+                        archives.add(input);
+                    } else {
+                        logs.add(input);
+                    }
+            }
+        }
+
+        long begin = System.nanoTime();
+        long games = 0;
+        try (PositionIndex index = Files.exists(indexPath) ? open(indexPath) : create(indexPath, gameType, capacityBits)) {
+            for (Path log : logs) {
+                games += index.addLog(log);
+            }
+            if (!archives.isEmpty()) {
+                games += ReversiImport.importFiles(ReversiImport.archives(archives),
+                        (game, margin) -> index.addGame(game, margin > 0 ? GameRecordWriter.RESULT_FIRST_WINS
+                                : margin < 0 ? GameRecordWriter.RESULT_SECOND_WINS : GameRecordWriter.RESULT_DRAW),
+                        threads).getGames();
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.out.printf(Locale.ROOT, "Indexed %d games in %.2f s; %d entries in %d slots (%.0f MB)%n", games,
+                    seconds, index.size(), index.getCapacity(),
+                    (HEADER_BYTES + index.getCapacity() * ENTRY_BYTES) / (1024.0 * 1024.0));
+        }
+    }
+
+    private static void query(PositionIndex index, String moves) {
+        Stats position;
+        List<PlayedMove> played;
+        boolean reversi = index.getGameType() == GameRecordWriter.GAME_REVERSI;
+        if (reversi) {
+            ReversiGame game = new ReversiGame();
+            int[] squares = new int[Bitboard.SQUARES];
+            for (int i = 0, count = OpeningBookBuilder.parseMoves(moves, squares); i < count; i++) {
+                if (!game.makeMove(squares[i] / Bitboard.SIZE, squares[i] % Bitboard.SIZE)) {
+                    throw new IllegalArgumentException("Illegal move " + moves.substring(2 * i, 2 * i + 2));
+                }
+            }
+            position = index.lookup(game);
+            played = index.played(game);
+        } else {
+            TicTacToeGame game = new TicTacToeGame();
+            for (char c : moves.toCharArray()) {
+                int cell = c - '0';
+                if (cell < 0 || cell >= TicTacToeSymmetry.CELLS || !game.makeMove(cell / 3, cell % 3)) {
+                    throw new IllegalArgumentException("Illegal move " + c);
+                }
+            }
+            position = index.lookup(game);
+            played = index.played(game);
+        }
+        System.out.println("position  " + format(position));
+        for (PlayedMove move : played) {
+            String name = reversi
+                    ? "" + (char) ('a' + move.getMove() % Bitboard.SIZE) + (char) ('1' + move.getMove() / Bitboard.SIZE)
+                    : Integer.toString(move.getMove());
+            System.out.printf("%-9s %s%n", name, format(move.getStats()));
+        }
+    }
+
+    private static String format(Stats stats) {
+        return String.format(Locale.ROOT, "%10d games  first %d  second %d  draw %d  unfinished %d",
+                stats.getGames(), stats.getFirstWins(), stats.getSecondWins(), stats.getDraws(), stats.getUnfinished());
+    }
+}
@@ -0,0 +1,168 @@
+package com.boardgames.record;
+
+import com.boardgames.reversi.ReversiGame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports expert Reversi games from WTHOR ({@code .wtb}) and GGF ({@code .ggf})
+ * archives. Files are decoded in parallel, one file per thread, and every game is
+ * replayed through {@link ReversiGame} so only legal games come out; each thread reuses
+ * one game object and one read buffer, so memory stays bounded however large the
+ * archive.
+ *
+ * <pre>java -cp bin com.boardgames.record.ReversiImport &lt;out.log&gt; &lt;file-or-directory&gt;... [--threads N]</pre>
+ * converts archives into a {@link GameRecordWriter} log.
+ */
+public final class ReversiImport {
+
+    /** Receives imported games; called concurrently from the decoding threads. */
+    public interface Sink {
+
+        /**
+         * Takes a replayed game. The game object is reused for the next game once this
+         * returns, so a sink must copy anything it wants to keep.
+         *
+         * @param blackMargin Black's final disc margin as the archive reports it.
+         */
+        void accept(ReversiGame game, int blackMargin) throws IOException;
+    }
+
+    /** Running totals of an import, safe to update from several threads. */
+    public static final class Counts {
+
+        private final LongAdder games = new LongAdder();
+        private final LongAdder moves = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        void accepted(ReversiGame game) {
+            games.increment();
+            moves.add(game.getMoveCount());
+        }
+
+        void rejected() {
+            rejected.increment();
+        }
+
+        public long getGames() {
+            return games.sum();
+        }
+
+        /** Moves, and so positions, in the accepted games. */
+        public long getMoves() {
+            return moves.sum();
+        }
+
+        /** Games that were illegal, truncated or not standard 8x8 Othello. */
+        public long getRejected() {
+            return rejected.sum();
+        }
+    }
+
+    private ReversiImport() {
+    }
+
+    /** Imports one WTHOR or GGF file, chosen by its extension, on the calling thread. */
+    public static void importFile(Path file, Sink sink, Counts counts) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        ReversiGame game = new ReversiGame();
+        if (name.endsWith(".wtb")) {
+            WthorReader.read(file, game, sink, counts);
+        } else if (name.endsWith(".ggf")) {
+            GgfReader.read(file, game, sink, counts);
+        } else {
+            throw new IOException("Unknown archive format: " + file);
+        }
+    }
+
+    /** Imports {@code files} on {@code threads} threads and returns the totals. */
+    public static Counts importFiles(List<Path> files, Sink sink, int threads) throws IOException, InterruptedException {
+        Counts counts = new Counts();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (Path file : files) {
+                running.add(pool.submit(() -> {
+                    try {
+                        importFile(file, sink, counts);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(file + ": " + e.getMessage(), e);
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("Import failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return counts;
+    }
+
+    /** Expands directories into the archives they contain, largest first so threads finish together. */
+    public static List<Path> archives(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> stream = Files.walk(path)) {
+                    files.addAll(stream.filter(ReversiImport::isArchive).collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        files.sort((a, b) -> Long.compare(b.toFile().length(), a.toFile().length()));
+        return files;
+    }
+
+    private static boolean isArchive(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return Files.isRegularFile(path) && (name.endsWith(".wtb") || name.endsWith(".ggf"));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReversiImport <out.log> <file-or-directory>... [--threads N]");
+            System.exit(1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                inputs.add(Paths.get(args[i]));
+            }
+        }
+
+        List<Path> files = archives(inputs);
+        long begin = System.nanoTime();
+        Counts counts;
+        try (GameRecordWriter writer = GameRecordWriter.open(Paths.get(args[0]))) {
+            counts = importFiles(files, (game, margin) -> writer.append(game), threads);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf(Locale.ROOT, "Imported %d games (%d positions) from %d files in %.2f s, %.0f games/s; rejected %d%n",
+                counts.getGames(), counts.getMoves(), files.size(), seconds, counts.getGames() / Math.max(seconds, 1e-9),
+                counts.getRejected());
+    }
+}
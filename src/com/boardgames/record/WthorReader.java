@@ -0,0 +1,81 @@
+package com.boardgames.record;
+
+import com.boardgames.reversi.ReversiGame;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads WTHOR game databases ({@code .wtb}), the binary format of the French Othello
+ * Federation's archive.
+ *
+ * <p>Layout (little-endian): a 16-byte header whose bytes 4-7 hold the game count and
+ * byte 12 the board size (0 or 8), then one 68-byte record per game: tournament, Black
+ * and White player numbers (2 bytes each), Black's final disc count (1), the
+ * theoretical score (1) and 60 move bytes {@code 10 * row + col} counted from 1, so a1
+ * is 11 and h8 is 88, padded with zeros. Passes are not stored.
+ *
+ * <p>The file is memory-mapped and decoded in place.
+ */
+final class WthorReader {
+
+    static final int HEADER_BYTES = 16;
+    static final int GAME_BYTES = 68;
+    private static final int MOVES_OFFSET = 8;
+    private static final int MOVES = 60;
+
+    private WthorReader() {
+    }
+
+    /** Replays every game of {@code path} on {@code game} and hands the legal ones to {@code sink}. */
+    static void read(Path path, ReversiGame game, ReversiImport.Sink sink, ReversiImport.Counts counts) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a WTHOR file: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int boardSize = buffer.get(12);
+        if (boardSize != 0 && boardSize != 8) {
+            throw new IOException("Unsupported WTHOR board size " + boardSize + ": " + path);
+        }
+        long games = buffer.getInt(4) & 0xffffffffL;
+        if (HEADER_BYTES + games * GAME_BYTES > buffer.capacity()) {
+            throw new IOException("Truncated WTHOR file: expected " + games + " games in " + path);
+        }
+
+        for (int g = 0; g < games; g++) {
+            int offset = HEADER_BYTES + g * GAME_BYTES;
+            int blackDiscs = buffer.get(offset + 6) & 0xff;
+            if (replay(buffer, offset + MOVES_OFFSET, game)) {
+                counts.accepted(game);
+                sink.accept(game, 2 * blackDiscs - 64);
+            } else {
+                counts.rejected();
+            }
+        }
+    }
+
+    private static boolean replay(MappedByteBuffer buffer, int offset, ReversiGame game) {
+        game.reset();
+        for (int i = 0; i < MOVES; i++) {
+            int move = buffer.get(offset + i) & 0xff;
+            if (move == 0) {
+                break;
+            }
+            int row = move / 10 - 1;
+            int col = move % 10 - 1;
+            // makeMove range-checks the row, the column must not wrap into the next row
+            if (col < 0 || col >= game.getBoardSize() || !game.makeMove(row, col)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,365 @@
+package com.boardgames.reversi;
+
+import com.boardgames.record.GameRecordReader;
+import com.boardgames.record.GameRecordWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores large sets of 8x8 positions in parallel: each position is either evaluated
+ * statically ({@code depth} 0) or searched to a fixed depth, and the results come back
+ * in input order.
+ *
+ * <p>Positions are read as packed records of {@value #RECORD_BYTES} bytes: Black's
+ * discs and White's discs as big-endian {@code long}s in {@link Bitboard} layout,
+ * then the side to move, {@link Zobrist#BLACK} or {@link Zobrist#WHITE}. The input is
+ * read a chunk of {@value #CHUNK_POSITIONS} positions at a time and each chunk becomes
+ * a task on a work-stealing {@link ForkJoinPool}, split down to single positions when
+ * searching so that a few slow positions do not hold up a thread. At most a few
+ * chunks per thread are in flight; the oldest is waited for and delivered before
+ * another is read, so memory stays bounded however long the input, and chunk buffers
+ * are reused.
+ *
+ * <p>Every worker thread keeps its own {@link ReversiSearch}, and its table is cleared
+ * before each position, so a position's result does not depend on which thread
+ * searched it or what it searched before. Forced moves and passes are played out
+ * before the search and do not use up depth, and positions whose search would reach
+ * the end of the game anyway are solved exactly.
+ *
+ * <pre>java -cp bin com.boardgames.reversi.BatchEvaluator &lt;positions.bin|-&gt; [--depth 6] [--threads N] [--out results.txt]
+ * java -cp bin com.boardgames.reversi.BatchEvaluator --pack &lt;games.log&gt; &lt;positions.bin&gt;</pre>
+ * The first form prints one line per position, {@code index score move}, with the score
+ * in {@link ReversiSearch} units from the side to move's view and the move as e.g.
+ * {@code d3}, {@code pass}, or {@code -} when evaluating statically or the game is over.
+ * The second packs every position of the Reversi games in a {@link GameRecordWriter} log.
+ */
+public final class BatchEvaluator implements Closeable {
+
+    public static final int RECORD_BYTES = 17;
+    public static final int CHUNK_POSITIONS = 64;
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int NOT_YET = -2;
+
+    /** Receives the results in input order, on the thread that called {@link #evaluate}. */
+    public interface ResultSink {
+
+        /**
+         * @param index position number in the input, from 0.
+         * @param score from the side to move's view, in {@link ReversiSearch} units.
+         * @param move  best square, or -1 when evaluating statically, when the side to move
+         *              has to pass, or when the game is over.
+         */
+        void accept(long index, long black, long white, int side, int score, int move) throws IOException;
+    }
+
+    private final int depth;
+    private final ForkJoinPool pool;
+    private final int maxChunks;
+    private final PatternEvaluator evaluator = PatternEvaluator.getDefault();
+    private final ThreadLocal<ReversiSearch> searches;
+
+    /**
+     * @param depth   plies to search each position, 0 for the static evaluation.
+     * @param threads worker threads.
+     */
+    public BatchEvaluator(int depth, int threads) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative: " + depth);
+        }
+        this.depth = depth;
+        this.pool = new ForkJoinPool(threads);
+        this.maxChunks = threads * CHUNKS_PER_THREAD;
+        this.searches = ThreadLocal.withInitial(() -> {
+            ReversiSearch search = new ReversiSearch(new TranspositionTable(tableMb(depth)));
+            search.setThreads(1);
+            search.setTimeLimit(Long.MAX_VALUE);
+            search.setMaxDepth(depth);
+            search.setEndgameEmpties(depth);
+            return search;
+        });
+    }
+
+    /**
+     * Table size for searches to {@code depth}: 1 MB up to depth 8, doubling with every
+     * further ply. The table is cleared for every position, so a shallow search must not
+     * pay for clearing more than it can fill.
+     */
+    private static int tableMb(int depth) {
+        return 1 << Math.min(10, Math.max(0, depth - 8));
+    }
+
+    /**
+     * Scores every packed position read from {@code in} until its end, passing each
+     * result to {@code sink} in input order. Does not close {@code in}.
+     *
+     * @return the number of positions scored.
+     * @throws IOException from {@code in} or {@code sink}, or if a record is malformed or
+     *                     cut short; positions still in flight are abandoned.
+     */
+    public long evaluate(InputStream in, ResultSink sink) throws IOException {
+        ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        ArrayDeque<Chunk> spare = new ArrayDeque<>();
+        long next = 0;
+        try {
+            while (true) {
+                if (inFlight.size() == maxChunks) {
+                    spare.add(deliver(inFlight.poll(), sink));
+                }
+                Chunk chunk = spare.isEmpty() ? new Chunk() : spare.poll();
+                if (!chunk.read(in, next)) {
+                    break;
+                }
+                next += chunk.count;
+                chunk.task = pool.submit(new Slice(chunk, 0, chunk.count));
+                inFlight.add(chunk);
+            }
+            while (!inFlight.isEmpty()) {
+                deliver(inFlight.poll(), sink);
+            }
+        } finally {
+            for (Chunk chunk : inFlight) {
+                chunk.task.cancel(false);
+            }
+        }
+        return next;
+    }
+
+    /** {@link #evaluate(InputStream, ResultSink)} on a file of packed positions. */
+    public long evaluate(Path file, ResultSink sink) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return evaluate(in, sink);
+        }
+    }
+
+    /** Waits for {@code chunk}'s results and hands them to {@code sink}; returns the chunk for reuse. */
+    private static Chunk deliver(Chunk chunk, ResultSink sink) throws IOException {
+        chunk.task.join();
+        for (int i = 0; i < chunk.count; i++) {
+            sink.accept(chunk.firstIndex + i, chunk.black[i], chunk.white[i], chunk.sides[i], chunk.scores[i],
+                    chunk.moves[i]);
+        }
+        return chunk;
+    }
+
+    /**
+     * Scores position {@code i} of {@code chunk}; runs on a worker thread. Passes, and
+     * when searching forced moves, are played out first: the search answers a position
+     * with one legal move without scoring it.
+     */
+    private void score(Chunk chunk, int i) {
+        int side = chunk.sides[i];
+        long player = side == Zobrist.BLACK ? chunk.black[i] : chunk.white[i];
+        long opponent = side == Zobrist.BLACK ? chunk.white[i] : chunk.black[i];
+        int sign = 1;
+        int firstMove = NOT_YET;
+        while (true) {
+            long legal = Bitboard.legalMoves(player, opponent);
+            if (legal == 0 && Bitboard.legalMoves(opponent, player) == 0) {
+                chunk.scores[i] = sign * ReversiSearch.finalScore(player, opponent);
+                chunk.moves[i] = firstMove == NOT_YET ? -1 : firstMove;
+                return;
+            }
+            if (legal != 0 && (depth == 0 || Long.bitCount(legal) > 1)) {
+                break;
+            }
+            int sq = Long.numberOfTrailingZeros(legal); // 64 for a pass
+            if (firstMove == NOT_YET) {
+                firstMove = legal == 0 || depth == 0 ? -1 : sq;
+            }
+            if (legal != 0) {
+                long flipped = Bitboard.flips(sq, player, opponent);
+                player |= flipped | (1L << sq);
+                opponent &= ~flipped;
+            }
+            long swap = player;
+            player = opponent;
+            opponent = swap;
+            side ^= 1;
+            sign = -sign;
+        }
+        int score;
+        int move = -1;
+        if (depth == 0) {
+            score = evaluator.evaluate(player, opponent, Bitboard.legalMoves(player, opponent));
+        } else {
+            ReversiSearch search = searches.get();
+            search.getTable().clear();
+            move = search.findBestMove(player, opponent, side);
+            score = search.getBestScore();
+        }
+        chunk.scores[i] = sign * score;
+        chunk.moves[i] = firstMove == NOT_YET ? move : firstMove;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /** Writes one packed position. */
+    public static void writePosition(DataOutputStream out, long black, long white, int side) throws IOException {
+        out.writeLong(black);
+        out.writeLong(white);
+        out.writeByte(side);
+    }
+
+    /**
+     * Packs every position of the 8x8 Reversi games in a game log, each game from its
+     * start position to its last; returns the number of positions written.
+     */
+    public static long pack(Path log, Path positions) throws IOException {
+        long written = 0;
+        // The start position and one per move, of which there are at most 60
+        long[] black = new long[Bitboard.SQUARES - 3];
+        long[] white = new long[black.length];
+        int[] sides = new int[black.length];
+        ReversiGame game = new ReversiGame();
+        try (GameRecordReader reader = GameRecordReader.open(log);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(positions)))) {
+            while (reader.next()) {
+                if (reader.getGameType() != GameRecordWriter.GAME_REVERSI) {
+                    continue;
+                }
+                reader.replay(game);
+                // Taking the game back visits its positions last first
+                int count = 0;
+                do {
+                    black[count] = game.getBlackDiscs();
+                    white[count] = game.getWhiteDiscs();
+                    sides[count] = game.getSide();
+                    count++;
+                } while (game.undoMove());
+                for (int i = count - 1; i >= 0; i--) {
+                    writePosition(out, black[i], white[i], sides[i]);
+                }
+                written += count;
+            }
+        }
+        return written;
+    }
+
+    /** Consecutive input positions and their results; reused once its results are delivered. */
+    private static final class Chunk {
+        final byte[] bytes = new byte[CHUNK_POSITIONS * RECORD_BYTES];
+        final long[] black = new long[CHUNK_POSITIONS];
+        final long[] white = new long[CHUNK_POSITIONS];
+        final int[] sides = new int[CHUNK_POSITIONS];
+        final int[] scores = new int[CHUNK_POSITIONS];
+        final int[] moves = new int[CHUNK_POSITIONS];
+        long firstIndex;
+        int count;
+        ForkJoinTask<Void> task;
+
+        /** Reads up to a chunk of positions, the first numbered {@code firstIndex}; false at the end of the input. */
+        boolean read(InputStream in, long firstIndex) throws IOException {
+            int length = in.readNBytes(bytes, 0, bytes.length);
+            if (length % RECORD_BYTES != 0) {
+                throw new IOException("Position " + (firstIndex + length / RECORD_BYTES) + " is cut short");
+            }
+            this.firstIndex = firstIndex;
+            count = length / RECORD_BYTES;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < count; i++) {
+                black[i] = buffer.getLong();
+                white[i] = buffer.getLong();
+                sides[i] = buffer.get();
+                if ((black[i] & white[i]) != 0 || (sides[i] != Zobrist.BLACK && sides[i] != Zobrist.WHITE)) {
+                    throw new IOException("Position " + (firstIndex + i) + " is not a valid position");
+                }
+            }
+            return count > 0;
+        }
+    }
+
+    /** Scores a range of a chunk, halving it while it is longer than one task should take. */
+    private final class Slice extends RecursiveAction {
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+
+        Slice(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            // A static evaluation is too quick to be worth a task of its own
+            if (depth > 0 && to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Slice(chunk, from, middle), new Slice(chunk, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                score(chunk, i);
+            }
+        }
+    }
+
+    private static String moveName(int move, int depth, long black, long white) {
+        if (move >= 0) {
+            return "" + (char) ('a' + move % Bitboard.SIZE) + (char) ('1' + move / Bitboard.SIZE);
+        }
+        // Without a move, a search only passes while the game goes on
+        boolean over = Bitboard.legalMoves(black, white) == 0 && Bitboard.legalMoves(white, black) == 0;
+        return depth == 0 || over ? "-" : "pass";
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--pack")) {
+            long count = pack(Paths.get(args[1]), Paths.get(args[2]));
+            System.err.println("Packed " + count + " positions");
+            return;
+        }
+        if (args.length < 1) {
+            System.err.println("Usage: BatchEvaluator <positions.bin|-> [--depth 6] [--threads N] [--out results.txt]");
+            System.err.println("       BatchEvaluator --pack <games.log> <positions.bin>");
+            System.exit(1);
+        }
+        int depth = 6;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path out = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long begin = System.nanoTime();
+        long count;
+        int searchDepth = depth;
+        try (BatchEvaluator batch = new BatchEvaluator(depth, threads);
+             Writer writer = new BufferedWriter(out == null
+                     ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                     : Files.newBufferedWriter(out), 1 << 16)) {
+            ResultSink sink = (index, black, white, side, score, move) ->
+                    writer.write(index + " " + score + " " + moveName(move, searchDepth, black, white) + "\n");
+            count = args[0].equals("-") ? batch.evaluate(System.in, sink) : batch.evaluate(Paths.get(args[0]), sink);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.err.printf(Locale.ROOT, "Scored %d positions at depth %d on %d threads in %.2f s, %.0f positions/s%n",
+                count, depth, threads, seconds, count / Math.max(seconds, 1e-9));
+    }
+}
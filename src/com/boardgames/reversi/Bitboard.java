@@ -0,0 +1,101 @@
+package com.boardgames.reversi;
+
+/**
+ * Bit-parallel helpers for an 8x8 Reversi board stored as two 64-bit masks.
+ * Square {@code row * 8 + col} maps to bit {@code row * 8 + col}, so bit 0 is the
+ * top-left corner (a1 in the GUI's orientation) and bit 63 the bottom-right.
+ */
+public final class Bitboard {
+
+    public static final int SIZE = 8;
+    public static final int SQUARES = 64;
+
+    /** Every column except the leftmost one. */
+    private static final long NOT_LEFT = 0xfefefefefefefefeL;
+    /** Every column except the rightmost one. */
+    private static final long NOT_RIGHT = 0x7f7f7f7f7f7f7f7fL;
+    /** Inner six columns; used to stop horizontal and diagonal fills wrapping around. */
+    private static final long INNER_COLUMNS = 0x7e7e7e7e7e7e7e7eL;
+
+    public static final long INITIAL_BLACK = square(3, 4) | square(4, 3);
+    public static final long INITIAL_WHITE = square(3, 3) | square(4, 4);
+
+    private Bitboard() {
+    }
+
+    public static long square(int row, int col) {
+        return 1L << (row * SIZE + col);
+    }
+
+    public static int index(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    /**
+     * Returns every empty square where {@code player} may move, computed for all
+     * eight directions at once with a shift-and-fill (Kogge-Stone style) walk.
+     */
+    public static long legalMoves(long player, long opponent) {
+        long inner = opponent & INNER_COLUMNS;
+        long moves = fill(player, inner, 1)
+                | fill(player, opponent, 8)
+                | fill(player, inner, 7)
+                | fill(player, inner, 9);
+        return moves & ~(player | opponent);
+    }
+
+    /** Candidate move squares reached from {@code player} through runs of {@code mask} in both senses of one axis. */
+    private static long fill(long player, long mask, int shift) {
+        long left = mask & (player << shift);
+        left |= mask & (left << shift);
+        left |= mask & (left << shift);
+        left |= mask & (left << shift);
+        left |= mask & (left << shift);
+        left |= mask & (left << shift);
+
+        long right = mask & (player >>> shift);
+        right |= mask & (right >>> shift);
+        right |= mask & (right >>> shift);
+        right |= mask & (right >>> shift);
+        right |= mask & (right >>> shift);
+        right |= mask & (right >>> shift);
+
+        return (left << shift) | (right >>> shift);
+    }
+
+    /**
+     * Returns the opponent discs flipped when {@code player} moves on {@code square}.
+     * A result of zero means the move is illegal (assuming the square is empty).
+     */
+    public static long flips(int square, long player, long opponent) {
+        long move = 1L << square;
+        long flipped = 0;
+        for (int dir = 0; dir < 8; dir++) {
+            long run = 0;
+            long cursor = shift(move, dir);
+            while ((cursor & opponent) != 0) {
+                run |= cursor;
+                cursor = shift(cursor, dir);
+            }
+            if ((cursor & player) != 0) {
+                flipped |= run;
+            }
+        }
+        return flipped;
+    }
+
+    /** Shifts every bit one step in {@code dir}: 0..7 = N, NE, E, SE, S, SW, W, NW. */
+    static long shift(long bits, int dir) {
+        switch (dir) {
+            case 0: return bits >>> 8;
+            case 1: return (bits >>> 7) & NOT_LEFT;
+            case 2: return (bits << 1) & NOT_LEFT;
+            case 3: return (bits << 9) & NOT_LEFT;
+            case 4: return bits << 8;
+            case 5: return (bits << 7) & NOT_RIGHT;
+            case 6: return (bits >>> 1) & NOT_RIGHT;
+            case 7: return (bits >>> 9) & NOT_RIGHT;
+            default: throw new IllegalArgumentException("Unknown direction: " + dir);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.boardgames.reversi;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only opening book backed by a memory-mapped file, so opening it costs no load
+ * time and every JVM that opens the same file shares its pages.
+ *
+ * <p>File layout (little-endian): a 16-byte header of magic {@code "RVBK"}, a 2-byte
+ * version, 2 reserved bytes and the 8-byte entry count, then fixed-size 16-byte entries
+ * sorted by key. Each entry holds the {@link Symmetry#canonicalHash canonical hash} of a
+ * position (8 bytes), the search score (2), the best move in canonical orientation (1),
+ * the search depth (1) and how often the position was seen while building (4).
+ */
+public final class OpeningBook {
+
+    static final int MAGIC = 0x4b425652; // "RVBK" read little-endian
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final long entries;
+
+    private OpeningBook(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an opening book file");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported opening book version: " + buffer.getShort(4));
+        }
+        entries = buffer.getLong(8);
+        if (HEADER_BYTES + entries * ENTRY_BYTES != buffer.capacity()) {
+            throw new IOException("Truncated opening book: expected " + entries + " entries");
+        }
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the book move ({@code row * 8 + col}) for the position, or -1 if the
+     * position is not in the book.
+     */
+    public int lookup(long black, long white, int side) {
+        int symmetry = Symmetry.canonical(black, white, side);
+        long key = Zobrist.hash(Symmetry.transform(black, symmetry), Symmetry.transform(white, symmetry), side);
+        int offset = find(key);
+        if (offset < 0) {
+            return -1;
+        }
+        int move = Symmetry.transformSquare(buffer.get(offset + 10), Symmetry.inverse(symmetry));
+        long player = side == Zobrist.BLACK ? black : white;
+        long opponent = side == Zobrist.BLACK ? white : black;
+        // A hash collision must never produce an illegal move
+        return (Bitboard.legalMoves(player, opponent) & (1L << move)) != 0 ? move : -1;
+    }
+
+    /** Binary search for {@code key}; returns the entry's byte offset or -1. */
+    private int find(long key) {
+        long low = 0;
+        long high = entries - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int offset = (int) (HEADER_BYTES + mid * ENTRY_BYTES);
+            int cmp = Long.compareUnsigned(buffer.getLong(offset), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    public long size() {
+        return entries;
+    }
+}
@@ -0,0 +1,258 @@
+package com.boardgames.reversi;
+
+import com.boardgames.record.ReversiImport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds {@link OpeningBook} files from self-play and from imported game lists.
+ * Positions are merged across the eight board symmetries. For each position the book
+ * keeps the move found by self-play search if there is one, otherwise the move played
+ * most often in the imported games.
+ *
+ * <pre>java -cp bin com.boardgames.reversi.OpeningBookBuilder out.book
+ *     [--plies 16] [--selfplay 200] [--depth 10] [--random 6] [--seed 1] [--import games.txt]</pre>
+ *
+ * Imported files are WTHOR ({@code .wtb}) or GGF ({@code .ggf}) archives, or text files
+ * with one game per line in the usual notation, e.g. {@code f5d6c3d3c4}.
+ */
+public class OpeningBookBuilder {
+
+    private static final class Position {
+        final int[] moveCounts = new int[Bitboard.SQUARES];
+        int seen;
+        int searchMove = -1;
+        int searchScore;
+        int searchDepth;
+    }
+
+    private final Map<Long, Position> positions = new HashMap<>();
+    private final int maxPlies;
+
+    public OpeningBookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Adds the first plies of a game, given as square indices ({@code row * 8 + col}).
+     *
+     * @throws IllegalArgumentException if the game contains an illegal move.
+     */
+    public void addGame(int[] moves, int count) {
+        ReversiGame game = new ReversiGame();
+        for (int ply = 0; ply < count && ply < maxPlies; ply++) {
+            int move = moves[ply];
+            if (!game.isValidMove(move / Bitboard.SIZE, move % Bitboard.SIZE)) {
+                throw new IllegalArgumentException("Illegal move " + toNotation(move) + " at ply " + (ply + 1));
+            }
+            position(game, move).seen++;
+            game.makeMove(move / Bitboard.SIZE, move % Bitboard.SIZE);
+        }
+    }
+
+    /**
+     * Plays {@code games} self-play games: the first {@code randomPlies} moves are random
+     * to spread the games out, after that both sides play the search move. Every position
+     * within the book's ply limit is searched to {@code depth}.
+     */
+    public void addSelfPlay(int games, int depth, int randomPlies, long seed) {
+        Random random = new Random(seed);
+        ReversiSearch search = new ReversiSearch();
+        search.setMaxDepth(depth);
+        search.setTimeLimit(Long.MAX_VALUE);
+        for (int g = 0; g < games; g++) {
+            ReversiGame game = new ReversiGame();
+            for (int ply = 0; ply < maxPlies && game.getGameState() == ReversiGame.GameState.PLAYING; ply++) {
+                int best = search.findBestMove(game.getPlayerDiscs(), game.getOpponentDiscs(), game.getSide());
+                int move = best;
+                if (ply < randomPlies) {
+                    long legal = game.getLegalMoves();
+                    for (int skip = random.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+                        legal &= legal - 1;
+                    }
+                    move = Long.numberOfTrailingZeros(legal);
+                }
+
+                // The move counts follow the move played; the search result is kept apart
+                Position position = position(game, move);
+                if (search.getDepthReached() >= position.searchDepth) {
+                    int symmetry = Symmetry.canonical(game.getBlackDiscs(), game.getWhiteDiscs(), game.getSide());
+                    position.searchMove = Symmetry.transformSquare(best, symmetry);
+                    position.searchScore = search.getBestScore();
+                    position.searchDepth = search.getDepthReached();
+                }
+                position.seen++;
+                game.makeMove(move / Bitboard.SIZE, move % Bitboard.SIZE);
+            }
+        }
+    }
+
+    /** Returns the entry for the game's position and counts {@code move} as played there. */
+    private Position position(ReversiGame game, int move) {
+        int symmetry = Symmetry.canonical(game.getBlackDiscs(), game.getWhiteDiscs(), game.getSide());
+        long key = Zobrist.hash(Symmetry.transform(game.getBlackDiscs(), symmetry),
+                Symmetry.transform(game.getWhiteDiscs(), symmetry), game.getSide());
+        Position position = positions.computeIfAbsent(key, k -> new Position());
+        position.moveCounts[Symmetry.transformSquare(move, symmetry)]++;
+        return position;
+    }
+
+    public void write(Path path) throws IOException {
+        long[] keys = new long[positions.size()];
+        int n = 0;
+        for (long key : positions.keySet()) {
+            keys[n++] = key;
+        }
+        sortUnsigned(keys);
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(OpeningBook.MAGIC).putShort(OpeningBook.VERSION).putShort((short) 0).putLong(keys.length);
+            for (long key : keys) {
+                if (buffer.remaining() < OpeningBook.ENTRY_BYTES) {
+                    drain(buffer, channel);
+                }
+                Position position = positions.get(key);
+                int move = position.searchMove;
+                int score = position.searchScore;
+                if (move < 0) {
+                    move = 0;
+                    for (int sq = 1; sq < Bitboard.SQUARES; sq++) {
+                        if (position.moveCounts[sq] > position.moveCounts[move]) {
+                            move = sq;
+                        }
+                    }
+                    score = 0;
+                }
+                buffer.putLong(key)
+                        .putShort((short) score)
+                        .put((byte) move)
+                        .put((byte) position.searchDepth)
+                        .putInt(position.seen);
+            }
+            drain(buffer, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void sortUnsigned(long[] keys) {
+        // Flipping the sign bit turns unsigned order into signed order
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] ^= Long.MIN_VALUE;
+        }
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /** Parses a move list such as {@code f5d6c3} into square indices; returns the move count. */
+    public static int parseMoves(String line, int[] moves) {
+        int count = 0;
+        for (int i = 0; i + 1 < line.length() && count < moves.length; i += 2) {
+            int col = Character.toLowerCase(line.charAt(i)) - 'a';
+            int row = line.charAt(i + 1) - '1';
+            if (col < 0 || col >= Bitboard.SIZE || row < 0 || row >= Bitboard.SIZE) {
+                throw new IllegalArgumentException("Bad move '" + line.substring(i, i + 2) + "' in: " + line);
+            }
+            moves[count++] = Bitboard.index(row, col);
+        }
+        return count;
+    }
+
+    static String toNotation(int square) {
+        return "" + (char) ('a' + square % Bitboard.SIZE) + (char) ('1' + square / Bitboard.SIZE);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: OpeningBookBuilder <out.book> [--plies N] [--selfplay GAMES] "
+                    + "[--depth D] [--random PLIES] [--seed S] [--import FILE]...");
+            System.exit(1);
+        }
+        Path out = Paths.get(args[0]);
+        int plies = 16;
+        int selfPlay = 0;
+        int depth = 10;
+        int randomPlies = 6;
+        long seed = 1;
+        List<Path> imports = new ArrayList<>();
+        for (int i = 1; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--plies": plies = Integer.parseInt(value); break;
+                case "--selfplay": selfPlay = Integer.parseInt(value); break;
+                case "--depth": depth = Integer.parseInt(value); break;
+                case "--random": randomPlies = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--import": imports.add(Paths.get(value)); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        int[] moves = new int[Bitboard.SQUARES];
+        List<Path> archives = new ArrayList<>();
+        for (Path file : imports) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".wtb") || name.endsWith(".ggf")) {
+                archives.add(file);
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        builder.addGame(moves, parseMoves(line, moves));
+                    }
+                }
+            }
+        }
+        if (!archives.isEmpty()) {
+            int[] gameMoves = new int[Bitboard.SQUARES];
+            ReversiImport.Counts counts = ReversiImport.importFiles(archives, (game, margin) -> {
+                synchronized (builder) {
+                    for (int i = 0; i < game.getMoveCount(); i++) {
+                        gameMoves[i] = game.getMove(i);
+                    }
+                    builder.addGame(gameMoves, game.getMoveCount());
+                }
+            }, Runtime.getRuntime().availableProcessors());
+            System.out.println("Imported " + counts.getGames() + " games, rejected " + counts.getRejected());
+        }
+        if (selfPlay > 0) {
+            builder.addSelfPlay(selfPlay, depth, randomPlies, seed);
+        }
+        builder.write(out);
+        System.out.println("Wrote " + builder.size() + " positions to " + out);
+    }
+}
@@ -0,0 +1,369 @@
+package com.boardgames.reversi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Table-driven evaluation: the board is cut into edge, corner, line and diagonal
+ * patterns, each pattern's contents are read as a base-3 code (empty, own, opponent;
+ * first square least significant) and that code indexes a weight table. There is one set of tables per game phase,
+ * plus a per-phase mobility weight. All symmetric copies of a pattern share one table.
+ *
+ * <p>Weights are in {@link ReversiSearch#DISC} units and are trained offline by
+ * {@link PatternTrainer}. Without a weights file the tables are seeded from a static
+ * square-value table so the evaluator is usable out of the box.
+ *
+ * <p>Weights file layout (little-endian): magic {@code "RVPW"}, version (2 bytes),
+ * phase count (2), table size per phase (4), then for each phase the mobility weight
+ * followed by the table, all as 16-bit values.
+ */
+public final class PatternEvaluator {
+
+    /** System property naming the weights file; defaults to {@code reversi.weights} in the working directory. */
+    public static final String WEIGHTS_PROPERTY = "reversi.weights";
+
+    public static final int PHASES = 10;
+
+    /**
+     * Largest magnitude {@link #evaluate} returns: below {@link ReversiSearch#WIN_BONUS}, so
+     * no heuristic score passes for a proven result, and within the 16 bits the
+     * transposition table keeps.
+     */
+    public static final int MAX_SCORE = ReversiSearch.WIN_BONUS - 1;
+
+    static final int MAGIC = 0x57505652; // "RVPW" read little-endian
+    static final short VERSION = 1;
+
+    /** Base orientation of every pattern, as (row, col) pairs. */
+    private static final int[][][] PATTERNS = {
+            {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {0, 5}, {0, 6}, {0, 7}, {1, 1}, {1, 6}}, // edge + X squares
+            {{0, 0}, {0, 1}, {0, 2}, {1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}},         // 3x3 corner
+            {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {1, 0}, {1, 1}, {1, 2}, {1, 3}, {1, 4}}, // 2x5 corner
+            line(1, 0, 0, 1, 8),
+            line(2, 0, 0, 1, 8),
+            line(3, 0, 0, 1, 8),
+            line(0, 0, 1, 1, 8),
+            line(0, 1, 1, 1, 7),
+            line(0, 2, 1, 1, 6),
+            line(0, 3, 1, 1, 5),
+            line(0, 4, 1, 1, 4),
+    };
+
+    private static final int[] SQUARE_VALUES = {
+            100, -20, 10, 5, 5, 10, -20, 100,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+            10, -2, -1, -1, -1, -1, -2, 10,
+            5, -2, -1, -1, -1, -1, -2, 5,
+            5, -2, -1, -1, -1, -1, -2, 5,
+            10, -2, -1, -1, -1, -1, -2, 10,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+            100, -20, 10, 5, 5, 10, -20, 100
+    };
+
+    /** Squares of main-parallel diagonal {@code (i, i + c)}, indexed by c. */
+    private static final long[] DIAGONALS = new long[5];
+    /** Maps a bit set of up to 10 squares to base 3 by reading it as a base-3 number. */
+    private static final int[] TERNARY = new int[1 << 10];
+
+    /** Squares of every pattern instance, concatenated, in code-digit order. */
+    static final int[] SQUARES;
+    /** Instance i covers SQUARES[INSTANCE_START[i]] up to SQUARES[INSTANCE_START[i + 1]]. */
+    static final int[] INSTANCE_START;
+    /** Offset of instance i's table inside a phase's weights. */
+    static final int[] INSTANCE_OFFSET;
+    /** Index into PATTERNS of instance i. */
+    private static final int[] INSTANCE_PATTERN;
+    /**
+     * Instances grouped by the symmetry that maps the board onto their pattern's base
+     * orientation, so each transformed board is computed once per evaluation.
+     */
+    private static final int[][] BOARD_INSTANCES;
+    /** Weights per phase: one slot for mobility, then the pattern tables. */
+    public static final int PHASE_SIZE;
+    public static final int INSTANCES;
+
+    static {
+        for (int c = 0; c < DIAGONALS.length; c++) {
+            for (int i = 0; i + c < Bitboard.SIZE; i++) {
+                DIAGONALS[c] |= Bitboard.square(i, i + c);
+            }
+        }
+        for (int bits = 0; bits < TERNARY.length; bits++) {
+            int value = 0;
+            for (int k = 9; k >= 0; k--) {
+                value = value * 3 + ((bits >>> k) & 1);
+            }
+            TERNARY[bits] = value;
+        }
+
+        int maxInstances = Symmetry.COUNT * PATTERNS.length;
+        int[] squares = new int[Bitboard.SQUARES * maxInstances];
+        int[] starts = new int[maxInstances + 1];
+        int[] offsets = new int[maxInstances];
+        int[] patterns = new int[maxInstances];
+        int[] boards = new int[maxInstances];
+        int squareCount = 0;
+        int instances = 0;
+        int tableOffset = 1; // slot 0 is the mobility weight
+        for (int p = 0; p < PATTERNS.length; p++) {
+            int[][] pattern = PATTERNS[p];
+            long[] seen = new long[Symmetry.COUNT];
+            int seenCount = 0;
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                long set = 0;
+                for (int[] cell : pattern) {
+                    set |= 1L << Symmetry.transformSquare(Bitboard.index(cell[0], cell[1]), s);
+                }
+                boolean duplicate = false;
+                for (int i = 0; i < seenCount; i++) {
+                    duplicate |= seen[i] == set;
+                }
+                if (duplicate) {
+                    continue;
+                }
+                seen[seenCount++] = set;
+                starts[instances] = squareCount;
+                offsets[instances] = tableOffset;
+                patterns[instances] = p;
+                boards[instances] = Symmetry.inverse(s);
+                for (int[] cell : pattern) {
+                    squares[squareCount++] = Symmetry.transformSquare(Bitboard.index(cell[0], cell[1]), s);
+                }
+                instances++;
+            }
+            tableOffset += pow3(pattern.length);
+        }
+        starts[instances] = squareCount;
+        SQUARES = Arrays.copyOf(squares, squareCount);
+        INSTANCE_START = Arrays.copyOf(starts, instances + 1);
+        INSTANCE_OFFSET = Arrays.copyOf(offsets, instances);
+        INSTANCE_PATTERN = Arrays.copyOf(patterns, instances);
+        BOARD_INSTANCES = new int[Symmetry.COUNT][];
+        for (int t = 0; t < Symmetry.COUNT; t++) {
+            int count = 0;
+            int[] group = new int[instances];
+            for (int i = 0; i < instances; i++) {
+                if (boards[i] == t) {
+                    group[count++] = i;
+                }
+            }
+            BOARD_INSTANCES[t] = Arrays.copyOf(group, count);
+        }
+        INSTANCES = instances;
+        PHASE_SIZE = tableOffset;
+    }
+
+    private static PatternEvaluator defaultEvaluator;
+
+    private final short[][] weights;
+
+    private PatternEvaluator(short[][] weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Returns the shared evaluator: the weights file named by {@link #WEIGHTS_PROPERTY} if
+     * it exists and loads, otherwise the untrained defaults.
+     */
+    public static synchronized PatternEvaluator getDefault() {
+        if (defaultEvaluator == null) {
+            Path path = Paths.get(System.getProperty(WEIGHTS_PROPERTY, "reversi.weights"));
+            if (Files.isRegularFile(path)) {
+                try {
+                    defaultEvaluator = load(path);
+                } catch (IOException e) {
+                    System.err.println("Ignoring pattern weights " + path + ": " + e.getMessage());
+                }
+            }
+            if (defaultEvaluator == null) {
+                defaultEvaluator = untrained();
+            }
+        }
+        return defaultEvaluator;
+    }
+
+    /** Tables seeded from the static square values and a fixed mobility weight. */
+    public static PatternEvaluator untrained() {
+        // Spread each square's value over the instances that cover it
+        int[] coverage = new int[Bitboard.SQUARES];
+        for (int sq : SQUARES) {
+            coverage[sq]++;
+        }
+        short[] table = new short[PHASE_SIZE];
+        table[0] = 10;
+        for (int i = 0; i < INSTANCES; i++) {
+            int start = INSTANCE_START[i];
+            int length = INSTANCE_START[i + 1] - start;
+            int offset = INSTANCE_OFFSET[i];
+            for (int code = 0; code < pow3(length); code++) {
+                double value = 0;
+                int rest = code;
+                for (int k = 0; k < length; k++) {
+                    int cell = rest % 3;
+                    rest /= 3;
+                    int sq = SQUARES[start + k];
+                    if (cell != 0) {
+                        value += (cell == 1 ? 1.0 : -1.0) * SQUARE_VALUES[sq] / coverage[sq];
+                    }
+                }
+                table[offset + code] = (short) Math.round(value);
+            }
+        }
+        short[][] weights = new short[PHASES][];
+        for (int phase = 0; phase < PHASES; phase++) {
+            weights[phase] = table.clone();
+        }
+        return new PatternEvaluator(weights);
+    }
+
+    /** Wraps trained weights; {@code weights[phase]} must have {@link #PHASE_SIZE} entries. */
+    public static PatternEvaluator of(short[][] weights) {
+        if (weights.length != PHASES) {
+            throw new IllegalArgumentException("Expected " + PHASES + " phases, got " + weights.length);
+        }
+        for (short[] phase : weights) {
+            if (phase.length != PHASE_SIZE) {
+                throw new IllegalArgumentException("Expected " + PHASE_SIZE + " weights per phase");
+            }
+        }
+        return new PatternEvaluator(weights);
+    }
+
+    /**
+     * Scores the position for the side to move, clamped to {@link #MAX_SCORE} either way.
+     *
+     * @param playerMoves the legal moves of {@code player}, which the caller usually has already.
+     */
+    public int evaluate(long player, long opponent, long playerMoves) {
+        short[] table = weights[phase(player, opponent)];
+        int mobility = Long.bitCount(playerMoves) - Long.bitCount(Bitboard.legalMoves(opponent, player));
+        int score = table[0] * mobility;
+        for (int t = 0; t < Symmetry.COUNT; t++) {
+            long own = Symmetry.transform(player, t);
+            long other = Symmetry.transform(opponent, t);
+            for (int i : BOARD_INSTANCES[t]) {
+                int pattern = INSTANCE_PATTERN[i];
+                score += table[INSTANCE_OFFSET[i] + TERNARY[gather(pattern, own)] + 2 * TERNARY[gather(pattern, other)]];
+            }
+        }
+        return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    }
+
+    /**
+     * Collects the squares of pattern {@code pattern}'s base orientation from {@code bits}
+     * into the low bits of the result, first square in bit 0.
+     */
+    private static int gather(int pattern, long bits) {
+        switch (pattern) {
+            case 0:
+                return (int) ((bits & 0xff) | ((bits >>> 1) & 0x100) | ((bits >>> 5) & 0x200));
+            case 1:
+                return (int) ((bits & 0x7) | ((bits >>> 5) & 0x38) | ((bits >>> 10) & 0x1c0));
+            case 2:
+                return (int) ((bits & 0x1f) | ((bits >>> 3) & 0x3e0));
+            case 3:
+                return (int) (bits >>> 8) & 0xff;
+            case 4:
+                return (int) (bits >>> 16) & 0xff;
+            case 5:
+                return (int) (bits >>> 24) & 0xff;
+            default: {
+                // Multiplying by 0x0101...01 stacks the diagonal's squares into the top byte
+                int c = pattern - 6;
+                return (int) (((bits & DIAGONALS[c]) * 0x0101010101010101L) >>> (56 + c));
+            }
+        }
+    }
+
+    short[][] weights() {
+        return weights;
+    }
+
+    /** Game phase from the number of discs on the board. */
+    public static int phase(long player, long opponent) {
+        return (Long.bitCount(player | opponent) - 4) * PHASES / 61;
+    }
+
+    /**
+     * Writes the weight-table index of every pattern instance into {@code indices};
+     * used by the trainer to turn positions into features.
+     */
+    static void patternIndices(long player, long opponent, int[] indices) {
+        for (int t = 0; t < Symmetry.COUNT; t++) {
+            long own = Symmetry.transform(player, t);
+            long other = Symmetry.transform(opponent, t);
+            for (int i : BOARD_INSTANCES[t]) {
+                int pattern = INSTANCE_PATTERN[i];
+                indices[i] = INSTANCE_OFFSET[i] + TERNARY[gather(pattern, own)] + 2 * TERNARY[gather(pattern, other)];
+            }
+        }
+    }
+
+    public static PatternEvaluator load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the file is in memory
+            }
+            buffer.flip();
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a pattern weights file");
+            }
+            short version = buffer.getShort();
+            int phases = buffer.getShort();
+            int phaseSize = buffer.getInt();
+            if (version != VERSION || phases != PHASES || phaseSize != PHASE_SIZE) {
+                throw new IOException("Incompatible pattern weights: version " + version
+                        + ", " + phases + " phases of " + phaseSize);
+            }
+            if (buffer.remaining() != PHASES * PHASE_SIZE * 2) {
+                throw new IOException("Truncated pattern weights file");
+            }
+            short[][] weights = new short[PHASES][PHASE_SIZE];
+            for (short[] phase : weights) {
+                buffer.asShortBuffer().get(phase);
+                buffer.position(buffer.position() + PHASE_SIZE * 2);
+            }
+            return new PatternEvaluator(weights);
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + PHASES * PHASE_SIZE * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) PHASES).putInt(PHASE_SIZE);
+        for (short[] phase : weights) {
+            buffer.asShortBuffer().put(phase);
+            buffer.position(buffer.position() + PHASE_SIZE * 2);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static int[][] line(int row, int col, int dRow, int dCol, int length) {
+        int[][] cells = new int[length][];
+        for (int i = 0; i < length; i++) {
+            cells[i] = new int[]{row + i * dRow, col + i * dCol};
+        }
+        return cells;
+    }
+
+    static int pow3(int n) {
+        int result = 1;
+        for (int i = 0; i < n; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+}
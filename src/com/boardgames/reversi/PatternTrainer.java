@@ -0,0 +1,283 @@
+package com.boardgames.reversi;
+
+import com.boardgames.record.ReversiImport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fits {@link PatternEvaluator} weights to game results by least-squares gradient descent.
+ * Every training position is reduced once to its pattern indices and mobility, and each
+ * epoch splits the positions across threads that accumulate their gradients privately
+ * before they are summed. Each weight's step is divided by how often it occurs, so rare
+ * pattern codes are not drowned out by common ones.
+ *
+ * <pre>java -cp bin com.boardgames.reversi.PatternTrainer out.weights
+ *     [--games 500] [--depth 4] [--random 8] [--epochs 100] [--rate 0.05] [--threads N] [--seed 1]
+ *     [--import archive.wtb]...</pre>
+ *
+ * Imported WTHOR or GGF archives add expert games on top of (or, with {@code --games 0},
+ * instead of) the self-play games.
+ */
+public class PatternTrainer {
+
+    private static final int WEIGHTS = PatternEvaluator.PHASES * PatternEvaluator.PHASE_SIZE;
+
+    private int[] features = new int[1024 * PatternEvaluator.INSTANCES];
+    private byte[] mobility = new byte[1024];
+    private short[] targets = new short[1024];
+    private int samples;
+
+    /**
+     * Adds a training position with the final disc differential the side to move
+     * ({@code player}) eventually got.
+     */
+    public synchronized void addPosition(long player, long opponent, int finalDiscDiff) {
+        if (samples == targets.length) {
+            features = Arrays.copyOf(features, features.length * 2);
+            mobility = Arrays.copyOf(mobility, mobility.length * 2);
+            targets = Arrays.copyOf(targets, targets.length * 2);
+        }
+        int[] indices = new int[PatternEvaluator.INSTANCES];
+        PatternEvaluator.patternIndices(player, opponent, indices);
+        int base = PatternEvaluator.phase(player, opponent) * PatternEvaluator.PHASE_SIZE;
+        for (int i = 0; i < indices.length; i++) {
+            features[samples * PatternEvaluator.INSTANCES + i] = base + indices[i];
+        }
+        mobility[samples] = (byte) (Long.bitCount(Bitboard.legalMoves(player, opponent))
+                - Long.bitCount(Bitboard.legalMoves(opponent, player)));
+        targets[samples] = (short) (finalDiscDiff * ReversiSearch.DISC);
+        samples++;
+    }
+
+    /**
+     * Adds every position of a finished game, each scored with Black's final disc margin
+     * from the point of view of the side to move. Takes the game back move by move, so
+     * {@code game} ends up at the start position.
+     */
+    public void addGame(ReversiGame game, int blackMargin) {
+        while (game.undoMove()) {
+            addPosition(game.getPlayerDiscs(), game.getOpponentDiscs(),
+                    game.getSide() == Zobrist.BLACK ? blackMargin : -blackMargin);
+        }
+    }
+
+    /**
+     * Plays self-play games on {@code threads} threads and adds every position in them.
+     * The first {@code randomPlies} moves of each game are random, the rest are searched
+     * to {@code depth} with the given evaluator.
+     */
+    public void generateSelfPlay(int games, int depth, int randomPlies, long seed, int threads,
+                                 PatternEvaluator evaluator) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                running.add(pool.submit(() -> {
+                    ReversiSearch search = new ReversiSearch(4);
+                    search.setEvaluator(evaluator);
+                    search.setMaxDepth(depth);
+                    search.setEndgameEmpties(Math.min(depth + 4, 12));
+                    search.setTimeLimit(Long.MAX_VALUE);
+                    long[] players = new long[Bitboard.SQUARES];
+                    long[] opponents = new long[Bitboard.SQUARES];
+                    int[] sides = new int[Bitboard.SQUARES];
+                    for (int g = first; g < games; g += threads) {
+                        playGame(search, new Random(seed + g), randomPlies, players, opponents, sides);
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Self-play failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void playGame(ReversiSearch search, Random random, int randomPlies,
+                          long[] players, long[] opponents, int[] sides) {
+        ReversiGame game = new ReversiGame();
+        int plies = 0;
+        while (game.getGameState() == ReversiGame.GameState.PLAYING) {
+            players[plies] = game.getPlayerDiscs();
+            opponents[plies] = game.getOpponentDiscs();
+            sides[plies] = game.getSide();
+            int move;
+            if (plies < randomPlies) {
+                long legal = game.getLegalMoves();
+                for (int skip = random.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+                    legal &= legal - 1;
+                }
+                move = Long.numberOfTrailingZeros(legal);
+            } else {
+                move = search.findBestMove(game.getPlayerDiscs(), game.getOpponentDiscs(), game.getSide());
+            }
+            game.makeMove(move / Bitboard.SIZE, move % Bitboard.SIZE);
+            plies++;
+        }
+        int blackDiff = ReversiEndgameSolver.finalDiff(game.getBlackDiscs(), game.getWhiteDiscs());
+        for (int i = 0; i < plies; i++) {
+            addPosition(players[i], opponents[i], sides[i] == Zobrist.BLACK ? blackDiff : -blackDiff);
+        }
+    }
+
+    /**
+     * Runs {@code epochs} rounds of full-batch gradient descent starting from
+     * {@code initial} and returns the fitted evaluator.
+     */
+    public PatternEvaluator train(PatternEvaluator initial, int epochs, double rate, int threads)
+            throws InterruptedException {
+        int instances = PatternEvaluator.INSTANCES;
+        int phaseSize = PatternEvaluator.PHASE_SIZE;
+        float[] weights = initialWeights(initial);
+
+        // Sum of squared feature values per weight, used to scale each weight's step
+        float[] norm = new float[WEIGHTS];
+        for (int s = 0; s < samples; s++) {
+            for (int i = 0; i < instances; i++) {
+                norm[features[s * instances + i]]++;
+            }
+            int phaseBase = features[s * instances] / phaseSize * phaseSize;
+            norm[phaseBase] += mobility[s] * mobility[s];
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        float[][] gradients = new float[threads][WEIGHTS];
+        double[] errors = new double[threads];
+        try {
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                List<Future<?>> running = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int shard = t;
+                    running.add(pool.submit(() -> {
+                        float[] gradient = gradients[shard];
+                        Arrays.fill(gradient, 0f);
+                        double squaredError = 0;
+                        for (int s = shard; s < samples; s += threads) {
+                            int offset = s * instances;
+                            int phaseBase = features[offset] / phaseSize * phaseSize;
+                            float prediction = weights[phaseBase] * mobility[s];
+                            for (int i = 0; i < instances; i++) {
+                                prediction += weights[features[offset + i]];
+                            }
+                            float error = targets[s] - prediction;
+                            squaredError += (double) error * error;
+                            gradient[phaseBase] += error * mobility[s];
+                            for (int i = 0; i < instances; i++) {
+                                gradient[features[offset + i]] += error;
+                            }
+                        }
+                        errors[shard] = squaredError;
+                    }));
+                }
+                for (Future<?> future : running) {
+                    future.get();
+                }
+                double squaredError = 0;
+                for (int t = 0; t < threads; t++) {
+                    squaredError += errors[t];
+                }
+                for (int w = 0; w < WEIGHTS; w++) {
+                    if (norm[w] == 0) {
+                        continue;
+                    }
+                    float sum = 0;
+                    for (int t = 0; t < threads; t++) {
+                        sum += gradients[t][w];
+                    }
+                    weights[w] += (float) (rate * sum / norm[w]);
+                }
+                System.out.printf("epoch %d: rms error %.2f discs%n", epoch + 1,
+                        Math.sqrt(squaredError / Math.max(1, samples)) / ReversiSearch.DISC);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Training failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        short[][] trained = new short[PatternEvaluator.PHASES][phaseSize];
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+            for (int i = 0; i < phaseSize; i++) {
+                float value = Math.round(weights[phase * phaseSize + i]);
+                trained[phase][i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            }
+        }
+        return PatternEvaluator.of(trained);
+    }
+
+    /** Copies an evaluator's tables into one flat array indexed like the features. */
+    private static float[] initialWeights(PatternEvaluator initial) {
+        float[] weights = new float[WEIGHTS];
+        short[][] tables = initial.weights();
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+            for (int i = 0; i < PatternEvaluator.PHASE_SIZE; i++) {
+                weights[phase * PatternEvaluator.PHASE_SIZE + i] = tables[phase][i];
+            }
+        }
+        return weights;
+    }
+
+    public int size() {
+        return samples;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: PatternTrainer <out.weights> [--games N] [--depth D] [--random PLIES] "
+                    + "[--epochs E] [--rate R] [--threads T] [--seed S] [--import FILE]...");
+            System.exit(1);
+        }
+        int games = 500;
+        int depth = 4;
+        int randomPlies = 8;
+        int epochs = 100;
+        double rate = 0.05;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        List<Path> imports = new ArrayList<>();
+        for (int i = 1; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(value); break;
+                case "--depth": depth = Integer.parseInt(value); break;
+                case "--random": randomPlies = Integer.parseInt(value); break;
+                case "--epochs": epochs = Integer.parseInt(value); break;
+                case "--rate": rate = Double.parseDouble(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--import": imports.add(Paths.get(value)); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        PatternEvaluator start = PatternEvaluator.getDefault();
+        PatternTrainer trainer = new PatternTrainer();
+        long begin = System.nanoTime();
+        if (!imports.isEmpty()) {
+            ReversiImport.Counts counts = ReversiImport.importFiles(ReversiImport.archives(imports), trainer::addGame, threads);
+            System.out.printf("Imported %d positions from %d games in %.1f s%n",
+                    counts.getMoves(), counts.getGames(), (System.nanoTime() - begin) / 1e9);
+        }
+        if (games > 0) {
+            trainer.generateSelfPlay(games, depth, randomPlies, seed, threads, start);
+        }
+        System.out.printf("Collected %d positions in %.1f s%n", trainer.size(), (System.nanoTime() - begin) / 1e9);
+        PatternEvaluator trained = trainer.train(start, epochs, rate, threads);
+        trained.save(Paths.get(args[0]));
+        System.out.println("Wrote " + args[0]);
+    }
+}
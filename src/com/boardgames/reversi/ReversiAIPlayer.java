@@ -1,69 +1,249 @@
 package com.boardgames.reversi;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import com.boardgames.common.MctsEngine;
+import com.boardgames.common.MoveFuture;
+import com.boardgames.metrics.EngineMetrics;
+import com.boardgames.metrics.EngineMetrics.MoveSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
 
 public class ReversiAIPlayer {
 
+    /** Search algorithm behind {@link #findBestMove}. */
+    public enum Engine {
+        ALPHA_BETA,
+        MCTS
+    }
+
+    /** Thinking time used when the caller does not pass one. */
+    public static final long DEFAULT_THINK_TIME_MILLIS = 500;
+
+    /** System property naming the opening book file; defaults to {@code reversi.book} in the working directory. */
+    public static final String BOOK_PROPERTY = "reversi.book";
+
+    private static final EngineMetrics metrics = EngineMetrics.forEngine("reversi");
+    private static final ReversiSearch search = new ReversiSearch();
+    private static final ReversiPonderer ponderer = new ReversiPonderer(search);
+    private static final ExecutorService aiThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reversi-ai");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static boolean pondering = true;
+    private static MctsEngine mcts;
+    private static WideSearch wideSearch;
+    private static Engine engine = Engine.ALPHA_BETA;
+    private static int threads = Runtime.getRuntime().availableProcessors();
+    private static OpeningBook book;
+
+    static {
+        search.setThreads(threads);
+        Path bookPath = Paths.get(System.getProperty(BOOK_PROPERTY, "reversi.book"));
+        if (Files.isRegularFile(bookPath)) {
+            try {
+                book = OpeningBook.open(bookPath);
+            } catch (IOException e) {
+                System.err.println("Ignoring opening book " + bookPath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Replaces the opening book consulted before searching; {@code null} disables it. */
+    public static synchronized void setOpeningBook(OpeningBook openingBook) {
+        book = openingBook;
+    }
+
+    /** Sets how many threads the AI searches with; defaults to one per available processor. */
+    public static synchronized void setThreads(int threads) {
+        ponderer.cancel();
+        search.setThreads(threads);
+        if (mcts != null) {
+            mcts.setThreads(threads);
+        }
+        ReversiAIPlayer.threads = threads;
+    }
+
+    /** Chooses between alpha-beta search (the default) and Monte Carlo tree search. */
+    public static synchronized void setEngine(Engine choice) {
+        ponderer.cancel();
+        engine = choice;
+        if (engine == Engine.MCTS && mcts == null) {
+            mcts = new MctsEngine(ReversiMctsRules.INSTANCE);
+            mcts.setThreads(threads);
+        }
+    }
+
+    /** Turns thinking on the opponent's time on (the default) or off. */
+    public static synchronized void setPondering(boolean enabled) {
+        pondering = enabled;
+        if (!enabled) {
+            ponderer.cancel();
+        }
+    }
+
+    /**
+     * Starts thinking about the AI's next move while the opponent, who is to move in
+     * {@code game}, decides; the next {@link #findBestMove} call picks the work up.
+     * Does nothing when pondering is off, with the MCTS engine, on boards other than 8x8
+     * or once the game is over.
+     */
+    public static synchronized void startPondering(ReversiGame game) {
+        if (!pondering || engine != Engine.ALPHA_BETA || game.getBoardSize() != Bitboard.SIZE
+                || game.getGameState() != ReversiGame.GameState.PLAYING) {
+            return;
+        }
+        ponderer.start(game.getPlayerDiscs(), game.getOpponentDiscs(), game.getSide());
+    }
+
+    /** Stops pondering, e.g. because a move was taken back or a new game started. */
+    public static synchronized void stopPondering() {
+        ponderer.cancel();
+    }
+
     /**
-     * Finds the best move for the AI player.
-     * This AI chooses the move that flips the most opponent pieces.
+     * Finds the best move for the player to move, searching for
+     * {@link #DEFAULT_THINK_TIME_MILLIS} milliseconds.
      *
-     * @param board The current game board.
-     * @param player The AI player's symbol ('B' or 'W').
+     * @param game The current game.
      * @return An array with [row, col] of the chosen move, or null if no move is possible.
      */
     public static int[] findBestMove(ReversiGame game) {
-        List<int[]> validMoves = new ArrayList<>();
-        int maxFlips = 0;
-        
-        char[][] board = game.getBoard();
-        char player = game.getCurrentPlayer();
-
-        for (int i = 0; i < game.getBoardSize(); i++) {
-            for (int j = 0; j < game.getBoardSize(); j++) {
-                if (game.isValidMoveForPlayer(i, j, player)) {
-                    int flips = countFlips(board, i, j, player);
-                    if (flips > maxFlips) {
-                        maxFlips = flips;
-                        validMoves.clear();
-                        validMoves.add(new int[]{i, j});
-                    } else if (flips == maxFlips) {
-                        validMoves.add(new int[]{i, j});
-                    }
-                }
-            }
+        return findBestMove(game, DEFAULT_THINK_TIME_MILLIS);
+    }
+
+    /**
+     * Finds the best move for the player to move. Positions in the opening book are
+     * answered from the book; otherwise the selected {@link Engine} runs until the
+     * thinking time runs out. If the position was pondered since {@link #startPondering},
+     * the time already spent counts towards the thinking time. Boards other than 8x8 are
+     * searched by a {@link WideSearch} whatever the engine. A move that is the only legal
+     * one is played without searching.
+     *
+     * @param game The current game.
+     * @param thinkTimeMillis Wall-clock budget for the search.
+     * @return An array with [row, col] of the chosen move, or null if no move is possible.
+     */
+    public static int[] findBestMove(ReversiGame game, long thinkTimeMillis) {
+        if (game.getGameState() != ReversiGame.GameState.PLAYING) {
+            return null;
+        }
+        if (game.getLegalMoveCount() == 1) {
+            return onlyMove(game.nextLegalMove(0), game.getBoardSize());
+        }
+        if (game.getBoardSize() != Bitboard.SIZE) {
+            return wideMove(game.getBoardSize(), game.getPlayerWords(), game.getOpponentWords(), thinkTimeMillis, null);
         }
+        return bestMove(game.getPlayerDiscs(), game.getOpponentDiscs(), game.getSide(), thinkTimeMillis, null);
+    }
 
-        if (validMoves.isEmpty()) {
-            return null; // No available moves
+    /**
+     * Starts searching the position of {@code game} on the AI thread and returns at
+     * once. The position is copied first, so the game may change while the search runs.
+     * The future completes with the best move found by {@code deadlineMillis}, or
+     * {@code null} if there is none; cancelling it stops the search right away.
+     *
+     * @param deadlineMillis Wall-clock time, as {@link System#currentTimeMillis()}, by
+     *                       which the move is wanted.
+     */
+    public static MoveFuture requestMove(ReversiGame game, long deadlineMillis) {
+        boolean playing = game.getGameState() == ReversiGame.GameState.PLAYING;
+        int size = game.getBoardSize();
+        if (playing && game.getLegalMoveCount() == 1) {
+            int square = game.nextLegalMove(0);
+            return MoveFuture.submit(future -> onlyMove(square, size), deadlineMillis, aiThread);
         }
+        if (size != Bitboard.SIZE) {
+            long[] player = game.getPlayerWords();
+            long[] opponent = game.getOpponentWords();
+            return MoveFuture.submit(future -> playing
+                    ? wideMove(size, player, opponent, future.remainingMillis(), future::isDone)
+                    : null, deadlineMillis, aiThread);
+        }
+        long player = game.getPlayerDiscs();
+        long opponent = game.getOpponentDiscs();
+        int side = game.getSide();
+        return MoveFuture.submit(future -> playing
+                ? bestMove(player, opponent, side, future.remainingMillis(), future::isDone)
+                : null, deadlineMillis, aiThread);
+    }
 
-        // Choose a random move from the best moves
-        Random random = new Random();
-        return validMoves.get(random.nextInt(validMoves.size()));
+    /** Plays the single legal move; pondering had nothing to choose between either. */
+    private static synchronized int[] onlyMove(int square, int size) {
+        long start = System.nanoTime();
+        ponderer.cancel();
+        metrics.recordMove(MoveSource.ONLY_MOVE, System.nanoTime() - start, 0, -1, 1, 0, 0);
+        return new int[]{square / size, square % size};
     }
 
-    private static int countFlips(char[][] board, int row, int col, char player) {
-        int flips = 0;
-        char opponent = (player == 'B') ? 'W' : 'B';
-        int[] dr = {-1, -1, -1, 0, 0, 1, 1, 1};
-        int[] dc = {-1, 0, 1, -1, 1, -1, 0, 1};
-
-        for (int i = 0; i < 8; i++) {
-            int r = row + dr[i];
-            int c = col + dc[i];
-            int lineFlips = 0;
-            while (r >= 0 && r < board.length && c >= 0 && c < board.length && board[r][c] == opponent) {
-                r += dr[i];
-                c += dc[i];
-                lineFlips++;
+    private static synchronized int[] wideMove(int size, long[] player, long[] opponent, long thinkTimeMillis,
+                                               BooleanSupplier abort) {
+        long start = System.nanoTime();
+        if (wideSearch == null || wideSearch.getSize() != size) {
+            wideSearch = new WideSearch(size);
+        }
+        wideSearch.setTimeLimit(thinkTimeMillis);
+        wideSearch.setAbortSignal(abort);
+        int move;
+        try {
+            move = wideSearch.findBestMove(player, opponent);
+        } finally {
+            wideSearch.setAbortSignal(null);
+        }
+        metrics.recordMove(MoveSource.SEARCH, System.nanoTime() - start, wideSearch.getNodes(),
+                wideSearch.getDepthReached(), wideSearch.getLegalMoveCount(), 0, 0);
+        return move < 0 ? null : new int[]{move / size, move % size};
+    }
+
+    private static synchronized int[] bestMove(long player, long opponent, int side, long thinkTimeMillis,
+                                               BooleanSupplier abort) {
+        long start = System.nanoTime();
+        int legalMoves = Long.bitCount(Bitboard.legalMoves(player, opponent));
+        if (book != null) {
+            long black = side == Zobrist.BLACK ? player : opponent;
+            long white = side == Zobrist.BLACK ? opponent : player;
+            int bookMove = book.lookup(black, white, side);
+            if (bookMove >= 0) {
+                ponderer.cancel();
+                metrics.recordMove(MoveSource.BOOK, System.nanoTime() - start, 0, -1, legalMoves, 0, 0);
+                return new int[]{bookMove / Bitboard.SIZE, bookMove % Bitboard.SIZE};
+            }
+        }
+        int move;
+        if (engine == Engine.MCTS) {
+            mcts.setAbortSignal(abort);
+            mcts.setTimeLimit(thinkTimeMillis);
+            try {
+                move = mcts.search(ReversiMctsRules.state(player, opponent, side));
+            } finally {
+                mcts.setAbortSignal(null);
             }
-            if (lineFlips > 0 && r >= 0 && r < board.length && c >= 0 && c < board.length && board[r][c] == player) {
-                flips += lineFlips;
+            metrics.recordMove(MoveSource.SEARCH, System.nanoTime() - start, mcts.getPlayouts(), -1, legalMoves, 0, 0);
+        } else {
+            // The signal also reaches a pondered search that take() lets finish
+            search.setAbortSignal(abort);
+            try {
+                move = ponderer.take(player, opponent, thinkTimeMillis);
+                MoveSource source = MoveSource.PONDER_HIT;
+                if (move < 0) {
+                    source = MoveSource.SEARCH;
+                    search.setTimeLimit(thinkTimeMillis);
+                    move = search.findBestMove(player, opponent, side);
+                }
+                metrics.recordMove(source, System.nanoTime() - start, search.getNodes(), search.getDepthReached(),
+                        legalMoves, search.getHashProbes(), search.getHashHits());
+            } finally {
+                search.setAbortSignal(null);
             }
         }
-        return flips;
+        if (move < 0 || move == ReversiMctsRules.PASS) {
+            return null; // No available moves
+        }
+        return new int[]{move / Bitboard.SIZE, move % Bitboard.SIZE};
     }
 }
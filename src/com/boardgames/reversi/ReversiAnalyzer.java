@@ -0,0 +1,209 @@
+package com.boardgames.reversi;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Background analysis of a Reversi position: scores every legal move with
+ * {@link ReversiSearch#analyze}, deeper and deeper, and hands the scores to a listener
+ * as they improve. The search runs on a thread of its own with its own transposition
+ * table, so it neither blocks the caller nor disturbs the AI's table.
+ *
+ * <p>Updates reach the listener through the executor given at construction, e.g.
+ * {@code SwingUtilities::invokeLater}. They are throttled to one per
+ * {@link #UPDATE_INTERVAL_MILLIS} and coalesced: at most one delivery is queued at a
+ * time, and it carries the latest scores, however many were produced meanwhile.
+ * Analysing another position, or calling {@link #stop()}, abandons the running search
+ * and drops its undelivered updates.
+ *
+ * <p>Only 8x8 boards can be analysed. {@link #close()} ends the analysis thread once
+ * the analyzer is no longer needed.
+ */
+public final class ReversiAnalyzer implements AutoCloseable {
+
+    /** Minimum time between two updates of an analysis in progress. */
+    public static final long UPDATE_INTERVAL_MILLIS = 100;
+
+    /** Scores of the legal moves of one position, as far as the analysis has got. */
+    public static final class Analysis {
+        /** {@link #getScore} of a square that is not a legal move. */
+        public static final int NO_SCORE = Integer.MIN_VALUE;
+
+        private final int generation;
+        private final int[] scores;
+        private final int depth;
+        private final int bestMove;
+        private final long nodes;
+        private final boolean finished;
+
+        private Analysis(int generation, int[] scores, int depth, int bestMove, long nodes, boolean finished) {
+            this.generation = generation;
+            this.scores = scores;
+            this.depth = depth;
+            this.bestMove = bestMove;
+            this.nodes = nodes;
+            this.finished = finished;
+        }
+
+        /**
+         * Score of the move at {@code square} ({@code row * 8 + col}) from the mover's view,
+         * in {@link ReversiSearch} units, or {@link #NO_SCORE} if it is not a legal move.
+         */
+        public int getScore(int square) {
+            return scores[square];
+        }
+
+        /** Copies the scores of all 64 squares into {@code out}. */
+        public void getScores(int[] out) {
+            System.arraycopy(scores, 0, out, 0, scores.length);
+        }
+
+        /** Deepest depth at which every move has been scored; some moves may already be a ply deeper. */
+        public int getDepth() {
+            return depth;
+        }
+
+        /** The highest-scoring square, or -1 if there are no legal moves. */
+        public int getBestMove() {
+            return bestMove;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        /** Whether the analysis has ended, because it reached the end of the game or the depth limit. */
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+
+    private final Consumer<Analysis> listener;
+    private final Executor deliverer;
+    private final ReversiSearch search = new ReversiSearch();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reversi-analysis");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Bumped for every new analysis and by stop(); a search or update of an older one is stale
+    private volatile int generation;
+    private long analysedPlayer;
+    private long analysedOpponent;
+    private boolean running;
+
+    private final AtomicReference<Analysis> latest = new AtomicReference<>();
+    private final AtomicBoolean deliveryQueued = new AtomicBoolean();
+
+    // Worker thread only: where the running analysis has got, by square
+    private final int[] scores = new int[Bitboard.SQUARES];
+    private long lastPublished;
+
+    /**
+     * @param listener  receives the analysis updates.
+     * @param deliverer runs the listener, e.g. {@code SwingUtilities::invokeLater} to
+     *                  receive the updates on the event dispatch thread.
+     */
+    public ReversiAnalyzer(Consumer<Analysis> listener, Executor deliverer) {
+        this.listener = listener;
+        this.deliverer = deliverer;
+        search.setTimeLimit(Long.MAX_VALUE);
+    }
+
+    /**
+     * Starts analysing the position of {@code game}, abandoning any other analysis. Does
+     * nothing if that position is already being analysed.
+     *
+     * @return whether a new analysis was started; false also when {@code game} is over,
+     *         not on an 8x8 board or the analyzer is closed, in which case any analysis
+     *         is stopped.
+     */
+    public synchronized boolean analyze(ReversiGame game) {
+        if (worker.isShutdown() || game.getBoardSize() != Bitboard.SIZE
+                || game.getGameState() != ReversiGame.GameState.PLAYING) {
+            stop();
+            return false;
+        }
+        long player = game.getPlayerDiscs();
+        long opponent = game.getOpponentDiscs();
+        if (running && player == analysedPlayer && opponent == analysedOpponent) {
+            return false;
+        }
+        int side = game.getSide();
+        int current = ++generation;
+        analysedPlayer = player;
+        analysedOpponent = opponent;
+        running = true;
+        worker.execute(() -> run(current, player, opponent, side));
+        return true;
+    }
+
+    /** Abandons the analysis in progress, if any; its pending updates are not delivered. */
+    public synchronized void stop() {
+        generation++;
+        running = false;
+    }
+
+    /** Stops the analysis and lets the analysis thread end; later calls to {@link #analyze} do nothing. */
+    @Override
+    public synchronized void close() {
+        stop();
+        worker.shutdown();
+    }
+
+    private void run(int current, long player, long opponent, int side) {
+        if (generation != current) {
+            return; // Replaced before it started
+        }
+        Arrays.fill(scores, Analysis.NO_SCORE);
+        lastPublished = 0;
+        search.setAbortSignal(() -> generation != current);
+        try {
+            search.analyze(player, opponent, side, (depth, moves, moveScores, count, searched) -> {
+                for (int i = 0; i < count; i++) {
+                    scores[moves[i]] = moveScores[i];
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastPublished >= UPDATE_INTERVAL_MILLIS) {
+                    lastPublished = now;
+                    publish(current, searched == count ? depth : depth - 1, false);
+                }
+            });
+        } finally {
+            search.setAbortSignal(null);
+        }
+        if (generation == current) {
+            // The last scores may have come inside the throttle interval
+            publish(current, search.getDepthReached(), true);
+        }
+    }
+
+    private void publish(int current, int depth, boolean finished) {
+        int best = -1;
+        for (int square = 0; square < scores.length; square++) {
+            if (scores[square] != Analysis.NO_SCORE && (best < 0 || scores[square] > scores[best])) {
+                best = square;
+            }
+        }
+        latest.set(new Analysis(current, scores.clone(), depth, best, search.getNodes(), finished));
+        if (!deliveryQueued.getAndSet(true)) {
+            deliverer.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        // Cleared first, so scores published from here on queue another delivery
+        deliveryQueued.set(false);
+        Analysis analysis = latest.getAndSet(null);
+        if (analysis != null && analysis.generation == generation) {
+            listener.accept(analysis);
+        }
+    }
+}
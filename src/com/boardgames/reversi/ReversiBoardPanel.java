@@ -0,0 +1,307 @@
+package com.boardgames.reversi;
+
+import com.boardgames.jfr.BoardPaintEvent;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The Reversi board drawn as one component. Discs and move hints are blitted from
+ * sprites pre-rendered for the current cell size and display scale; the sprites are
+ * rendered again only when either changes, e.g. on a resize or a move to a HiDPI
+ * screen.
+ *
+ * <p>{@link #update} compares the game with what is on screen and repaints only the
+ * cells that differ, so after a move Swing redraws the placed and flipped discs and the
+ * changed hints rather than the whole board. It does not allocate once the board size
+ * is set.
+ *
+ * <p>{@link #setAnalysis} overlays move scores as a heatmap: each scored square shows
+ * its score in discs on a tint that goes from green for the best move to red for the
+ * moves losing the most against it.
+ */
+final class ReversiBoardPanel extends JComponent {
+
+    /** Called on the EDT when the player clicks a square while the board is enabled. */
+    interface CellListener {
+        void cellClicked(int row, int col);
+    }
+
+    private static final Color BOARD_GREEN = new Color(0, 128, 0);
+    private static final Color WHITE_DISC = Color.LIGHT_GRAY;
+    private static final Color HINT = new Color(192, 192, 192, 128); // Semi-transparent grey
+    /** Heatmap tints, best move first; each step is {@link #HEAT_STEP_DISCS} discs worse than the one before. */
+    private static final Color[] HEAT = {
+            new Color(0, 230, 0, 150),
+            new Color(120, 230, 0, 150),
+            new Color(200, 220, 0, 150),
+            new Color(240, 170, 0, 150),
+            new Color(240, 100, 0, 150),
+            new Color(230, 20, 0, 150)
+    };
+    private static final int HEAT_STEP_DISCS = 2;
+
+    private static final byte EMPTY = 0;
+    private static final byte BLACK = 1;
+    private static final byte WHITE = 2;
+    private static final byte MOVE_HINT = 3;
+
+    private int size;
+    /** What each cell shows, row by row; what the last paint drew once the pending repaints are done. */
+    private byte[] cells = new byte[0];
+    // Heatmap per cell: the score text and HEAT index, null and -1 where there is none; null when off
+    private String[] labels;
+    private int[] heat;
+
+    // Sprites for the cell size and scale they were rendered for
+    private BufferedImage blackSprite;
+    private BufferedImage whiteSprite;
+    private BufferedImage hintSprite;
+    private int spriteCell;
+    private double spriteScale;
+    private Font labelFont;
+
+    ReversiBoardPanel(CellListener listener) {
+        setOpaque(true);
+        setBackground(BOARD_GREEN);
+        setPreferredSize(new Dimension(560, 560));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!isEnabled() || size == 0 || !SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+                int cell = cellSize();
+                int x = e.getX() - originX(cell);
+                int y = e.getY() - originY(cell);
+                if (cell > 0 && x >= 0 && y >= 0 && x < cell * size && y < cell * size) {
+                    listener.cellClicked(y / cell, x / cell);
+                }
+            }
+        });
+    }
+
+    /**
+     * Brings the board in line with {@code game}, hinting the legal moves of the side to
+     * move if {@code showHints}. Must be called on the EDT.
+     */
+    void update(ReversiGame game, boolean showHints) {
+        int boardSize = game.getBoardSize();
+        if (boardSize != size) {
+            size = boardSize;
+            cells = new byte[size * size];
+            labels = null;
+            heat = null;
+            readCells(game, showHints, false);
+            repaint();
+            return;
+        }
+        readCells(game, showHints, true);
+    }
+
+    private void readCells(ReversiGame game, boolean showHints, boolean repaintChanged) {
+        int cell = cellSize();
+        int originX = originX(cell);
+        int originY = originY(cell);
+        for (int row = 0, index = 0; row < size; row++) {
+            for (int col = 0; col < size; col++, index++) {
+                char symbol = game.getSymbolAt(row, col);
+                byte state;
+                if (symbol == 'B') {
+                    state = BLACK;
+                } else if (symbol == 'W') {
+                    state = WHITE;
+                } else if (showHints && game.isValidMove(row, col)) {
+                    state = MOVE_HINT;
+                } else {
+                    state = EMPTY;
+                }
+                if (state != cells[index]) {
+                    cells[index] = state;
+                    if (repaintChanged) {
+                        repaint(originX + col * cell, originY + row * cell, cell, cell);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Shows {@code scores}, one per square as in {@link ReversiAnalyzer.Analysis#getScore},
+     * as a heatmap over the board; {@code null}, or scores for another board size, clears
+     * it. Like {@link #update}, repaints only the squares whose label or tint changed.
+     */
+    void setAnalysis(int[] scores) {
+        if (scores == null || scores.length != cells.length) {
+            if (labels != null) {
+                labels = null;
+                heat = null;
+                repaint();
+            }
+            return;
+        }
+        if (labels == null) {
+            labels = new String[cells.length];
+            heat = new int[cells.length];
+            Arrays.fill(heat, -1);
+        }
+        int best = ReversiAnalyzer.Analysis.NO_SCORE;
+        for (int score : scores) {
+            best = Math.max(best, score);
+        }
+        int cell = cellSize();
+        int originX = originX(cell);
+        int originY = originY(cell);
+        for (int square = 0; square < scores.length; square++) {
+            String label = null;
+            int tint = -1;
+            if (scores[square] != ReversiAnalyzer.Analysis.NO_SCORE) {
+                label = scoreLabel(scores[square]);
+                int lossDiscs = (best - scores[square]) / ReversiSearch.DISC;
+                tint = Math.min(HEAT.length - 1, lossDiscs / HEAT_STEP_DISCS);
+            }
+            if (tint != heat[square] || !Objects.equals(label, labels[square])) {
+                labels[square] = label;
+                heat[square] = tint;
+                repaint(originX + square % size * cell, originY + square / size * cell, cell, cell);
+            }
+        }
+    }
+
+    /** A score in discs: exact for a solved result, to one decimal for an estimate. */
+    private static String scoreLabel(int score) {
+        if (Math.abs(score) >= ReversiSearch.WIN_BONUS) {
+            int discs = (score - Integer.signum(score) * ReversiSearch.WIN_BONUS) / ReversiSearch.DISC;
+            return (discs > 0 ? "+" : "") + discs;
+        }
+        long tenths = Math.round(score * 10.0 / ReversiSearch.DISC);
+        return tenths == 0 ? "0.0" : String.format("%+.1f", tenths / 10.0);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        BoardPaintEvent event = new BoardPaintEvent();
+        event.begin();
+        Graphics2D g2 = (Graphics2D) g;
+        Rectangle clip = g2.getClipBounds();
+        int clipX = clip == null ? 0 : clip.x;
+        int clipY = clip == null ? 0 : clip.y;
+        int clipWidth = clip == null ? getWidth() : clip.width;
+        int clipHeight = clip == null ? getHeight() : clip.height;
+        g2.setColor(BOARD_GREEN);
+        g2.fillRect(clipX, clipY, clipWidth, clipHeight);
+
+        int cell = cellSize();
+        if (size == 0 || cell <= 0) {
+            return;
+        }
+        double scale = g2.getTransform().getScaleX();
+        boolean spritesRendered = cell != spriteCell || scale != spriteScale;
+        if (spritesRendered) {
+            renderSprites(g2.getDeviceConfiguration(), cell, scale);
+        }
+
+        int originX = originX(cell);
+        int originY = originY(cell);
+        // Only the cells the clip touches
+        int firstCol = Math.max(0, (clipX - originX) / cell);
+        int lastCol = Math.min(size - 1, (clipX + clipWidth - 1 - originX) / cell);
+        int firstRow = Math.max(0, (clipY - originY) / cell);
+        int lastRow = Math.min(size - 1, (clipY + clipHeight - 1 - originY) / cell);
+        g2.setColor(Color.BLACK);
+        for (int row = firstRow; row <= lastRow; row++) {
+            int y = originY + row * cell;
+            for (int col = firstCol; col <= lastCol; col++) {
+                int x = originX + col * cell;
+                g2.drawRect(x, y, cell - 1, cell - 1);
+                int index = row * size + col;
+                if (labels != null && labels[index] != null) {
+                    paintLabel(g2, index, x, y, cell);
+                    continue;
+                }
+                BufferedImage sprite;
+                switch (cells[index]) {
+                    case BLACK:
+                        sprite = blackSprite;
+                        break;
+                    case WHITE:
+                        sprite = whiteSprite;
+                        break;
+                    case MOVE_HINT:
+                        sprite = hintSprite;
+                        break;
+                    default:
+                        continue;
+                }
+                g2.drawImage(sprite, x, y, cell, cell, null);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.game = "reversi";
+            event.cells = Math.max(0, lastRow - firstRow + 1) * Math.max(0, lastCol - firstCol + 1);
+            event.spritesRendered = spritesRendered;
+            event.commit();
+        }
+    }
+
+    private void paintLabel(Graphics2D g2, int index, int x, int y, int cell) {
+        g2.setColor(HEAT[heat[index]]);
+        g2.fillRect(x + 1, y + 1, cell - 2, cell - 2);
+        g2.setFont(labelFont);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        FontMetrics metrics = g2.getFontMetrics();
+        String label = labels[index];
+        g2.setColor(Color.BLACK);
+        g2.drawString(label, x + (cell - metrics.stringWidth(label)) / 2,
+                y + (cell + metrics.getAscent() - metrics.getDescent()) / 2);
+    }
+
+    /** Renders the sprites at device resolution, so they are drawn 1:1 on scaled displays. */
+    private void renderSprites(GraphicsConfiguration config, int cell, double scale) {
+        int pixels = (int) Math.ceil(cell * scale);
+        blackSprite = sprite(config, pixels, cell, Color.BLACK, false);
+        whiteSprite = sprite(config, pixels, cell, WHITE_DISC, false);
+        hintSprite = sprite(config, pixels, cell, HINT, true);
+        labelFont = new Font(Font.SANS_SERIF, Font.BOLD, Math.max(8, cell / 4));
+        spriteCell = cell;
+        spriteScale = scale;
+    }
+
+    private static BufferedImage sprite(GraphicsConfiguration config, int pixels, int cell, Color color,
+                                        boolean hint) {
+        BufferedImage image = config != null
+                ? config.createCompatibleImage(pixels, pixels, Transparency.TRANSLUCENT)
+                : new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.scale(pixels / (double) cell, pixels / (double) cell);
+        g2d.setColor(color);
+        if (hint) {
+            int dotSize = cell / 4;
+            g2d.fillOval(cell / 2 - dotSize / 2, cell / 2 - dotSize / 2, dotSize, dotSize);
+        } else {
+            g2d.fillOval(3, 3, cell - 7, cell - 7); // Margins for the piece
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    // --- Geometry: square cells, board centred in the component ---
+
+    private int cellSize() {
+        return size == 0 ? 0 : Math.min(getWidth(), getHeight()) / size;
+    }
+
+    private int originX(int cell) {
+        return (getWidth() - cell * size) / 2;
+    }
+
+    private int originY(int cell) {
+        return (getHeight() - cell * size) / 2;
+    }
+}
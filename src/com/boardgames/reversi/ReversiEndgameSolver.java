@@ -0,0 +1,498 @@
+package com.boardgames.reversi;
+
+import com.boardgames.metrics.EngineMetrics;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Exact endgame solver: searches to the end of the game and returns the final disc
+ * differential under perfect play, with empty squares counted for the winner.
+ *
+ * <p>The empty squares are kept in a linked list ordered by static square value, so
+ * the solver never scans the full board. Near the root moves are ordered fastest-first
+ * (fewest opponent replies); deeper down they are ordered by quadrant parity, and the
+ * last four empties are handled by dedicated routines. Positions with many empties are
+ * cached in a private {@link TranspositionTable}.
+ */
+public class ReversiEndgameSolver {
+
+    private static final int HEAD = Bitboard.SQUARES;
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+    private static final int HASH_EMPTIES = 10;
+    private static final int CHECK_INTERVAL = 4095;
+    private static final long CORNERS = 0x8100000000000081L;
+
+    /** Empty-list order: corners first, then edges and inner squares, X and C squares last. */
+    private static final int[] SQUARE_ORDER = {
+            0, 7, 56, 63,
+            2, 5, 16, 23, 40, 47, 58, 61,
+            3, 4, 24, 31, 32, 39, 59, 60,
+            18, 21, 42, 45,
+            19, 20, 26, 29, 34, 37, 43, 44,
+            11, 12, 25, 30, 33, 38, 51, 52,
+            10, 13, 17, 22, 41, 46, 50, 53,
+            1, 6, 8, 15, 48, 55, 57, 62,
+            9, 14, 49, 54,
+            27, 28, 35, 36
+    };
+
+    /** One bit per board quadrant. */
+    private static final int[] QUADRANT = new int[Bitboard.SQUARES];
+
+    static {
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            QUADRANT[sq] = 1 << ((sq / Bitboard.SIZE >= 4 ? 2 : 0) | (sq % Bitboard.SIZE >= 4 ? 1 : 0));
+        }
+    }
+
+    private final int[] next = new int[Bitboard.SQUARES + 1];
+    private final int[] prev = new int[Bitboard.SQUARES + 1];
+    private final int[][] moves = new int[Bitboard.SQUARES + 1][Bitboard.SQUARES];
+    private final int[][] moveKeys = new int[Bitboard.SQUARES + 1][Bitboard.SQUARES];
+    private final int[] lastFour = new int[4];
+    private final TranspositionTable table;
+
+    private volatile boolean stopped;
+    private volatile long deadline = Long.MAX_VALUE;
+    private volatile BooleanSupplier abortSignal;
+    private long nodes;
+    private long hashProbes;
+    private long hashHits;
+    private int score;
+    private int bestMove = -1;
+    private boolean solved;
+
+    public ReversiEndgameSolver() {
+        this(new TranspositionTable(8));
+    }
+
+    public ReversiEndgameSolver(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Wall-clock time after which {@link #solve} gives up; {@code Long.MAX_VALUE} for none.
+     * May be moved while a solve is running.
+     */
+    public void setDeadline(long deadlineMillis) {
+        this.deadline = deadlineMillis;
+    }
+
+    /** Condition polled with the deadline; once it holds {@link #solve} gives up. {@code null} for none. */
+    public void setAbortSignal(BooleanSupplier signal) {
+        abortSignal = signal;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Solves the position with {@code player} to move.
+     *
+     * @return true if the position was solved before the deadline; the score and best
+     *         move are then available from {@link #getScore()} and {@link #getBestMove()}.
+     */
+    public boolean solve(long player, long opponent) {
+        stopped = false;
+        solved = false;
+        nodes = 0;
+        hashProbes = 0;
+        hashHits = 0;
+        score = 0;
+        bestMove = -1;
+        table.newSearch();
+
+        int parity = buildEmptyList(~(player | opponent));
+        int empties = Long.bitCount(~(player | opponent));
+        long legal = Bitboard.legalMoves(player, opponent);
+        if (legal == 0) {
+            if (Bitboard.legalMoves(opponent, player) == 0) {
+                score = finalDiff(player, opponent);
+            } else {
+                score = -search(opponent, player, -64, 64, empties, parity, true);
+            }
+            solved = !stopped;
+            return solved;
+        }
+
+        int[] list = moves[empties];
+        int[] keys = moveKeys[empties];
+        int count = orderMoves(player, opponent, legal, list, keys, -1);
+        int alpha = -65;
+        for (int i = 0; i < count; i++) {
+            int sq = pickNext(list, keys, i, count);
+            long flipped = Bitboard.flips(sq, player, opponent);
+            remove(sq);
+            int value = -search(opponent & ~flipped, player | flipped | (1L << sq),
+                    -64, -alpha, empties - 1, parity ^ QUADRANT[sq], false);
+            restore(sq);
+            if (stopped) {
+                return false;
+            }
+            if (value > alpha) {
+                alpha = value;
+                bestMove = sq;
+            }
+        }
+        score = alpha;
+        solved = true;
+        return true;
+    }
+
+    private boolean checkLimits() {
+        BooleanSupplier abort = abortSignal;
+        return System.currentTimeMillis() >= deadline || (abort != null && abort.getAsBoolean());
+    }
+
+    private int search(long player, long opponent, int alpha, int beta, int empties, int parity, boolean passed) {
+        if ((++nodes & CHECK_INTERVAL) == 0 && checkLimits()) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        switch (empties) {
+            case 0:
+                return finalDiff(player, opponent);
+            case 1:
+                return solve1(player, opponent, next[HEAD]);
+            case 2: {
+                int s1 = next[HEAD];
+                return solve2(player, opponent, alpha, beta, s1, next[s1], false);
+            }
+            case 3:
+            case 4:
+                return solveLastFour(player, opponent, alpha, beta, empties, parity);
+            default:
+                break;
+        }
+
+        long legal = Bitboard.legalMoves(player, opponent);
+        if (legal == 0) {
+            if (passed || Bitboard.legalMoves(opponent, player) == 0) {
+                return finalDiff(player, opponent);
+            }
+            return -search(opponent, player, -beta, -alpha, empties, parity, true);
+        }
+
+        long hash = 0;
+        int hashMove = -1;
+        if (empties >= HASH_EMPTIES) {
+            hash = positionHash(player, opponent);
+            long entry = table.probe(hash);
+            if (EngineMetrics.NODE_COUNTERS) {
+                hashProbes++;
+                if (entry != 0) {
+                    hashHits++;
+                }
+            }
+            if (entry != 0) {
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && stored >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && stored <= alpha)) {
+                    return stored;
+                }
+                hashMove = TranspositionTable.move(entry);
+            }
+        }
+
+        int originalAlpha = alpha;
+        int best = -65;
+        int bestSquare = TranspositionTable.NO_MOVE;
+        if (empties > FASTEST_FIRST_EMPTIES) {
+            int[] list = moves[empties];
+            int[] keys = moveKeys[empties];
+            int count = orderMoves(player, opponent, legal, list, keys, hashMove);
+            for (int i = 0; i < count; i++) {
+                int sq = pickNext(list, keys, i, count);
+                long flipped = Bitboard.flips(sq, player, opponent);
+                remove(sq);
+                int value = -search(opponent & ~flipped, player | flipped | (1L << sq),
+                        -beta, -alpha, empties - 1, parity ^ QUADRANT[sq], false);
+                restore(sq);
+                if (value > best) {
+                    best = value;
+                    bestSquare = sq;
+                    if (value > alpha) {
+                        alpha = value;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } else {
+            // Squares in quadrants with an odd number of empties first, then the rest
+            for (int pass = 0; pass < 2 && alpha < beta; pass++) {
+                for (int sq = next[HEAD]; sq != HEAD; sq = next[sq]) {
+                    boolean odd = (parity & QUADRANT[sq]) != 0;
+                    if (odd != (pass == 0) || (legal & (1L << sq)) == 0) {
+                        continue;
+                    }
+                    long flipped = Bitboard.flips(sq, player, opponent);
+                    remove(sq);
+                    int value = -search(opponent & ~flipped, player | flipped | (1L << sq),
+                            -beta, -alpha, empties - 1, parity ^ QUADRANT[sq], false);
+                    restore(sq);
+                    if (value > best) {
+                        best = value;
+                        if (value > alpha) {
+                            alpha = value;
+                            if (alpha >= beta) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (empties >= HASH_EMPTIES && !stopped) {
+            int bound = best <= originalAlpha ? TranspositionTable.BOUND_UPPER
+                    : best >= beta ? TranspositionTable.BOUND_LOWER : TranspositionTable.BOUND_EXACT;
+            table.store(hash, empties, bound, best, bestSquare);
+        }
+        return best;
+    }
+
+    /** Three or four empties: try them in parity order without going through the list again. */
+    private int solveLastFour(long player, long opponent, int alpha, int beta, int empties, int parity) {
+        int s1 = next[HEAD];
+        int s2 = next[s1];
+        int s3 = next[s2];
+        if (empties == 3) {
+            // The square alone in its quadrant goes first
+            if (QUADRANT[s1] == QUADRANT[s2]) {
+                int t = s1;
+                s1 = s3;
+                s3 = t;
+            } else if (QUADRANT[s1] == QUADRANT[s3]) {
+                int t = s1;
+                s1 = s2;
+                s2 = t;
+            }
+            return solve3(player, opponent, alpha, beta, s1, s2, s3, false);
+        }
+        // Odd-parity squares first, otherwise keep the list order
+        int count = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int sq = s1; sq != HEAD; sq = next[sq]) {
+                if (((parity & QUADRANT[sq]) != 0) == (pass == 0)) {
+                    lastFour[count++] = sq;
+                }
+            }
+        }
+        s1 = lastFour[0];
+        s2 = lastFour[1];
+        s3 = lastFour[2];
+        int s4 = lastFour[3];
+        return solve4(player, opponent, alpha, beta, s1, s2, s3, s4, false);
+    }
+
+    private int solve4(long player, long opponent, int alpha, int beta,
+                       int s1, int s2, int s3, int s4, boolean passed) {
+        nodes++;
+        int best = -65;
+        long flipped;
+        if ((flipped = Bitboard.flips(s1, player, opponent)) != 0) {
+            best = -solve3(opponent & ~flipped, player | flipped | (1L << s1), -beta, -alpha, s2, s3, s4, false);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        if ((flipped = Bitboard.flips(s2, player, opponent)) != 0) {
+            best = Math.max(best, -solve3(opponent & ~flipped, player | flipped | (1L << s2), -beta, -alpha, s1, s3, s4, false));
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        if ((flipped = Bitboard.flips(s3, player, opponent)) != 0) {
+            best = Math.max(best, -solve3(opponent & ~flipped, player | flipped | (1L << s3), -beta, -alpha, s1, s2, s4, false));
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        if ((flipped = Bitboard.flips(s4, player, opponent)) != 0) {
+            best = Math.max(best, -solve3(opponent & ~flipped, player | flipped | (1L << s4), -beta, -alpha, s1, s2, s3, false));
+        }
+        if (best == -65) {
+            return passed ? finalDiff(player, opponent)
+                    : -solve4(opponent, player, -beta, -alpha, s1, s2, s3, s4, true);
+        }
+        return best;
+    }
+
+    private int solve3(long player, long opponent, int alpha, int beta, int s1, int s2, int s3, boolean passed) {
+        nodes++;
+        int best = -65;
+        long flipped;
+        if ((flipped = Bitboard.flips(s1, player, opponent)) != 0) {
+            best = -solve2(opponent & ~flipped, player | flipped | (1L << s1), -beta, -alpha, s2, s3, false);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        if ((flipped = Bitboard.flips(s2, player, opponent)) != 0) {
+            best = Math.max(best, -solve2(opponent & ~flipped, player | flipped | (1L << s2), -beta, -alpha, s1, s3, false));
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        if ((flipped = Bitboard.flips(s3, player, opponent)) != 0) {
+            best = Math.max(best, -solve2(opponent & ~flipped, player | flipped | (1L << s3), -beta, -alpha, s1, s2, false));
+        }
+        if (best == -65) {
+            return passed ? finalDiff(player, opponent)
+                    : -solve3(opponent, player, -beta, -alpha, s1, s2, s3, true);
+        }
+        return best;
+    }
+
+    private int solve2(long player, long opponent, int alpha, int beta, int s1, int s2, boolean passed) {
+        nodes++;
+        int best = -65;
+        long flipped;
+        if ((flipped = Bitboard.flips(s1, player, opponent)) != 0) {
+            best = -solve1(opponent & ~flipped, player | flipped | (1L << s1), s2);
+            if (best >= beta) {
+                return best;
+            }
+        }
+        if ((flipped = Bitboard.flips(s2, player, opponent)) != 0) {
+            best = Math.max(best, -solve1(opponent & ~flipped, player | flipped | (1L << s2), s1));
+        }
+        if (best == -65) {
+            return passed ? finalDiff(player, opponent)
+                    : -solve2(opponent, player, -beta, -alpha, s1, s2, true);
+        }
+        return best;
+    }
+
+    /** Last empty square: whoever can play it does, otherwise it goes to the winner. */
+    private int solve1(long player, long opponent, int square) {
+        nodes++;
+        long flipped = Bitboard.flips(square, player, opponent);
+        if (flipped != 0) {
+            return 2 * (Long.bitCount(player | flipped) + 1) - Bitboard.SQUARES;
+        }
+        flipped = Bitboard.flips(square, opponent, player);
+        if (flipped != 0) {
+            return Bitboard.SQUARES - 2 * (Long.bitCount(opponent | flipped) + 1);
+        }
+        return finalDiff(player, opponent);
+    }
+
+    /** Disc differential of a finished game, empties to the winner. */
+    static int finalDiff(long player, long opponent) {
+        int own = Long.bitCount(player);
+        int other = Long.bitCount(opponent);
+        int diff = own - other;
+        int empties = Bitboard.SQUARES - own - other;
+        return diff > 0 ? diff + empties : diff < 0 ? diff - empties : 0;
+    }
+
+    /** Fills {@code list} with the legal moves, keyed fastest-first; returns the move count. */
+    private static int orderMoves(long player, long opponent, long legal, int[] list, int[] keys, int hashMove) {
+        int count = 0;
+        while (legal != 0) {
+            int sq = Long.numberOfTrailingZeros(legal);
+            legal &= legal - 1;
+            int key;
+            if (sq == hashMove) {
+                key = Integer.MAX_VALUE;
+            } else {
+                long flipped = Bitboard.flips(sq, player, opponent);
+                long replies = Bitboard.legalMoves(opponent & ~flipped, player | flipped | (1L << sq));
+                // Few replies first, and above all no corner replies
+                key = -16 * Long.bitCount(replies) - 64 * Long.bitCount(replies & CORNERS);
+            }
+            list[count] = sq;
+            keys[count] = key;
+            count++;
+        }
+        return count;
+    }
+
+    private static int pickNext(int[] list, int[] keys, int from, int count) {
+        int best = from;
+        for (int i = from + 1; i < count; i++) {
+            if (keys[i] > keys[best]) {
+                best = i;
+            }
+        }
+        int move = list[best];
+        list[best] = list[from];
+        list[from] = move;
+        int key = keys[best];
+        keys[best] = keys[from];
+        keys[from] = key;
+        return move;
+    }
+
+    /** Links the empty squares in {@link #SQUARE_ORDER}; returns the initial quadrant parity. */
+    private int buildEmptyList(long empty) {
+        int parity = 0;
+        int last = HEAD;
+        for (int sq : SQUARE_ORDER) {
+            if ((empty & (1L << sq)) != 0) {
+                next[last] = sq;
+                prev[sq] = last;
+                last = sq;
+                parity ^= QUADRANT[sq];
+            }
+        }
+        next[last] = HEAD;
+        prev[HEAD] = last;
+        return parity;
+    }
+
+    private void remove(int sq) {
+        next[prev[sq]] = next[sq];
+        prev[next[sq]] = prev[sq];
+    }
+
+    private void restore(int sq) {
+        next[prev[sq]] = sq;
+        prev[next[sq]] = sq;
+    }
+
+    private static long positionHash(long player, long opponent) {
+        return Zobrist.mix(player * 0x9e3779b97f4a7c15L ^ Long.rotateLeft(opponent, 29));
+    }
+
+    // --- Results of the last solve ---
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getHashProbes() {
+        return hashProbes;
+    }
+
+    /** Probes that found an entry, whether or not it cut the search off. */
+    public long getHashHits() {
+        return hashHits;
+    }
+
+    /** Exact final disc differential for the side to move. */
+    public int getScore() {
+        return score;
+    }
+
+    /** Best move ({@code row * 8 + col}), or -1 if the side to move had to pass. */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+}
@@ -1,12 +1,16 @@
 package com.boardgames.reversi;
 
 import com.boardgames.GameSelectionGUI;
+import com.boardgames.common.MoveFuture;
+import com.boardgames.jfr.SessionEvent;
+import com.boardgames.jfr.ViewUpdateEvent;
+import com.boardgames.record.GameRecordWriter;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
 
 public class ReversiGUI extends JFrame {
     public enum GameMode {
@@ -14,14 +18,29 @@ public class ReversiGUI extends JFrame {
         PLAYER_VS_AI
     }
 
-    private static final int BOARD_SIZE = 8;
+    private static final int[] BOARD_SIZES = {8, 10, 12, 16};
+    private static final long AI_THINK_TIME_MILLIS = 500;
     private final CardLayout cardLayout = new CardLayout();
     private final JPanel mainPanel = new JPanel(cardLayout);
-    private final JButton[][] buttons = new JButton[BOARD_SIZE][BOARD_SIZE];
+    private final ReversiBoardPanel boardPanel = new ReversiBoardPanel(this::cellClicked);
+    private final ReversiAnalyzer analyzer = new ReversiAnalyzer(this::showAnalysis, SwingUtilities::invokeLater);
+    private final int[] analysisScores = new int[Bitboard.SQUARES];
+    private JCheckBox analyzeBox;
+    private JComboBox<String> sizeSelector;
     private JLabel statusLabel;
     private JLabel scoreLabel;
-    private final ReversiGame game;
+    private JButton undoButton;
+    private ReversiGame game;
     private GameMode gameMode;
+    private boolean aiThinking;
+    // Bumped whenever an AI move is requested or abandoned, so a late result is recognised as stale
+    private int aiGeneration;
+    private MoveFuture pendingAIMove;
+    private boolean recorded;
+    // The game in progress as a JFR session; null on the mode selection screen
+    private SessionEvent session;
+    private int shownBlack = -1;
+    private int shownWhite = -1;
 
     public ReversiGUI() {
         this.game = new ReversiGame();
@@ -36,6 +55,12 @@ public class ReversiGUI extends JFrame {
         setSize(600, 750);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                endSession("window closed");
+            }
+        });
 
         JPanel modeSelectionPanel = createModeSelectionPanel();
         JPanel gamePanel = createGamePanel();
@@ -59,6 +84,19 @@ public class ReversiGUI extends JFrame {
         gbc.insets = new Insets(10, 10, 30, 10);
         panel.add(titleLabel, gbc);
 
+        JPanel sizePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        JLabel sizeLabel = new JLabel("棋盤大小：");
+        sizeLabel.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        String[] sizeNames = new String[BOARD_SIZES.length];
+        for (int i = 0; i < BOARD_SIZES.length; i++) {
+            sizeNames[i] = BOARD_SIZES[i] + " x " + BOARD_SIZES[i];
+        }
+        sizeSelector = new JComboBox<>(sizeNames);
+        sizeSelector.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        sizePanel.add(sizeLabel);
+        sizePanel.add(sizeSelector);
+        panel.add(sizePanel, gbc);
+
         JButton pvpButton = new JButton("玩家 vs. 玩家");
         pvpButton.setFont(new Font("微軟正黑體", Font.BOLD, 18));
         pvpButton.setMargin(new Insets(10, 0, 10, 0));
@@ -96,158 +134,191 @@ public class ReversiGUI extends JFrame {
         headerPanel.add(statusLabel, BorderLayout.NORTH);
         headerPanel.add(scoreLabel, BorderLayout.SOUTH);
 
-        JPanel boardPanel = new JPanel(new GridLayout(BOARD_SIZE, BOARD_SIZE));
-        boardPanel.setBackground(new Color(0, 128, 0));
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                buttons[i][j] = new JButton();
-                buttons[i][j].setBackground(new Color(0, 128, 0));
-                buttons[i][j].setOpaque(true);
-                buttons[i][j].setBorder(BorderFactory.createLineBorder(Color.BLACK));
-                buttons[i][j].addActionListener(new ButtonClickListener(i, j));
-                boardPanel.add(buttons[i][j]);
-            }
-        }
-
         JButton newGameButton = new JButton("新遊戲");
         newGameButton.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
-        newGameButton.addActionListener(e -> cardLayout.show(mainPanel, "MODE_SELECTION"));
+        newGameButton.addActionListener(e -> {
+            cancelAITurn();
+            analyzer.stop();
+            endSession("new game");
+            cardLayout.show(mainPanel, "MODE_SELECTION");
+        });
+
+        undoButton = new JButton("悔棋");
+        undoButton.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        undoButton.addActionListener(e -> undoMove());
+
+        analyzeBox = new JCheckBox("分析");
+        analyzeBox.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        analyzeBox.setToolTipText("在每個合法位置顯示評估分數（僅限 8 x 8）");
+        analyzeBox.addActionListener(e -> updateAnalysis());
+
+        JPanel footerPanel = new JPanel(new GridLayout(1, 3, 10, 0));
+        footerPanel.add(undoButton);
+        footerPanel.add(analyzeBox);
+        footerPanel.add(newGameButton);
 
         gamePanel.add(headerPanel, BorderLayout.NORTH);
         gamePanel.add(boardPanel, BorderLayout.CENTER);
-        gamePanel.add(newGameButton, BorderLayout.SOUTH);
+        gamePanel.add(footerPanel, BorderLayout.SOUTH);
 
         return gamePanel;
     }
 
     private void startGame(GameMode mode) {
+        cancelAITurn();
         this.gameMode = mode;
+        int size = BOARD_SIZES[sizeSelector.getSelectedIndex()];
+        if (size != game.getBoardSize()) {
+            game = new ReversiGame(size);
+        }
         game.reset();
+        analyzeBox.setEnabled(size == Bitboard.SIZE);
+        recorded = false;
+        session = SessionEvent.start("reversi", 0, size);
         updateView();
         cardLayout.show(mainPanel, "GAME");
     }
 
-    private void handleAITurn() {
-        setBoardEnabled(false);
-        SwingWorker<int[], Void> worker = new SwingWorker<>() {
-            @Override
-            protected int[] doInBackground() throws Exception {
-                Thread.sleep(500);
-                return ReversiAIPlayer.findBestMove(game);
-            }
+    @Override
+    public void dispose() {
+        analyzer.close();
+        super.dispose();
+    }
 
-            @Override
-            protected void done() {
-                try {
-                    int[] aiMove = get();
-                    if (aiMove != null) {
-                        game.makeMove(aiMove[0], aiMove[1]);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    updateView();
-                    if (game.getGameState() == ReversiGame.GameState.PLAYING) {
-                        setBoardEnabled(true);
-                    }
-                }
-            }
-        };
-        worker.execute();
+    private void endSession(String reason) {
+        if (session != null) {
+            session.end(game.getMoveCount(), game.getGameState().name(), reason);
+            session = null;
+        }
     }
 
-    private class ButtonClickListener implements ActionListener {
-        private final int row, col;
+    /** Takes back the last move; against the AI, also the AI's reply so it is the player's turn again. */
+    private void undoMove() {
+        if (aiThinking || !game.undoMove()) {
+            return;
+        }
+        ReversiAIPlayer.stopPondering();
+        recorded = false;
+        while (gameMode == GameMode.PLAYER_VS_AI && game.getCurrentPlayer() == 'W' && game.undoMove()) {
+            // Keep going back to the player's own move
+        }
+        updateView();
+    }
 
-        public ButtonClickListener(int row, int col) {
-            this.row = row;
-            this.col = col;
+    /** Appends the game to the log named by {@link GameRecordWriter#RECORD_PROPERTY} once it is over. */
+    private void recordFinishedGame() {
+        GameRecordWriter writer = GameRecordWriter.getDefault();
+        // The log format only knows the standard board
+        if (writer == null || recorded || game.getGameState() == ReversiGame.GameState.PLAYING
+                || game.getBoardSize() != Bitboard.SIZE) {
+            return;
+        }
+        recorded = true;
+        try {
+            writer.append(game);
+        } catch (IOException e) {
+            System.err.println("Could not record game: " + e.getMessage());
         }
+    }
 
-        @Override
-        public void actionPerformed(ActionEvent e) {
-            if (game.getGameState() != ReversiGame.GameState.PLAYING)
-                return;
-
-            if (game.makeMove(row, col)) {
-                updateView();
-                if (gameMode == GameMode.PLAYER_VS_AI &&
-                        game.getGameState() == ReversiGame.GameState.PLAYING &&
-                        game.getCurrentPlayer() == 'W') {
-                    handleAITurn();
+    private void handleAITurn() {
+        aiThinking = true;
+        undoButton.setEnabled(false);
+        boardPanel.setEnabled(false);
+        int generation = ++aiGeneration;
+        pendingAIMove = ReversiAIPlayer.requestMove(game, System.currentTimeMillis() + AI_THINK_TIME_MILLIS);
+        pendingAIMove.whenComplete((aiMove, error) -> SwingUtilities.invokeLater(() -> {
+            if (generation != aiGeneration) {
+                return; // Cancelled, or the board was reset meanwhile
+            }
+            pendingAIMove = null;
+            aiThinking = false;
+            if (error != null) {
+                error.printStackTrace();
+            } else if (aiMove != null) {
+                game.makeMove(aiMove[0], aiMove[1]);
+            }
+            updateView();
+            if (game.getGameState() == ReversiGame.GameState.PLAYING) {
+                boardPanel.setEnabled(true);
+                if (game.getCurrentPlayer() == 'B') {
+                    // Think about the next reply while the player decides
+                    ReversiAIPlayer.startPondering(game);
                 }
             }
-        }
+        }));
     }
 
-    private void setBoardEnabled(boolean enabled) {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                buttons[i][j].setEnabled(enabled);
-            }
+    /** Abandons the AI's move in progress, if any, and stops pondering. */
+    private void cancelAITurn() {
+        aiGeneration++;
+        if (pendingAIMove != null) {
+            pendingAIMove.cancel(true);
+            pendingAIMove = null;
         }
+        aiThinking = false;
+        ReversiAIPlayer.stopPondering();
     }
 
-    private Icon createPieceIcon(Color color, int size) {
-        if (size <= 0)
-            size = 50; // Default size if not rendered yet
-        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setColor(color);
-        g2d.fillOval(3, 3, size - 7, size - 7); // Margins for the piece
-        g2d.dispose();
-        return new ImageIcon(image);
-    }
+    private void cellClicked(int row, int col) {
+        if (game.getGameState() != ReversiGame.GameState.PLAYING)
+            return;
 
-    private Icon createHintIcon(int size) {
-        if (size <= 0)
-            size = 50;
-        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setColor(new Color(192, 192, 192, 128)); // Semi-transparent grey
-        int dotSize = size / 4;
-        g2d.fillOval(size / 2 - dotSize / 2, size / 2 - dotSize / 2, dotSize, dotSize);
-        g2d.dispose();
-        return new ImageIcon(image);
+        if (game.makeMove(row, col)) {
+            updateView();
+            if (gameMode == GameMode.PLAYER_VS_AI &&
+                    game.getGameState() == ReversiGame.GameState.PLAYING &&
+                    game.getCurrentPlayer() == 'W') {
+                handleAITurn();
+            }
+        }
     }
 
     private void updateView() {
-        char currentPlayer = game.getCurrentPlayer();
+        ViewUpdateEvent event = new ViewUpdateEvent();
+        event.begin();
         boolean isGameOver = game.getGameState() != ReversiGame.GameState.PLAYING;
-        int buttonSize = buttons[0][0].getWidth();
-
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                char symbol = game.getSymbolAt(i, j);
-                JButton button = buttons[i][j];
-                button.setText("");
-                button.setBackground(new Color(0, 128, 0)); // Standard green
-
-                if (symbol == 'B') {
-                    button.setIcon(createPieceIcon(Color.BLACK, buttonSize));
-                    button.setDisabledIcon(createPieceIcon(Color.BLACK, buttonSize));
-                } else if (symbol == 'W') {
-                    button.setIcon(createPieceIcon(Color.LIGHT_GRAY, buttonSize));
-                    button.setDisabledIcon(createPieceIcon(Color.LIGHT_GRAY, buttonSize));
-                } else { // Empty cell
-                    if (!isGameOver && game.isValidMoveForPlayer(i, j, currentPlayer)) {
-                        button.setIcon(createHintIcon(buttonSize));
-                        button.setDisabledIcon(createHintIcon(buttonSize));
-                    } else {
-                        button.setIcon(null);
-                        button.setDisabledIcon(null);
-                    }
-                }
-            }
-        }
+        boardPanel.update(game, !isGameOver);
 
         updateStatusLabel();
-        int[] score = game.getScore();
-        scoreLabel.setText(String.format("黑棋: %d, 白棋: %d", score[0], score[1]));
+        // The board repaints only what changed; skip relabelling too when the score is the same
+        if (game.getBlackCount() != shownBlack || game.getWhiteCount() != shownWhite) {
+            shownBlack = game.getBlackCount();
+            shownWhite = game.getWhiteCount();
+            scoreLabel.setText(String.format("黑棋: %d, 白棋: %d", shownBlack, shownWhite));
+        }
+
+        boardPanel.setEnabled(!isGameOver);
+        recordFinishedGame();
+        undoButton.setEnabled(!aiThinking && game.getMoveCount() > 0);
+        updateAnalysis();
+        if (event.shouldCommit()) {
+            event.game = "reversi";
+            event.moveCount = game.getMoveCount();
+            event.commit();
+        }
+    }
+
+    /** Analyses the position while the box is ticked and a person is to move on an 8x8 board. */
+    private void updateAnalysis() {
+        boolean wanted = analyzeBox.isSelected() && !aiThinking
+                && game.getBoardSize() == Bitboard.SIZE
+                && game.getGameState() == ReversiGame.GameState.PLAYING
+                && !(gameMode == GameMode.PLAYER_VS_AI && game.getCurrentPlayer() == 'W');
+        if (!wanted) {
+            analyzer.stop();
+            boardPanel.setAnalysis(null);
+            analyzeBox.setText("分析");
+        } else if (analyzer.analyze(game)) {
+            // The scores shown belong to the previous position
+            boardPanel.setAnalysis(null);
+        }
+    }
 
-        setBoardEnabled(!isGameOver);
+    private void showAnalysis(ReversiAnalyzer.Analysis analysis) {
+        analysis.getScores(analysisScores);
+        boardPanel.setAnalysis(analysisScores);
+        analyzeBox.setText("分析（深度 " + analysis.getDepth() + "）");
     }
 
     private void updateStatusLabel() {
@@ -255,7 +326,7 @@ public class ReversiGUI extends JFrame {
         String statusText;
         switch (state) {
             case PLAYING:
-                statusText = "輪到 " + (game.getCurrentPlayer() == 'B' ? "黑棋" : "白棋");
+                statusText = game.getCurrentPlayer() == 'B' ? "輪到 黑棋" : "輪到 白棋";
                 break;
             case BLACK_WINS:
                 statusText = "遊戲結束：黑棋獲勝！";
@@ -1,5 +1,7 @@
 package com.boardgames.reversi;
 
+import com.boardgames.jfr.MoveEvent;
+
 public class ReversiGame {
 
     public enum GameState {
@@ -9,127 +11,341 @@ public class ReversiGame {
         DRAW
     }
 
-    private final int BOARD_SIZE = 8;
-    private char[][] board;
+    private final int BOARD_SIZE;
+    // One bit per square, see Bitboard for the layout; 8x8 only
+    private long black;
+    private long white;
+    // Boards of other sizes, see WideBoard for the layout; null on 8x8
+    private final WideBoard wide;
+    private final long[] blackWords;
+    private final long[] whiteWords;
+    // Scratch for legality checks
+    private final long[] wideScratch;
     private char currentPlayer;
     private GameState gameState;
+    // Zobrist hash of the position, kept up to date by makeMove
+    private long hash;
+    // Legal moves of the side to move, found at most once per move and empty once the game is
+    // over. On 8x8 makeMove needs them for the pass check anyway; legalWords is filled on the
+    // first query after a move, as finding them costs more than the move itself on large boards.
+    private long legal;
+    private final long[] legalWords;
+    private boolean legalStale;
+    private int legalCount;
+    private int blackCount;
+    private int whiteCount;
+
+    // Undo stack, one entry per move played; preallocated so makeMove/undoMove never allocate.
+    // Every move fills an empty square, so a game never has more moves than squares - 4.
+    private final int[] undoSquares;
+    private final long[] undoFlipped;
+    private final long[][] undoFlippedWords;
+    private final char[] undoPlayers;
+    private final GameState[] undoStates;
+    private final long[] undoHashes;
+    private final long[] undoLegal;
+    private int moveCount;
 
     public ReversiGame() {
-        board = new char[BOARD_SIZE][BOARD_SIZE];
+        this(Bitboard.SIZE);
+    }
+
+    /**
+     * Creates a game on a {@code size} x {@code size} board. 8x8 is the standard game and
+     * the only size the search engines, opening book and game records know; other even
+     * sizes from {@link WideBoard#MIN_SIZE} to {@link WideBoard#MAX_SIZE} are played on a
+     * {@link WideBoard}.
+     */
+    public ReversiGame(int size) {
+        BOARD_SIZE = size;
+        int maxMoves = size * size - 4;
+        if (size == Bitboard.SIZE) {
+            wide = null;
+            blackWords = null;
+            whiteWords = null;
+            wideScratch = null;
+            legalWords = null;
+            undoFlipped = new long[maxMoves];
+            undoFlippedWords = null;
+            undoHashes = new long[maxMoves];
+            undoLegal = new long[maxMoves];
+        } else {
+            wide = new WideBoard(size);
+            blackWords = new long[wide.getWords()];
+            whiteWords = new long[wide.getWords()];
+            wideScratch = new long[wide.getWords()];
+            legalWords = new long[wide.getWords()];
+            undoFlipped = null;
+            undoFlippedWords = new long[maxMoves][wide.getWords()];
+            undoHashes = null;
+            undoLegal = null;
+        }
+        undoSquares = new int[maxMoves];
+        undoPlayers = new char[maxMoves];
+        undoStates = new GameState[maxMoves];
         reset();
     }
 
     public void reset() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                board[i][j] = ' ';
-            }
-        }
         // Initial setup
-        board[3][3] = 'W';
-        board[3][4] = 'B';
-        board[4][3] = 'B';
-        board[4][4] = 'W';
+        if (wide != null) {
+            wide.initial(blackWords, whiteWords);
+            legalStale = true;
+        } else {
+            black = Bitboard.INITIAL_BLACK;
+            white = Bitboard.INITIAL_WHITE;
+            hash = Zobrist.hash(black, white, Zobrist.BLACK);
+            legal = Bitboard.legalMoves(black, white);
+            legalCount = Long.bitCount(legal);
+        }
+        blackCount = 2;
+        whiteCount = 2;
         currentPlayer = 'B'; // Black always starts
         gameState = GameState.PLAYING;
+        moveCount = 0;
     }
 
     public boolean makeMove(int row, int col) {
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        char mover = currentPlayer;
+        boolean made = wide != null ? makeWideMove(row, col) : makeStandardMove(row, col);
+        if (made && event.shouldCommit()) {
+            event.game = "reversi";
+            event.boardSize = BOARD_SIZE;
+            event.moveNumber = moveCount - 1;
+            event.row = row;
+            event.col = col;
+            event.player = mover;
+            event.commit();
+        }
+        return made;
+    }
+
+    private boolean makeStandardMove(int row, int col) {
         if (!isValidMove(row, col)) {
             return false;
         }
 
-        board[row][col] = currentPlayer;
-        flipDiscs(row, col);
+        int square = Bitboard.index(row, col);
+        long move = 1L << square;
+        long flipped = Bitboard.flips(square, getPlayerDiscs(), getOpponentDiscs());
+        undoSquares[moveCount] = square;
+        undoFlipped[moveCount] = flipped;
+        undoPlayers[moveCount] = currentPlayer;
+        undoStates[moveCount] = gameState;
+        undoHashes[moveCount] = hash;
+        undoLegal[moveCount] = legal;
+        moveCount++;
+        hash ^= Zobrist.moveKey(getSide(), square, flipped);
+        if (currentPlayer == 'B') {
+            black |= move | flipped;
+            white &= ~flipped;
+        } else {
+            white |= move | flipped;
+            black &= ~flipped;
+        }
+        countMove(currentPlayer, 1, Long.bitCount(flipped));
 
-        if (isGameOver()) {
-            updateFinalGameState();
+        // The opponent's moves decide whether they pass and are the next legal set if not
+        legal = Bitboard.legalMoves(getOpponentDiscs(), getPlayerDiscs());
+        if (legal != 0) {
+            switchPlayer();
         } else {
-            char nextPlayer = getOpponent();
-            if (hasValidMove(nextPlayer)) {
-                switchPlayer();
-            } else if (!hasValidMove(currentPlayer)) {
+            // The opponent has to pass, so the side to move does not change after all
+            hash ^= Zobrist.WHITE_TO_MOVE;
+            legal = Bitboard.legalMoves(getPlayerDiscs(), getOpponentDiscs());
+            if (legal == 0) {
                 // If the other player also has no moves, the game is over
                 updateFinalGameState();
             }
         }
+        legalCount = Long.bitCount(legal);
 
         return true;
     }
 
-    private void flipDiscs(int row, int col) {
-        int[] dr = {-1, -1, -1, 0, 0, 1, 1, 1};
-        int[] dc = {-1, 0, 1, -1, 1, -1, 0, 1};
+    /** {@link #makeMove} on a {@link WideBoard}; the flips walk doubles as the legality check. */
+    private boolean makeWideMove(int row, int col) {
+        if (row < 0 || row >= BOARD_SIZE || col < 0 || col >= BOARD_SIZE || gameState != GameState.PLAYING) {
+            return false;
+        }
+        int square = row * BOARD_SIZE + col;
+        long[] own = currentPlayer == 'B' ? blackWords : whiteWords;
+        long[] other = currentPlayer == 'B' ? whiteWords : blackWords;
+        long[] flipped = undoFlippedWords[moveCount];
+        if (WideBoard.get(own, square) || WideBoard.get(other, square)) {
+            return false;
+        }
+        int flips = wide.flips(square, own, other, flipped);
+        if (flips == 0) {
+            return false;
+        }
+        undoSquares[moveCount] = square;
+        undoPlayers[moveCount] = currentPlayer;
+        undoStates[moveCount] = gameState;
+        moveCount++;
+        WideBoard.apply(square, flipped, own, other);
+        countMove(currentPlayer, 1, flips);
+        legalStale = true;
 
-        for (int i = 0; i < 8; i++) {
-            int r = row + dr[i];
-            int c = col + dc[i];
-            boolean foundOpponent = false;
-            while (r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == getOpponent()) {
-                r += dr[i];
-                c += dc[i];
-                foundOpponent = true;
-            }
-            if (foundOpponent && r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == currentPlayer) {
-                int curR = row + dr[i];
-                int curC = col + dc[i];
-                while (curR != r || curC != c) {
-                    board[curR][curC] = currentPlayer;
-                    curR += dr[i];
-                    curC += dc[i];
-                }
-            }
+        if (wide.hasMoves(other, own)) {
+            switchPlayer();
+        } else if (!wide.hasMoves(own, other)) {
+            updateFinalGameState();
         }
+        return true;
     }
-    
-    public boolean isValidMove(int row, int col) {
-        if (row < 0 || row >= BOARD_SIZE || col < 0 || col >= BOARD_SIZE || board[row][col] != ' ') {
+
+    /** Fills in {@link #legalWords} if a move or undo has changed the position since. */
+    private void refreshLegalWords() {
+        if (!legalStale) {
+            return;
+        }
+        legalStale = false;
+        if (gameState != GameState.PLAYING) {
+            WideBoard.clear(legalWords);
+            legalCount = 0;
+        } else if (currentPlayer == 'B') {
+            legalCount = wide.legalMoves(blackWords, whiteWords, legalWords);
+        } else {
+            legalCount = wide.legalMoves(whiteWords, blackWords, legalWords);
+        }
+    }
+
+    /** Moves {@code flipped} discs to {@code mover}'s count and adds {@code placed} to it; negative to undo. */
+    private void countMove(char mover, int placed, int flipped) {
+        if (mover == 'B') {
+            blackCount += placed + flipped;
+            whiteCount -= flipped;
+        } else {
+            whiteCount += placed + flipped;
+            blackCount -= flipped;
+        }
+    }
+
+    /**
+     * Takes back the last move, restoring the discs it flipped, the side to move (undoing
+     * any pass that followed it) and the game state.
+     *
+     * @return false if no move has been played since the last reset.
+     */
+    public boolean undoMove() {
+        if (moveCount == 0) {
             return false;
         }
+        moveCount--;
+        if (wide != null) {
+            currentPlayer = undoPlayers[moveCount];
+            long[] own = currentPlayer == 'B' ? blackWords : whiteWords;
+            long[] other = currentPlayer == 'B' ? whiteWords : blackWords;
+            long[] flipped = undoFlippedWords[moveCount];
+            WideBoard.unapply(undoSquares[moveCount], flipped, own, other);
+            countMove(currentPlayer, -1, -WideBoard.count(flipped));
+            legalStale = true;
+            gameState = undoStates[moveCount];
+            return true;
+        }
+        long move = 1L << undoSquares[moveCount];
+        long flipped = undoFlipped[moveCount];
+        currentPlayer = undoPlayers[moveCount];
+        if (currentPlayer == 'B') {
+            black &= ~(move | flipped);
+            white |= flipped;
+        } else {
+            white &= ~(move | flipped);
+            black |= flipped;
+        }
+        countMove(currentPlayer, -1, -Long.bitCount(flipped));
+        legal = undoLegal[moveCount];
+        legalCount = Long.bitCount(legal);
+        gameState = undoStates[moveCount];
+        hash = undoHashes[moveCount];
+        return true;
+    }
 
-        // Check all 8 directions
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0) continue;
-
-                int r = row + dr;
-                int c = col + dc;
-                boolean foundOpponent = false;
-                while (r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == getOpponent()) {
-                    r += dr;
-                    c += dc;
-                    foundOpponent = true;
-                }
-                if (foundOpponent && r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == currentPlayer) {
-                    return true;
-                }
-            }
+    /** Number of moves played since the last reset, i.e. how many can be undone. */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /** Square ({@code row * size + col}) of move {@code index}, counting from 0; passes are not moves. */
+    public int getMove(int index) {
+        if (index < 0 || index >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + moveCount);
         }
-        return false;
+        return undoSquares[index];
     }
 
-    private boolean hasValidMove(char player) {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (isValidMoveForPlayer(i, j, player)) {
-                    return true;
-                }
-            }
+    /** Whether the side to move may play at ({@code row}, {@code col}); a lookup in the cached legal moves. */
+    public boolean isValidMove(int row, int col) {
+        if (row < 0 || row >= BOARD_SIZE || col < 0 || col >= BOARD_SIZE || gameState != GameState.PLAYING) {
+            return false;
+        }
+        if (wide != null) {
+            refreshLegalWords();
+            return WideBoard.get(legalWords, row * BOARD_SIZE + col);
         }
-        return false;
+        return (legal & Bitboard.square(row, col)) != 0;
     }
 
+    /** Whether {@code player} could play at ({@code row}, {@code col}), whoever is to move. */
     public boolean isValidMoveForPlayer(int row, int col, char player) {
-        if (board[row][col] != ' ') {
-            return false;
+        if (player == currentPlayer && gameState == GameState.PLAYING) {
+            return isValidMove(row, col);
+        }
+        if (wide != null) {
+            long[] own = player == 'B' ? blackWords : whiteWords;
+            long[] other = player == 'B' ? whiteWords : blackWords;
+            int square = row * BOARD_SIZE + col;
+            return !WideBoard.get(own, square) && !WideBoard.get(other, square)
+                    && wide.flips(square, own, other, wideScratch) > 0;
+        }
+        long own = (player == 'B') ? black : white;
+        long other = (player == 'B') ? white : black;
+        return (Bitboard.legalMoves(own, other) & Bitboard.square(row, col)) != 0;
+    }
+
+    /** Legal moves of the side to move as a {@link Bitboard} mask, 0 once the game is over; 8x8 only. */
+    public long getLegalMoves() {
+        checkStandard();
+        return legal;
+    }
+
+    /** Number of legal moves of the side to move, 0 once the game is over. */
+    public int getLegalMoveCount() {
+        if (wide != null) {
+            refreshLegalWords();
         }
-        char originalPlayer = currentPlayer;
-        currentPlayer = player;
-        boolean isValid = isValidMove(row, col);
-        currentPlayer = originalPlayer;
-        return isValid;
+        return legalCount;
     }
-    
+
+    /**
+     * The first legal square ({@code row * size + col}) of the side to move at or after
+     * {@code from}, or -1 if there is none. Walks the legal moves of any board size without
+     * allocating:
+     * <pre>for (int square = game.nextLegalMove(0); square >= 0; square = game.nextLegalMove(square + 1))</pre>
+     */
+    public int nextLegalMove(int from) {
+        if (from >= BOARD_SIZE * BOARD_SIZE) {
+            return -1;
+        }
+        if (wide == null) {
+            long rest = legal & (-1L << from);
+            return rest == 0 ? -1 : Long.numberOfTrailingZeros(rest);
+        }
+        refreshLegalWords();
+        int w = from >>> 6;
+        long rest = legalWords[w] & (-1L << from);
+        while (rest == 0) {
+            if (++w == legalWords.length) {
+                return -1;
+            }
+            rest = legalWords[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(rest);
+    }
+
     private void switchPlayer() {
         currentPlayer = getOpponent();
     }
@@ -138,22 +354,47 @@ public class ReversiGame {
         return (currentPlayer == 'B') ? 'W' : 'B';
     }
 
-    private boolean isGameOver() {
-        return !hasValidMove('B') && !hasValidMove('W');
+    /** {@link Zobrist#BLACK} or {@link Zobrist#WHITE} for the side to move. */
+    public int getSide() {
+        return (currentPlayer == 'B') ? Zobrist.BLACK : Zobrist.WHITE;
     }
 
-    private void updateFinalGameState() {
-        int blackCount = 0;
-        int whiteCount = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (board[i][j] == 'B') {
-                    blackCount++;
-                } else if (board[i][j] == 'W') {
-                    whiteCount++;
-                }
-            }
+    /** Discs of the side to move; 8x8 only. */
+    public long getPlayerDiscs() {
+        checkStandard();
+        return (currentPlayer == 'B') ? black : white;
+    }
+
+    public long getOpponentDiscs() {
+        checkStandard();
+        return (currentPlayer == 'B') ? white : black;
+    }
+
+    /** Copy of the discs of the side to move in {@link WideBoard} layout, for any board size. */
+    public long[] getPlayerWords() {
+        return currentPlayer == 'B' ? getBlackWords() : getWhiteWords();
+    }
+
+    public long[] getOpponentWords() {
+        return currentPlayer == 'B' ? getWhiteWords() : getBlackWords();
+    }
+
+    public long[] getBlackWords() {
+        return wide != null ? blackWords.clone() : new long[]{black};
+    }
+
+    public long[] getWhiteWords() {
+        return wide != null ? whiteWords.clone() : new long[]{white};
+    }
+
+    private void checkStandard() {
+        if (wide != null) {
+            throw new UnsupportedOperationException("Only available on 8x8 boards, this one is "
+                    + BOARD_SIZE + "x" + BOARD_SIZE);
         }
+    }
+
+    private void updateFinalGameState() {
         if (blackCount > whiteCount) {
             gameState = GameState.BLACK_WINS;
         } else if (whiteCount > blackCount) {
@@ -162,22 +403,20 @@ public class ReversiGame {
             gameState = GameState.DRAW;
         }
     }
-    
+
+    /** {black discs, white discs}. */
     public int[] getScore() {
-        int blackCount = 0;
-        int whiteCount = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (board[i][j] == 'B') {
-                    blackCount++;
-                } else if (board[i][j] == 'W') {
-                    whiteCount++;
-                }
-            }
-        }
         return new int[]{blackCount, whiteCount};
     }
 
+    public int getBlackCount() {
+        return blackCount;
+    }
+
+    public int getWhiteCount() {
+        return whiteCount;
+    }
+
     // --- Getters ---
     public int getBoardSize() {
         return BOARD_SIZE;
@@ -191,14 +430,45 @@ public class ReversiGame {
         return gameState;
     }
 
+    /** Zobrist hash of the position; 8x8 only. */
+    public long getHash() {
+        checkStandard();
+        return hash;
+    }
+
+    /** 8x8 only. */
+    public long getBlackDiscs() {
+        checkStandard();
+        return black;
+    }
+
+    /** 8x8 only. */
+    public long getWhiteDiscs() {
+        checkStandard();
+        return white;
+    }
+
     public char getSymbolAt(int row, int col) {
-        return board[row][col];
+        if (wide != null) {
+            int square = row * BOARD_SIZE + col;
+            if (WideBoard.get(blackWords, square)) {
+                return 'B';
+            }
+            return WideBoard.get(whiteWords, square) ? 'W' : ' ';
+        }
+        long bit = Bitboard.square(row, col);
+        if ((black & bit) != 0) {
+            return 'B';
+        }
+        return (white & bit) != 0 ? 'W' : ' ';
     }
 
     public char[][] getBoard() {
         char[][] boardCopy = new char[BOARD_SIZE][BOARD_SIZE];
         for (int i = 0; i < BOARD_SIZE; i++) {
-            System.arraycopy(board[i], 0, boardCopy[i], 0, BOARD_SIZE);
+            for (int j = 0; j < BOARD_SIZE; j++) {
+                boardCopy[i][j] = getSymbolAt(i, j);
+            }
         }
         return boardCopy;
     }
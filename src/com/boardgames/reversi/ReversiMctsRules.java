@@ -0,0 +1,111 @@
+package com.boardgames.reversi;
+
+import com.boardgames.common.MctsRules;
+
+import java.util.SplittableRandom;
+
+/**
+ * Reversi for {@link com.boardgames.common.MctsEngine}. A position is
+ * {@code {player, opponent, side}}: the bitboards of the side to move and its opponent,
+ * and {@link Zobrist#BLACK} or {@link Zobrist#WHITE}. Moves are square indices, with
+ * {@link #PASS} for a forced pass.
+ */
+public final class ReversiMctsRules implements MctsRules {
+
+    public static final ReversiMctsRules INSTANCE = new ReversiMctsRules();
+
+    public static final int PASS = Bitboard.SQUARES;
+
+    private ReversiMctsRules() {
+    }
+
+    /** Builds the search state for a position. */
+    public static long[] state(long player, long opponent, int side) {
+        return new long[]{player, opponent, side};
+    }
+
+    @Override
+    public int stateLength() {
+        return 3;
+    }
+
+    @Override
+    public int sideToMove(long[] state) {
+        return (int) state[2];
+    }
+
+    @Override
+    public int maxMoves() {
+        return Bitboard.SQUARES;
+    }
+
+    @Override
+    public int moves(long[] state, int[] moves) {
+        long legal = Bitboard.legalMoves(state[0], state[1]);
+        if (legal == 0) {
+            if (Bitboard.legalMoves(state[1], state[0]) == 0) {
+                return 0;
+            }
+            moves[0] = PASS;
+            return 1;
+        }
+        int count = 0;
+        for (; legal != 0; legal &= legal - 1) {
+            moves[count++] = Long.numberOfTrailingZeros(legal);
+        }
+        return count;
+    }
+
+    @Override
+    public void play(long[] state, int move) {
+        long player = state[0];
+        long opponent = state[1];
+        if (move != PASS) {
+            long flipped = Bitboard.flips(move, player, opponent);
+            player |= flipped | 1L << move;
+            opponent &= ~flipped;
+        }
+        state[0] = opponent;
+        state[1] = player;
+        state[2] ^= 1;
+    }
+
+    @Override
+    public int winner(long[] state) {
+        int diff = ReversiEndgameSolver.finalDiff(state[0], state[1]);
+        int side = (int) state[2];
+        return diff > 0 ? side : diff < 0 ? side ^ 1 : DRAW;
+    }
+
+    /** Random playout straight on the bitboards, picking the n-th set bit of the legal mask. */
+    @Override
+    public int playout(long[] state, SplittableRandom random, int[] scratch) {
+        long player = state[0];
+        long opponent = state[1];
+        int side = (int) state[2];
+        while (true) {
+            long legal = Bitboard.legalMoves(player, opponent);
+            if (legal == 0) {
+                if (Bitboard.legalMoves(opponent, player) == 0) {
+                    break;
+                }
+            } else {
+                for (int skip = random.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+                    legal &= legal - 1;
+                }
+                int square = Long.numberOfTrailingZeros(legal);
+                long flipped = Bitboard.flips(square, player, opponent);
+                player |= flipped | 1L << square;
+                opponent &= ~flipped;
+            }
+            long swap = player;
+            player = opponent;
+            opponent = swap;
+            side ^= 1;
+        }
+        state[0] = player;
+        state[1] = opponent;
+        state[2] = side;
+        return winner(state);
+    }
+}
@@ -0,0 +1,172 @@
+package com.boardgames.reversi;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lets a {@link ReversiSearch} think on the opponent's time.
+ *
+ * <p>After the AI has moved, {@link #start} guesses the opponent's reply, normally the
+ * move the last search expected, which it finds in the transposition table, and searches
+ * the position after that reply without a time limit on a background thread. When the
+ * AI is to move again, {@link #take} checks the guess: on a hit the running search just
+ * gets a deadline, counted from when pondering started, so it often returns at once; on
+ * a miss it is stopped and the caller searches as usual, with the table still warm from
+ * the pondered lines.
+ *
+ * <p>The search must not be used by anybody else between {@link #start} and
+ * {@link #take} or {@link #cancel}.
+ */
+final class ReversiPonderer {
+
+    /** Time spent choosing the expected reply when the table has no move for it. */
+    private static final long PREDICT_MILLIS = 50;
+    private static final long POLL_MILLIS = 2;
+
+    private final ReversiSearch search;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reversi-ponder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Future<Integer> running;
+    private volatile boolean cancelled;
+    // Position searched after the expected reply; set before the ponder search starts
+    private volatile long ponderPlayer;
+    private volatile long ponderOpponent;
+    private volatile long ponderStart;
+    private long hits;
+    private long misses;
+
+    ReversiPonderer(ReversiSearch search) {
+        this.search = search;
+    }
+
+    /**
+     * Starts pondering the position with the opponent ({@code player}) to move; any
+     * previous pondering is cancelled first.
+     */
+    synchronized void start(long player, long opponent, int side) {
+        cancel();
+        if (Bitboard.legalMoves(player, opponent) == 0) {
+            return;
+        }
+        cancelled = false;
+        ponderStart = 0;
+        running = executor.submit(() -> ponder(player, opponent, side));
+    }
+
+    private int ponder(long player, long opponent, int side) {
+        int reply = predict(player, opponent, side);
+        if (reply < 0 || cancelled) {
+            return -1;
+        }
+        long flipped = Bitboard.flips(reply, player, opponent);
+        long aiPlayer = opponent & ~flipped;
+        long aiOpponent = player | flipped | (1L << reply);
+        if (Bitboard.legalMoves(aiPlayer, aiOpponent) == 0) {
+            return -1; // The AI would have to pass, nothing to ponder
+        }
+        ponderPlayer = aiPlayer;
+        ponderOpponent = aiOpponent;
+        ponderStart = System.currentTimeMillis();
+        search.setTimeLimit(Long.MAX_VALUE);
+        return search.findBestMove(aiPlayer, aiOpponent, side ^ 1);
+    }
+
+    /** The move the transposition table expects from {@code player}, or a short search's choice. */
+    private int predict(long player, long opponent, int side) {
+        long hash = side == Zobrist.BLACK
+                ? Zobrist.hash(player, opponent, side)
+                : Zobrist.hash(opponent, player, side);
+        long entry = search.getTable().probe(hash);
+        if (entry != 0) {
+            int move = TranspositionTable.move(entry);
+            if (move != TranspositionTable.NO_MOVE && (Bitboard.legalMoves(player, opponent) & (1L << move)) != 0) {
+                return move;
+            }
+        }
+        search.setTimeLimit(PREDICT_MILLIS);
+        return search.findBestMove(player, opponent, side);
+    }
+
+    /**
+     * Ends pondering now that the AI is to move in {@code player}/{@code opponent}.
+     *
+     * @return the pondered search's move if the guess was right, after at most
+     *         {@code thinkTimeMillis} counted from when pondering started; -1 if the guess
+     *         was wrong or nothing was pondered, in which case the search is free again.
+     */
+    synchronized int take(long player, long opponent, long thinkTimeMillis) {
+        if (running == null) {
+            return -1;
+        }
+        boolean hit = ponderStart != 0 && ponderPlayer == player && ponderOpponent == opponent;
+        if (!hit) {
+            misses++;
+            cancel();
+            return -1;
+        }
+        hits++;
+        long deadline = ponderStart + thinkTimeMillis;
+        int move = await(deadline, false);
+        running = null;
+        return move;
+    }
+
+    /** Stops pondering, if it is running, and waits for the search to return. */
+    synchronized void cancel() {
+        if (running != null) {
+            cancelled = true;
+            await(0, true);
+            running = null;
+        }
+    }
+
+    /**
+     * Waits for the ponder task, repeatedly giving it {@code deadline} or stopping it: a
+     * search that is just starting resets its limits, so a single call could be lost.
+     */
+    private int await(long deadline, boolean stop) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                if (stop) {
+                    search.stop();
+                } else {
+                    search.setDeadline(deadline);
+                }
+                try {
+                    Integer move = running.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    return stop ? -1 : move;
+                } catch (TimeoutException e) {
+                    // Not finished yet; repeat the request
+                } catch (InterruptedException e) {
+                    // The search must be finished before it is handed back, so stop it and keep waiting
+                    interrupted = true;
+                    stop = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Ponder search failed", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Times {@link #take} found the expected reply played. */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+}
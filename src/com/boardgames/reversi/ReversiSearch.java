@@ -0,0 +1,631 @@
+package com.boardgames.reversi;
+
+import com.boardgames.jfr.SearchEvent;
+import com.boardgames.metrics.EngineMetrics;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Negamax alpha-beta search over {@link Bitboard} positions with iterative deepening.
+ * A search is bounded by a wall-clock time limit and/or a node limit; when either runs
+ * out the best move of the deepest finished iteration is returned. Results are cached
+ * in a {@link TranspositionTable} keyed by the {@link Zobrist} hash, which is updated
+ * incrementally as moves are tried.
+ *
+ * One instance runs one search at a time. All per-ply buffers are allocated up front,
+ * so the search itself does not allocate.
+ */
+public class ReversiSearch {
+
+    /** Receives the scores of all root moves while {@link #analyze} deepens; called on the searching thread. */
+    public interface AnalysisListener {
+        /**
+         * Called each time a root move has been scored. The arrays belong to the search and
+         * are only valid during the call.
+         *
+         * @param moves    the {@code count} root moves, ordered by their scores at the last finished depth.
+         * @param scores   their scores from the mover's view: the first {@code searched} at
+         *                 {@code depth}, the others at {@code depth - 1}.
+         * @param searched how many moves have been scored at {@code depth}; {@code count} once it is finished.
+         */
+        void update(int depth, int[] moves, int[] scores, int count, int searched);
+    }
+
+    /** Score units per disc of final disc differential. */
+    public static final int DISC = 100;
+    /** Added to (or subtracted from) a finished game's score so a sure win beats any heuristic. */
+    public static final int WIN_BONUS = 10000;
+    public static final int INFINITY = 32000;
+
+    public static final int DEFAULT_HASH_MB = 16;
+    /** Empty-square count at or below which the exact endgame solver takes over. */
+    public static final int DEFAULT_ENDGAME_EMPTIES = 14;
+
+    private static final int MAX_PLY = 64;
+    private static final int MAX_MOVES = 64;
+    private static final int CHECK_INTERVAL = 2047;
+    /** Half-width of the window {@link #analyze} first tries around a move's previous score. */
+    private static final int ASPIRATION_WINDOW = DISC;
+
+    private static final int[] SQUARE_WEIGHTS = {
+            100, -20, 10, 5, 5, 10, -20, 100,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+            10, -2, -1, -1, -1, -1, -2, 10,
+            5, -2, -1, -1, -1, -1, -2, 5,
+            5, -2, -1, -1, -1, -1, -2, 5,
+            10, -2, -1, -1, -1, -1, -2, 10,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+            100, -20, 10, 5, 5, 10, -20, 100
+    };
+
+    private final TranspositionTable table;
+    private long timeLimitMillis = 1000;
+    private long nodeLimit = Long.MAX_VALUE;
+    private int maxDepth = MAX_PLY;
+    private int endgameEmpties = DEFAULT_ENDGAME_EMPTIES;
+    private PatternEvaluator evaluator = PatternEvaluator.getDefault();
+    private volatile ReversiEndgameSolver solver;
+
+    private final int[][] moves = new int[MAX_PLY + 1][MAX_MOVES];
+    private final int[][] moveKeys = new int[MAX_PLY + 1][MAX_MOVES];
+    private final int[] rootScores = new int[MAX_MOVES];
+    private final int[] analysisScores = new int[MAX_MOVES];
+
+    // Lazy SMP helpers; they share the table and are stopped when this search finishes
+    private final int helperIndex;
+    private ReversiSearch[] helpers = new ReversiSearch[0];
+    private ExecutorService helperPool;
+
+    private volatile boolean stopped;
+    private volatile long deadline;
+    private volatile BooleanSupplier abortSignal;
+    private long nodes;
+    private long helperNodes;
+    private long hashProbes;
+    private long hashHits;
+    private int depthReached;
+    private int bestScore;
+    private int bestMove;
+
+    public ReversiSearch() {
+        this(new TranspositionTable(DEFAULT_HASH_MB));
+    }
+
+    public ReversiSearch(int hashSizeMb) {
+        this(new TranspositionTable(hashSizeMb));
+    }
+
+    public ReversiSearch(TranspositionTable table) {
+        this(table, 0);
+    }
+
+    private ReversiSearch(TranspositionTable table, int helperIndex) {
+        this.table = table;
+        this.helperIndex = helperIndex;
+    }
+
+    /**
+     * Sets how many threads a search uses. Must not be called while a search is running.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        if (threads - 1 == helpers.length) {
+            return;
+        }
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+            helperPool = null;
+        }
+        helpers = new ReversiSearch[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new ReversiSearch(table, i + 1);
+            helpers[i].setMaxDepth(maxDepth);
+            helpers[i].setEvaluator(evaluator);
+        }
+        if (helpers.length > 0) {
+            helperPool = Executors.newFixedThreadPool(helpers.length, runnable -> {
+                Thread thread = new Thread(runnable, "reversi-search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    public void setTimeLimit(long millis) {
+        this.timeLimitMillis = millis;
+    }
+
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(MAX_PLY, maxDepth));
+        for (ReversiSearch helper : helpers) {
+            helper.setMaxDepth(maxDepth);
+        }
+    }
+
+    public void setEvaluator(PatternEvaluator evaluator) {
+        this.evaluator = evaluator;
+        for (ReversiSearch helper : helpers) {
+            helper.setEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * Sets the number of empty squares at or below which positions are solved exactly
+     * instead of searched; 0 disables the solver.
+     */
+    public void setEndgameEmpties(int empties) {
+        this.endgameEmpties = empties;
+    }
+
+    /**
+     * Moves the wall-clock deadline of the running search, e.g. to give a search started
+     * without a time limit a real one; safe to call from any thread. The next search
+     * takes its deadline from {@link #setTimeLimit} again.
+     */
+    public void setDeadline(long deadlineMillis) {
+        deadline = deadlineMillis;
+        ReversiEndgameSolver endgame = solver;
+        if (endgame != null) {
+            endgame.setDeadline(deadlineMillis);
+        }
+    }
+
+    /**
+     * Sets a condition polled along with the time limit, e.g. whether the request the
+     * search serves was cancelled; once it holds the search returns as after
+     * {@link #stop()}. {@code null} for none.
+     */
+    public void setAbortSignal(BooleanSupplier signal) {
+        abortSignal = signal;
+    }
+
+    /** Asks a running search to return as soon as possible; safe to call from any thread. */
+    public void stop() {
+        stopped = true;
+        ReversiEndgameSolver endgame = solver;
+        if (endgame != null) {
+            endgame.stop();
+        }
+    }
+
+    /**
+     * Searches the position with {@code player} to move. With more than one thread,
+     * helper searches run the same position on the other threads (Lazy SMP) and share
+     * results only through the transposition table.
+     *
+     * @param side {@link Zobrist#BLACK} or {@link Zobrist#WHITE}, the colour of {@code player}.
+     * @return the square index ({@code row * 8 + col}) of the best move, or -1 if there is none.
+     */
+    public int findBestMove(long player, long opponent, int side) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        int move = searchPosition(player, opponent, side);
+        commitEvent(event, "alpha-beta", getThreads(), move);
+        return move;
+    }
+
+    private int searchPosition(long player, long opponent, int side) {
+        table.newSearch();
+        long now = System.currentTimeMillis();
+        prepare(timeLimitMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeLimitMillis);
+
+        long legal = Bitboard.legalMoves(player, opponent);
+        if (legal == 0) {
+            return -1;
+        }
+        int empties = Long.bitCount(~(player | opponent));
+        if (empties <= endgameEmpties && Long.bitCount(legal) > 1 && solveEndgame(player, opponent, empties, now)) {
+            return bestMove;
+        }
+        if (Long.bitCount(legal) == 1 || helpers.length == 0) {
+            return iterate(player, opponent, side);
+        }
+
+        Future<?>[] running = new Future<?>[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            ReversiSearch helper = helpers[i];
+            helper.prepare(Long.MAX_VALUE);
+            running[i] = helperPool.submit(() -> helper.iterate(player, opponent, side));
+        }
+        int bestMove = iterate(player, opponent, side);
+        for (ReversiSearch helper : helpers) {
+            helper.stop();
+        }
+        for (int i = 0; i < running.length; i++) {
+            try {
+                running[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Helper search failed", e.getCause());
+            }
+            ReversiSearch helper = helpers[i];
+            helperNodes += helper.nodes;
+            hashProbes += helper.hashProbes;
+            hashHits += helper.hashHits;
+            // A helper that finished a deeper iteration has the better-informed move
+            if (helper.depthReached > depthReached && helper.bestMove >= 0) {
+                depthReached = helper.depthReached;
+                bestScore = helper.bestScore;
+                bestMove = helper.bestMove;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Scores every legal move of the position rather than just the best one, deepening
+     * until a limit runs out, the search is stopped or the game end is in reach, and
+     * reporting each move to {@code listener} as soon as it is scored. Each move is first
+     * searched in a narrow window around its score from the previous depth and only
+     * widened if it falls outside; with the transposition table and the ordering by the
+     * previous scores, consecutive depths build on each other's work. Runs on the calling
+     * thread only, without helpers or the endgame solver.
+     *
+     * @return the deepest depth at which every move was scored, 0 if there are no moves.
+     */
+    public int analyze(long player, long opponent, int side, AnalysisListener listener) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        int depth = analyzePosition(player, opponent, side, listener);
+        commitEvent(event, "analysis", 1, bestMove);
+        return depth;
+    }
+
+    private int analyzePosition(long player, long opponent, int side, AnalysisListener listener) {
+        table.newSearch();
+        long now = System.currentTimeMillis();
+        prepare(timeLimitMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeLimitMillis);
+
+        long legal = Bitboard.legalMoves(player, opponent);
+        int[] rootMoves = moves[0];
+        int[] scores = analysisScores;
+        int count = 0;
+        while (legal != 0) {
+            int sq = Long.numberOfTrailingZeros(legal);
+            legal &= legal - 1;
+            rootMoves[count] = sq;
+            scores[count] = SQUARE_WEIGHTS[sq];
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        sortByScore(rootMoves, scores, count);
+
+        long hash = side == Zobrist.BLACK
+                ? Zobrist.hash(player, opponent, side)
+                : Zobrist.hash(opponent, player, side);
+        // Passes do not use up depth, so at one ply per empty square every line reaches the end
+        int depthCap = Math.min(maxDepth, Long.bitCount(~(player | opponent)));
+        for (int depth = 1; depth <= depthCap; depth++) {
+            for (int i = 0; i < count; i++) {
+                int sq = rootMoves[i];
+                long flipped = Bitboard.flips(sq, player, opponent);
+                long nextPlayer = opponent & ~flipped;
+                long nextOpponent = player | flipped | (1L << sq);
+                long nextHash = hash ^ Zobrist.moveKey(side, sq, flipped);
+                int alpha = -INFINITY;
+                int beta = INFINITY;
+                if (depth > 1) {
+                    alpha = scores[i] - ASPIRATION_WINDOW;
+                    beta = scores[i] + ASPIRATION_WINDOW;
+                }
+                int score = -negamax(nextPlayer, nextOpponent, nextHash, side ^ 1, depth - 1, -beta, -alpha, 1, false);
+                if (!stopped && (score <= alpha || score >= beta) && depth > 1) {
+                    score = -negamax(nextPlayer, nextOpponent, nextHash, side ^ 1, depth - 1,
+                            -INFINITY, INFINITY, 1, false);
+                }
+                if (stopped) {
+                    return depthReached;
+                }
+                scores[i] = score;
+                listener.update(depth, rootMoves, scores, count, i + 1);
+            }
+            depthReached = depth;
+            sortByScore(rootMoves, scores, count);
+            bestMove = rootMoves[0];
+            bestScore = scores[0];
+            table.store(hash, depth, TranspositionTable.BOUND_EXACT, bestScore, bestMove);
+        }
+        return depthReached;
+    }
+
+    /** Fills in {@code event} from the search that just ended and commits it, if it is being recorded. */
+    private void commitEvent(SearchEvent event, String engine, int threads, int move) {
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.boardSize = Bitboard.SIZE;
+            event.threads = threads;
+            event.depth = depthReached;
+            event.nodes = getNodes();
+            event.hashProbes = hashProbes;
+            event.hashHits = hashHits;
+            event.bestMove = move;
+            event.commit();
+        }
+    }
+
+    /**
+     * Tries to solve the position exactly within half the remaining time. On success the
+     * result is recorded as this search's result; otherwise the nodes spent are kept and
+     * the normal search runs with what is left of the budget.
+     */
+    private boolean solveEndgame(long player, long opponent, int empties, long now) {
+        if (solver == null) {
+            solver = new ReversiEndgameSolver();
+        }
+        solver.setDeadline(deadline == Long.MAX_VALUE ? deadline : now + (deadline - now) / 2);
+        solver.setAbortSignal(abortSignal);
+        boolean solved = solver.solve(player, opponent) && !stopped;
+        nodes += solver.getNodes();
+        hashProbes += solver.getHashProbes();
+        hashHits += solver.getHashHits();
+        if (solved) {
+            bestMove = solver.getBestMove();
+            bestScore = discScore(solver.getScore());
+            depthReached = empties;
+        }
+        return solved;
+    }
+
+    private void prepare(long deadline) {
+        this.deadline = deadline;
+        stopped = false;
+        nodes = 0;
+        helperNodes = 0;
+        hashProbes = 0;
+        hashHits = 0;
+        depthReached = 0;
+        bestScore = 0;
+        bestMove = -1;
+    }
+
+    /** Iterative deepening on the root position; returns and records the best move found. */
+    private int iterate(long player, long opponent, int side) {
+        long legal = Bitboard.legalMoves(player, opponent);
+        int[] rootMoves = moves[0];
+        int count = 0;
+        while (legal != 0) {
+            int sq = Long.numberOfTrailingZeros(legal);
+            legal &= legal - 1;
+            rootMoves[count] = sq;
+            rootScores[count] = SQUARE_WEIGHTS[sq];
+            count++;
+        }
+        sortByScore(rootMoves, rootScores, count);
+        if (helperIndex > 0) {
+            // Helpers start from a different first move so the threads spread out early on
+            int first = helperIndex % count;
+            int move = rootMoves[first];
+            rootMoves[first] = rootMoves[0];
+            rootMoves[0] = move;
+        }
+        bestMove = rootMoves[0];
+        if (count == 1) {
+            return bestMove;
+        }
+
+        long hash = side == Zobrist.BLACK
+                ? Zobrist.hash(player, opponent, side)
+                : Zobrist.hash(opponent, player, side);
+        int empties = Long.bitCount(~(player | opponent));
+        int depthCap = Math.min(maxDepth, empties);
+        // Odd helpers search one ply deeper than the main thread to fill the table ahead of it
+        for (int depth = 1 + (helperIndex & 1); depth <= depthCap; depth++) {
+            int alpha = -INFINITY;
+            int iterationBest = -1;
+            for (int i = 0; i < count; i++) {
+                int sq = rootMoves[i];
+                long flipped = Bitboard.flips(sq, player, opponent);
+                int score = -negamax(opponent & ~flipped, player | flipped | (1L << sq),
+                        hash ^ Zobrist.moveKey(side, sq, flipped), side ^ 1,
+                        depth - 1, -INFINITY, -alpha, 1, false);
+                if (stopped) {
+                    break;
+                }
+                rootScores[i] = score;
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = sq;
+                } else {
+                    // Keep fail-low moves behind the ones that were actually scored this iteration
+                    rootScores[i] = score - 1;
+                }
+            }
+            if (iterationBest != -1) {
+                bestMove = iterationBest;
+                bestScore = alpha;
+            }
+            if (stopped) {
+                break;
+            }
+            depthReached = depth;
+            table.store(hash, depth, TranspositionTable.BOUND_EXACT, alpha, bestMove);
+            sortByScore(rootMoves, rootScores, count);
+            if (Math.abs(alpha) >= WIN_BONUS) {
+                break; // Game-theoretic result, deeper search cannot change it
+            }
+        }
+        return bestMove;
+    }
+
+    private int negamax(long player, long opponent, long hash, int side,
+                        int depth, int alpha, int beta, int ply, boolean passed) {
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        long legal = Bitboard.legalMoves(player, opponent);
+        if (legal == 0) {
+            if (passed || Bitboard.legalMoves(opponent, player) == 0) {
+                return finalScore(player, opponent);
+            }
+            return -negamax(opponent, player, hash ^ Zobrist.WHITE_TO_MOVE, side ^ 1,
+                    depth, -beta, -alpha, ply, true);
+        }
+        if (depth <= 0) {
+            return evaluator.evaluate(player, opponent, legal);
+        }
+
+        int hashMove = TranspositionTable.NO_MOVE;
+        long entry = table.probe(hash);
+        if (EngineMetrics.NODE_COUNTERS) {
+            hashProbes++;
+            if (entry != 0) {
+                hashHits++;
+            }
+        }
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && stored >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && stored <= alpha)) {
+                    return stored;
+                }
+            }
+        }
+        int originalAlpha = alpha;
+
+        int[] list = moves[ply];
+        int[] keys = moveKeys[ply];
+        int count = 0;
+        while (legal != 0) {
+            int sq = Long.numberOfTrailingZeros(legal);
+            legal &= legal - 1;
+            int key = SQUARE_WEIGHTS[sq];
+            if (sq == hashMove) {
+                key = Integer.MAX_VALUE;
+            } else if (depth > 2) {
+                // Fastest-first: prefer moves that leave the opponent few replies
+                long flipped = Bitboard.flips(sq, player, opponent);
+                long next = Bitboard.legalMoves(opponent & ~flipped, player | flipped | (1L << sq));
+                key -= 16 * Long.bitCount(next);
+            }
+            list[count] = sq;
+            keys[count] = key;
+            count++;
+        }
+
+        int best = -INFINITY;
+        int bestMove = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int sq = pickNext(list, keys, i, count);
+            long flipped = Bitboard.flips(sq, player, opponent);
+            int score = -negamax(opponent & ~flipped, player | flipped | (1L << sq),
+                    hash ^ Zobrist.moveKey(side, sq, flipped), side ^ 1,
+                    depth - 1, -beta, -alpha, ply + 1, false);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    bestMove = sq;
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.BOUND_UPPER
+                : best >= beta ? TranspositionTable.BOUND_LOWER : TranspositionTable.BOUND_EXACT;
+        table.store(hash, depth, bound, best, bestMove);
+        return best;
+    }
+
+    /** Score of a finished game; empty squares go to the winner. */
+    static int finalScore(long player, long opponent) {
+        return discScore(ReversiEndgameSolver.finalDiff(player, opponent));
+    }
+
+    /** Converts a final disc differential into search score units. */
+    public static int discScore(int discDiff) {
+        return discDiff * DISC + Integer.signum(discDiff) * WIN_BONUS;
+    }
+
+    private void checkLimits() {
+        BooleanSupplier abort = abortSignal;
+        if (nodes >= nodeLimit || System.currentTimeMillis() >= deadline || (abort != null && abort.getAsBoolean())) {
+            stopped = true;
+        }
+    }
+
+    /** Moves the highest-keyed remaining move into slot {@code from} and returns it. */
+    private static int pickNext(int[] list, int[] keys, int from, int count) {
+        int best = from;
+        for (int i = from + 1; i < count; i++) {
+            if (keys[i] > keys[best]) {
+                best = i;
+            }
+        }
+        if (best != from) {
+            int move = list[best];
+            list[best] = list[from];
+            list[from] = move;
+            int key = keys[best];
+            keys[best] = keys[from];
+            keys[from] = key;
+        }
+        return list[from];
+    }
+
+    private static void sortByScore(int[] list, int[] scores, int count) {
+        for (int i = 0; i < count; i++) {
+            pickNext(list, scores, i, count);
+        }
+    }
+
+    // --- Statistics of the last search ---
+    /** Nodes searched by all threads. */
+    public long getNodes() {
+        return nodes + helperNodes;
+    }
+
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Transposition table probes by all threads, the endgame solver's included; 0 when
+     * {@link EngineMetrics#NODE_COUNTERS} is off.
+     */
+    public long getHashProbes() {
+        return hashProbes;
+    }
+
+    /** Probes that found an entry, whether or not it cut the search off. */
+    public long getHashHits() {
+        return hashHits;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
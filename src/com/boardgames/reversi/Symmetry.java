@@ -0,0 +1,93 @@
+package com.boardgames.reversi;
+
+/**
+ * The eight symmetries of the square board applied to {@link Bitboard} masks.
+ * Symmetry {@code s} transposes the board if bit 2 is set, then flips it top-to-bottom
+ * if bit 1 is set, then mirrors it left-to-right if bit 0 is set; 0 is the identity.
+ */
+public final class Symmetry {
+
+    public static final int COUNT = 8;
+
+    private static final int[] INVERSE = new int[COUNT];
+
+    static {
+        for (int s = 0; s < COUNT; s++) {
+            for (int t = 0; t < COUNT; t++) {
+                boolean undoes = true;
+                for (int sq = 0; sq < Bitboard.SQUARES && undoes; sq++) {
+                    undoes = transformSquare(transformSquare(sq, s), t) == sq;
+                }
+                if (undoes) {
+                    INVERSE[s] = t;
+                }
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    public static long transform(long bits, int symmetry) {
+        if ((symmetry & 4) != 0) {
+            bits = transpose(bits);
+        }
+        if ((symmetry & 2) != 0) {
+            bits = Long.reverseBytes(bits);
+        }
+        if ((symmetry & 1) != 0) {
+            bits = mirror(bits);
+        }
+        return bits;
+    }
+
+    public static int transformSquare(int square, int symmetry) {
+        return Long.numberOfTrailingZeros(transform(1L << square, symmetry));
+    }
+
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    /**
+     * Returns the symmetry that maps the position to its canonical form: the orientation
+     * with the smallest {@link Zobrist} hash.
+     */
+    public static int canonical(long black, long white, int side) {
+        int best = 0;
+        long bestHash = Zobrist.hash(black, white, side);
+        for (int s = 1; s < COUNT; s++) {
+            long hash = Zobrist.hash(transform(black, s), transform(white, s), side);
+            if (Long.compareUnsigned(hash, bestHash) < 0) {
+                bestHash = hash;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /** Zobrist hash of the canonical orientation of the position. */
+    public static long canonicalHash(long black, long white, int side) {
+        int s = canonical(black, white, side);
+        return Zobrist.hash(transform(black, s), transform(white, s), side);
+    }
+
+    /** Swaps column c with column 7 - c. */
+    private static long mirror(long x) {
+        x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+        x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+        x = ((x >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((x & 0x0f0f0f0f0f0f0f0fL) << 4);
+        return x;
+    }
+
+    /** Swaps (row, col) with (col, row). */
+    private static long transpose(long x) {
+        long t = 0x0f0f0f0f00000000L & (x ^ (x << 28));
+        x ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (x ^ (x << 14));
+        x ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (x ^ (x << 7));
+        x ^= t ^ (t >>> 7);
+        return x;
+    }
+}
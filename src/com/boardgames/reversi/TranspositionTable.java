@@ -0,0 +1,114 @@
+package com.boardgames.reversi;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results shared by any number of search threads.
+ *
+ * <p>Entries live in two parallel {@code long[]} arrays allocated once. Each entry stores
+ * its payload packed into one long and its key XOR-ed with that payload, so a reader
+ * that sees a half-written entry from another thread gets a key mismatch rather than
+ * a wrong result. No locks are taken.
+ *
+ * <p>Slots are grouped in pairs: the first slot keeps the deepest result for its
+ * bucket (replaced only by a deeper or equally deep search, or once it is from an older
+ * search), the second always takes the newest result.
+ */
+public final class TranspositionTable {
+
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+    public static final int NO_MOVE = 64;
+
+    // Payload layout: score 16 bits | depth 8 | bound 2 | move 7 | generation 8
+    private static final int DEPTH_SHIFT = 16;
+    private static final int BOUND_SHIFT = 24;
+    private static final int MOVE_SHIFT = 26;
+    private static final int GENERATION_SHIFT = 33;
+
+    private static final int BYTES_PER_ENTRY = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private volatile int generation;
+
+    public TranspositionTable(int sizeMb) {
+        if (sizeMb <= 0) {
+            throw new IllegalArgumentException("Hash size must be positive: " + sizeMb);
+        }
+        long entries = Long.highestOneBit((long) sizeMb * 1024 * 1024 / BYTES_PER_ENTRY);
+        entries = Math.max(2, Math.min(entries, 1L << 30));
+        keys = new long[(int) entries];
+        data = new long[(int) entries];
+        bucketMask = (int) entries - 2;
+    }
+
+    /** Marks the start of a new search so older entries become preferred victims. */
+    public void newSearch() {
+        generation = (generation + 1) & 0xff;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /** Returns the packed entry for {@code hash}, or 0 if the table has none. */
+    public long probe(long hash) {
+        int index = (int) hash & bucketMask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) == hash && entry != 0) {
+            return entry;
+        }
+        entry = data[index + 1];
+        if ((keys[index + 1] ^ entry) == hash && entry != 0) {
+            return entry;
+        }
+        return 0;
+    }
+
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int index = (int) hash & bucketMask;
+        long current = data[index];
+        boolean sameKey = (keys[index] ^ current) == hash;
+        if (!sameKey && current != 0 && depth < depth(current) && generation(current) == generation) {
+            index++; // Keep the deeper result, overwrite the always-replace slot instead
+        } else if (sameKey && move == NO_MOVE) {
+            move = move(current); // Don't lose a known best move to an all-node result
+        }
+        long entry = (score & 0xffffL)
+                | ((long) (depth & 0xff) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) move << MOVE_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+        data[index] = entry;
+        keys[index] = hash ^ entry;
+    }
+
+    // --- Entry decoding ---
+    public static int score(long entry) {
+        return (short) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xff;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & 0x7f;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xff;
+    }
+
+    public int getCapacity() {
+        return data.length;
+    }
+}
@@ -0,0 +1,277 @@
+package com.boardgames.reversi;
+
+/**
+ * Bit-parallel helpers for Reversi boards larger than 8x8, stored as arrays of 64-bit
+ * words. Square {@code row * size + col} maps to bit {@code square % 64} of word
+ * {@code square / 64}, so a 16x16 board packs four rows per word and takes four words.
+ *
+ * <p>Legal moves are found for all squares at once by shifting whole boards one step
+ * at a time in each of the eight directions, as {@link Bitboard} does for 8x8; the
+ * walk stops as soon as no run of opponent discs is still open, so its cost follows
+ * the longest run rather than the board width. Flips of a single move are found by
+ * walking its eight rays.
+ *
+ * <p>An instance holds scratch space, so it must not be shared between threads.
+ */
+public final class WideBoard {
+
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = 16;
+
+    // Directions as in Bitboard.shift: 0..7 = N, NE, E, SE, S, SW, W, NW
+    private static final int[] ROW_STEP = {-1, -1, 0, 1, 1, 1, 0, -1};
+    private static final int[] COL_STEP = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    private final int size;
+    private final int words;
+    /** Bit shift per direction; positive moves bits towards higher squares. */
+    private final int[] shifts = new int[8];
+    /** Squares a shift in each direction may land on: the board, minus the column it would wrap into. */
+    private final long[][] masks;
+    private final long[] board;
+
+    private final long[] empty;
+    private final long[] frontier;
+    private final long[] anyMoves;
+
+    public WideBoard(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE || size % 2 != 0) {
+            throw new IllegalArgumentException("Board size must be even and between " + MIN_SIZE + " and "
+                    + MAX_SIZE + ": " + size);
+        }
+        this.size = size;
+        this.words = (size * size + 63) / 64;
+        board = new long[words];
+        long[] notFirstColumn = new long[words];
+        long[] notLastColumn = new long[words];
+        for (int square = 0; square < size * size; square++) {
+            set(board, square);
+            if (square % size != 0) {
+                set(notFirstColumn, square);
+            }
+            if (square % size != size - 1) {
+                set(notLastColumn, square);
+            }
+        }
+        masks = new long[8][];
+        for (int dir = 0; dir < 8; dir++) {
+            shifts[dir] = ROW_STEP[dir] * size + COL_STEP[dir];
+            masks[dir] = COL_STEP[dir] > 0 ? notFirstColumn : COL_STEP[dir] < 0 ? notLastColumn : board;
+        }
+        empty = new long[words];
+        frontier = new long[words];
+        anyMoves = new long[words];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getSquares() {
+        return size * size;
+    }
+
+    /** Number of {@code long}s one side's discs take. */
+    public int getWords() {
+        return words;
+    }
+
+    /** Fills in the four centre discs of a new game, in the same pattern as 8x8. */
+    public void initial(long[] black, long[] white) {
+        clear(black);
+        clear(white);
+        int low = size / 2 - 1;
+        int high = size / 2;
+        set(black, low * size + high);
+        set(black, high * size + low);
+        set(white, low * size + low);
+        set(white, high * size + high);
+    }
+
+    /** Sets {@code moves} to every empty square where {@code player} may move; returns how many there are. */
+    public int legalMoves(long[] player, long[] opponent, long[] moves) {
+        for (int w = 0; w < words; w++) {
+            empty[w] = ~(player[w] | opponent[w]) & board[w];
+            moves[w] = 0;
+        }
+        for (int dir = 0; dir < 8; dir++) {
+            // Frontier: opponent discs reached from a player disc through an unbroken opponent run
+            shift(player, dir, frontier);
+            boolean open = false;
+            for (int w = 0; w < words; w++) {
+                frontier[w] &= opponent[w];
+                open |= frontier[w] != 0;
+            }
+            while (open) {
+                shift(frontier, dir, frontier);
+                open = false;
+                for (int w = 0; w < words; w++) {
+                    moves[w] |= frontier[w] & empty[w];
+                    frontier[w] &= opponent[w];
+                    open |= frontier[w] != 0;
+                }
+            }
+        }
+        return count(moves);
+    }
+
+    /** Whether {@code player} has any legal move; stops at the first one found. */
+    public boolean hasMoves(long[] player, long[] opponent) {
+        for (int w = 0; w < words; w++) {
+            empty[w] = ~(player[w] | opponent[w]) & board[w];
+            anyMoves[w] = 0;
+        }
+        for (int dir = 0; dir < 8; dir++) {
+            if (walk(player, opponent, dir, anyMoves, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds to {@code moves} the {@link #empty} squares that end a run of opponent discs starting
+     * next to a player disc in direction {@code dir}. The frontier of open runs is
+     * shifted one step at a time, in place, until every run has ended.
+     *
+     * @return whether a move was found, checked after every step if {@code firstOnly},
+     *         in which case the walk stops there.
+     */
+    private boolean walk(long[] player, long[] opponent, int dir, long[] moves, boolean firstOnly) {
+        long[] mask = masks[dir];
+        int k = shifts[dir];
+        System.arraycopy(player, 0, frontier, 0, words);
+        boolean first = true;
+        boolean open;
+        do {
+            open = false;
+            long found = 0;
+            if (k > 0) {
+                // Bits move up, so go from the top word down to read each lower word before it changes
+                for (int w = words - 1; w >= 0; w--) {
+                    long shifted = frontier[w] << k;
+                    if (w > 0) {
+                        shifted |= frontier[w - 1] >>> (64 - k);
+                    }
+                    shifted &= mask[w];
+                    if (!first) {
+                        long reached = shifted & empty[w];
+                        moves[w] |= reached;
+                        found |= reached;
+                    }
+                    frontier[w] = shifted & opponent[w];
+                    open |= frontier[w] != 0;
+                }
+            } else {
+                int down = -k;
+                for (int w = 0; w < words; w++) {
+                    long shifted = frontier[w] >>> down;
+                    if (w < words - 1) {
+                        shifted |= frontier[w + 1] << (64 - down);
+                    }
+                    shifted &= mask[w];
+                    if (!first) {
+                        long reached = shifted & empty[w];
+                        moves[w] |= reached;
+                        found |= reached;
+                    }
+                    frontier[w] = shifted & opponent[w];
+                    open |= frontier[w] != 0;
+                }
+            }
+            if (firstOnly && found != 0) {
+                return true;
+            }
+            first = false;
+        } while (open);
+        return false;
+    }
+
+    /**
+     * Sets {@code flipped} to the opponent discs turned when {@code player} moves on the
+     * empty {@code square}; returns how many there are, 0 meaning the move is illegal.
+     */
+    public int flips(int square, long[] player, long[] opponent, long[] flipped) {
+        clear(flipped);
+        int row = square / size;
+        int col = square % size;
+        int total = 0;
+        for (int dir = 0; dir < 8; dir++) {
+            int r = row + ROW_STEP[dir];
+            int c = col + COL_STEP[dir];
+            int run = 0;
+            while (r >= 0 && r < size && c >= 0 && c < size && get(opponent, r * size + c)) {
+                r += ROW_STEP[dir];
+                c += COL_STEP[dir];
+                run++;
+            }
+            if (run > 0 && r >= 0 && r < size && c >= 0 && c < size && get(player, r * size + c)) {
+                for (int i = 1; i <= run; i++) {
+                    set(flipped, (row + i * ROW_STEP[dir]) * size + col + i * COL_STEP[dir]);
+                }
+                total += run;
+            }
+        }
+        return total;
+    }
+
+    /** Moves every bit one step in {@code dir}; {@code in} and {@code out} may be the same array. */
+    private void shift(long[] in, int dir, long[] out) {
+        long[] mask = masks[dir];
+        int k = shifts[dir];
+        if (k > 0) {
+            for (int w = words - 1; w > 0; w--) {
+                out[w] = ((in[w] << k) | (in[w - 1] >>> (64 - k))) & mask[w];
+            }
+            out[0] = (in[0] << k) & mask[0];
+        } else {
+            k = -k;
+            for (int w = 0; w < words - 1; w++) {
+                out[w] = ((in[w] >>> k) | (in[w + 1] << (64 - k))) & mask[w];
+            }
+            out[words - 1] = (in[words - 1] >>> k) & mask[words - 1];
+        }
+    }
+
+    // --- Word-array helpers ---
+
+    public static boolean get(long[] bits, int square) {
+        return (bits[square >>> 6] & (1L << square)) != 0;
+    }
+
+    public static void set(long[] bits, int square) {
+        bits[square >>> 6] |= 1L << square;
+    }
+
+    public static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static void clear(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            bits[w] = 0;
+        }
+    }
+
+    /** Plays a move already checked by {@link #flips}: adds the move and the flipped discs to {@code player}. */
+    public static void apply(int square, long[] flipped, long[] player, long[] opponent) {
+        for (int w = 0; w < player.length; w++) {
+            player[w] |= flipped[w];
+            opponent[w] &= ~flipped[w];
+        }
+        set(player, square);
+    }
+
+    /** Takes back {@link #apply}. */
+    public static void unapply(int square, long[] flipped, long[] player, long[] opponent) {
+        player[square >>> 6] &= ~(1L << square);
+        for (int w = 0; w < player.length; w++) {
+            player[w] &= ~flipped[w];
+            opponent[w] |= flipped[w];
+        }
+    }
+}
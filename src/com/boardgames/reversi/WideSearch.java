@@ -0,0 +1,351 @@
+package com.boardgames.reversi;
+
+import com.boardgames.jfr.SearchEvent;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Negamax alpha-beta search with iterative deepening for Reversi on a {@link WideBoard},
+ * i.e. the board sizes {@link ReversiSearch} does not cover. The evaluation is a
+ * classic hand-tuned one: corners, the squares next to them, edges and mobility.
+ *
+ * <p>One instance runs one search at a time. All per-ply buffers are allocated up
+ * front, so the search itself does not allocate.
+ */
+public final class WideSearch {
+
+    private static final int MAX_DEPTH = 16;
+    // A pass takes a ply without using up depth, and two passes in a row end the game
+    private static final int MAX_PLY = 2 * MAX_DEPTH + 2;
+    private static final int CHECK_INTERVAL = 1023;
+    private static final int INFINITY = 1 << 30;
+    /** Score units per disc of final margin; a finished game always outweighs any evaluation. */
+    private static final int DISC = 1 << 16;
+
+    private static final int CORNER = 100;
+    private static final int X_SQUARE = -40;
+    private static final int C_SQUARE = -15;
+    private static final int EDGE = 5;
+    private static final int MOBILITY = 8;
+
+    private final WideBoard board;
+    private final int squares;
+    private final long[] corners;
+    private final long[] xSquares;
+    private final long[] cSquares;
+    private final long[] edges;
+    private final int[] orderWeights;
+
+    private final long[][] players;
+    private final long[][] opponents;
+    private final long[][] moveSets;
+    private final long[][] flipped;
+    private final long[] opponentMoves;
+    private final int[][] moveLists;
+    private final int[][] moveKeys;
+
+    private long timeLimitMillis = 1000;
+    private int maxDepth = MAX_DEPTH;
+    private volatile boolean stopped;
+    private volatile BooleanSupplier abortSignal;
+    private long deadline;
+    private long nodes;
+    private int legalMoveCount;
+    private int depthReached;
+    private int bestScore;
+
+    public WideSearch(int size) {
+        board = new WideBoard(size);
+        squares = size * size;
+        int words = board.getWords();
+        corners = new long[words];
+        xSquares = new long[words];
+        cSquares = new long[words];
+        edges = new long[words];
+        orderWeights = new int[squares];
+        int last = size - 1;
+        for (int square = 0; square < squares; square++) {
+            int row = square / size;
+            int col = square % size;
+            boolean rowEdge = row == 0 || row == last;
+            boolean colEdge = col == 0 || col == last;
+            int cornerRow = row <= 1 ? 0 : row >= last - 1 ? last : -1;
+            int cornerCol = col <= 1 ? 0 : col >= last - 1 ? last : -1;
+            boolean nearCorner = cornerRow >= 0 && cornerCol >= 0;
+            if (rowEdge && colEdge) {
+                WideBoard.set(corners, square);
+                orderWeights[square] = CORNER;
+            } else if (nearCorner && !rowEdge && !colEdge) {
+                WideBoard.set(xSquares, square);
+                orderWeights[square] = X_SQUARE;
+            } else if (nearCorner) {
+                WideBoard.set(cSquares, square);
+                orderWeights[square] = C_SQUARE;
+            } else if (rowEdge || colEdge) {
+                WideBoard.set(edges, square);
+                orderWeights[square] = EDGE;
+            }
+        }
+        players = new long[MAX_PLY + 1][words];
+        opponents = new long[MAX_PLY + 1][words];
+        moveSets = new long[MAX_PLY + 1][words];
+        flipped = new long[MAX_PLY + 1][words];
+        opponentMoves = new long[words];
+        moveLists = new int[MAX_PLY + 1][squares];
+        moveKeys = new int[MAX_PLY + 1][squares];
+    }
+
+    public int getSize() {
+        return board.getSize();
+    }
+
+    public void setTimeLimit(long millis) {
+        timeLimitMillis = millis;
+    }
+
+    public void setMaxDepth(int depth) {
+        maxDepth = Math.max(1, Math.min(MAX_DEPTH, depth));
+    }
+
+    /** Condition polled with the time limit; once it holds the search returns as after {@link #stop()}. */
+    public void setAbortSignal(BooleanSupplier signal) {
+        abortSignal = signal;
+    }
+
+    /** Asks a running search to return as soon as possible; safe to call from any thread. */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Searches the position with {@code player} to move, both in {@link WideBoard} layout.
+     *
+     * @return the square ({@code row * size + col}) of the best move, or -1 if there is none.
+     */
+    public int findBestMove(long[] player, long[] opponent) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        int move = searchPosition(player, opponent);
+        if (event.shouldCommit()) {
+            event.engine = "alpha-beta";
+            event.boardSize = board.getSize();
+            event.threads = 1;
+            event.depth = depthReached;
+            event.nodes = nodes;
+            event.bestMove = move;
+            event.commit();
+        }
+        return move;
+    }
+
+    private int searchPosition(long[] player, long[] opponent) {
+        long now = System.currentTimeMillis();
+        deadline = timeLimitMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeLimitMillis;
+        stopped = false;
+        nodes = 0;
+        depthReached = 0;
+        bestScore = 0;
+        System.arraycopy(player, 0, players[0], 0, player.length);
+        System.arraycopy(opponent, 0, opponents[0], 0, opponent.length);
+
+        int count = collectMoves(0);
+        legalMoveCount = count;
+        if (count == 0) {
+            return -1;
+        }
+        int[] rootMoves = moveLists[0];
+        int[] rootScores = moveKeys[0];
+        sortByKey(rootMoves, rootScores, count);
+        int bestMove = rootMoves[0];
+        if (count == 1) {
+            return bestMove;
+        }
+        int empties = squares - WideBoard.count(player) - WideBoard.count(opponent);
+        for (int depth = 1; depth <= Math.min(maxDepth, empties); depth++) {
+            int alpha = -INFINITY;
+            int iterationBest = -1;
+            for (int i = 0; i < count; i++) {
+                int score = -negamax(rootMoves[i], 0, depth - 1, -INFINITY, -alpha);
+                if (stopped) {
+                    break;
+                }
+                rootScores[i] = score;
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = rootMoves[i];
+                } else {
+                    rootScores[i] = score - 1;
+                }
+            }
+            if (iterationBest != -1) {
+                bestMove = iterationBest;
+                bestScore = alpha;
+            }
+            if (stopped) {
+                break;
+            }
+            depthReached = depth;
+            sortByKey(rootMoves, rootScores, count);
+            if (Math.abs(alpha) >= DISC) {
+                break; // Game-theoretic result
+            }
+        }
+        return bestMove;
+    }
+
+    /** Plays {@code square} from ply {@code ply} and searches the reply. */
+    private int negamax(int square, int ply, int depth, int alpha, int beta) {
+        long[] player = players[ply];
+        long[] opponent = opponents[ply];
+        long[] flips = flipped[ply];
+        board.flips(square, player, opponent, flips);
+        long[] nextPlayer = players[ply + 1];
+        long[] nextOpponent = opponents[ply + 1];
+        for (int w = 0; w < flips.length; w++) {
+            nextPlayer[w] = opponent[w] & ~flips[w];
+            nextOpponent[w] = player[w] | flips[w];
+        }
+        WideBoard.set(nextOpponent, square);
+        return search(ply + 1, depth, alpha, beta, false);
+    }
+
+    private int search(int ply, int depth, int alpha, int beta, boolean passed) {
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            BooleanSupplier abort = abortSignal;
+            if (System.currentTimeMillis() >= deadline || (abort != null && abort.getAsBoolean())) {
+                stopped = true;
+            }
+        }
+        if (stopped) {
+            return 0;
+        }
+        long[] player = players[ply];
+        long[] opponent = opponents[ply];
+        int count = collectMoves(ply);
+        if (count == 0) {
+            if (passed || !board.hasMoves(opponent, player) || ply == MAX_PLY) {
+                return finalScore(player, opponent);
+            }
+            System.arraycopy(opponent, 0, players[ply + 1], 0, opponent.length);
+            System.arraycopy(player, 0, opponents[ply + 1], 0, player.length);
+            return -search(ply + 1, depth, -beta, -alpha, true);
+        }
+        if (depth <= 0 || ply == MAX_PLY) {
+            return evaluate(player, opponent, count);
+        }
+
+        int[] list = moveLists[ply];
+        int[] keys = moveKeys[ply];
+        int best = -INFINITY;
+        for (int i = 0; i < count; i++) {
+            int square = pickNext(list, keys, i, count);
+            int score = -negamax(square, ply, depth - 1, -beta, -alpha);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Lists the legal moves at {@code ply} with their ordering keys; returns how many there are. */
+    private int collectMoves(int ply) {
+        long[] moves = moveSets[ply];
+        board.legalMoves(players[ply], opponents[ply], moves);
+        int[] list = moveLists[ply];
+        int[] keys = moveKeys[ply];
+        int count = 0;
+        for (int w = 0; w < moves.length; w++) {
+            long bits = moves[w];
+            while (bits != 0) {
+                int square = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                list[count] = square;
+                keys[count] = orderWeights[square];
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int evaluate(long[] player, long[] opponent, int mobility) {
+        int opponentMobility = board.legalMoves(opponent, player, opponentMoves);
+        return CORNER * (countIn(player, corners) - countIn(opponent, corners))
+                + X_SQUARE * (countIn(player, xSquares) - countIn(opponent, xSquares))
+                + C_SQUARE * (countIn(player, cSquares) - countIn(opponent, cSquares))
+                + EDGE * (countIn(player, edges) - countIn(opponent, edges))
+                + MOBILITY * (mobility - opponentMobility);
+    }
+
+    private static int countIn(long[] bits, long[] mask) {
+        int count = 0;
+        for (int w = 0; w < bits.length; w++) {
+            count += Long.bitCount(bits[w] & mask[w]);
+        }
+        return count;
+    }
+
+    /** Score of a finished game from the mover's view; empty squares go to the winner. */
+    private int finalScore(long[] player, long[] opponent) {
+        int own = WideBoard.count(player);
+        int other = WideBoard.count(opponent);
+        int empties = squares - own - other;
+        int diff = own - other;
+        if (diff > 0) {
+            diff += empties;
+        } else if (diff < 0) {
+            diff -= empties;
+        }
+        return diff * DISC + Integer.signum(diff) * DISC;
+    }
+
+    private static int pickNext(int[] list, int[] keys, int from, int count) {
+        int best = from;
+        for (int i = from + 1; i < count; i++) {
+            if (keys[i] > keys[best]) {
+                best = i;
+            }
+        }
+        if (best != from) {
+            int move = list[best];
+            list[best] = list[from];
+            list[from] = move;
+            int key = keys[best];
+            keys[best] = keys[from];
+            keys[from] = key;
+        }
+        return list[from];
+    }
+
+    private static void sortByKey(int[] list, int[] keys, int count) {
+        for (int i = 0; i < count; i++) {
+            pickNext(list, keys, i, count);
+        }
+    }
+
+    // --- Statistics of the last search ---
+    public long getNodes() {
+        return nodes;
+    }
+
+    /** Legal moves of the position searched. */
+    public int getLegalMoveCount() {
+        return legalMoveCount;
+    }
+
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+}
@@ -0,0 +1,69 @@
+package com.boardgames.reversi;
+
+/**
+ * Zobrist keys for 8x8 Reversi positions. The keys come from a fixed-seed generator so
+ * a position hashes to the same value in every run, which lets hashes be stored on disk.
+ */
+public final class Zobrist {
+
+    public static final int BLACK = 0;
+    public static final int WHITE = 1;
+
+    private static final long[][] DISC_KEYS = new long[2][Bitboard.SQUARES];
+    /** Key of a square changing colour, i.e. the black key XOR the white key. */
+    private static final long[] FLIP_KEYS = new long[Bitboard.SQUARES];
+    /** Mixed in when white is to move. */
+    public static final long WHITE_TO_MOVE;
+
+    static {
+        long seed = 0x5eed_0f_4e7e451L;
+        for (int side = 0; side < 2; side++) {
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+                seed += 0x9e3779b97f4a7c15L;
+                DISC_KEYS[side][sq] = mix(seed);
+            }
+        }
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            FLIP_KEYS[sq] = DISC_KEYS[BLACK][sq] ^ DISC_KEYS[WHITE][sq];
+        }
+        seed += 0x9e3779b97f4a7c15L;
+        WHITE_TO_MOVE = mix(seed);
+    }
+
+    private Zobrist() {
+    }
+
+    /** Hashes a whole position from scratch; {@code side} is the side to move. */
+    public static long hash(long black, long white, int side) {
+        long hash = side == WHITE ? WHITE_TO_MOVE : 0;
+        while (black != 0) {
+            hash ^= DISC_KEYS[BLACK][Long.numberOfTrailingZeros(black)];
+            black &= black - 1;
+        }
+        while (white != 0) {
+            hash ^= DISC_KEYS[WHITE][Long.numberOfTrailingZeros(white)];
+            white &= white - 1;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the hash change for {@code side} playing {@code square} and flipping
+     * {@code flipped}, including the change of side to move.
+     */
+    public static long moveKey(int side, int square, long flipped) {
+        long key = DISC_KEYS[side][square] ^ WHITE_TO_MOVE;
+        while (flipped != 0) {
+            key ^= FLIP_KEYS[Long.numberOfTrailingZeros(flipped)];
+            flipped &= flipped - 1;
+        }
+        return key;
+    }
+
+    /** splitmix64 finalizer. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,216 @@
+package com.boardgames.server;
+
+import com.boardgames.reversi.ReversiGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for {@link GameServer}: opens many Reversi sessions over a few
+ * connections and plays random legal moves in them, checking every reply against a local
+ * copy of the game, then reports throughput and move latency percentiles.
+ *
+ * <pre>java -cp bin com.boardgames.server.GameLoadClient [host] [port] [--sessions N] [--connections N] [--seconds S] [--ai-every K]</pre>
+ * With {@code --ai-every K}, every K-th move is asked of the server's AI instead.
+ * Without a host it starts a server in-process on a free port.
+ */
+public final class GameLoadClient {
+
+    private static final int MAX_SAMPLES = 1 << 20;
+
+    private GameLoadClient() {
+    }
+
+    /** One connection driving its share of the sessions in turn. */
+    private static final class Worker extends Thread {
+
+        private final String host;
+        private final int port;
+        private final int sessions;
+        private final long deadline;
+        private final int aiEvery;
+        private final SplittableRandom random;
+        private final long[] latencies = new long[MAX_SAMPLES];
+        private int samples;
+        private long moves;
+        private long games;
+        private final AtomicLong errors;
+        private IOException failure;
+
+        Worker(String host, int port, int sessions, long deadline, int aiEvery, long seed, AtomicLong errors) {
+            super("load-client");
+            this.host = host;
+            this.port = port;
+            this.sessions = sessions;
+            this.deadline = deadline;
+            this.aiEvery = aiEvery;
+            this.random = new SplittableRandom(seed);
+            this.errors = errors;
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket(host, port)) {
+                socket.setTcpNoDelay(true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                OutputStream out = socket.getOutputStream();
+                long[] ids = new long[sessions];
+                ReversiGame[] games = new ReversiGame[sessions];
+                for (int i = 0; i < sessions; i++) {
+                    ids[i] = Long.parseLong(request(in, out, "NEW reversi").substring(3));
+                    games[i] = new ReversiGame();
+                }
+                int[] legal = new int[64];
+                long turn = 0;
+                while (System.nanoTime() < deadline) {
+                    int s = (int) (turn++ % sessions);
+                    ReversiGame game = games[s];
+                    if (game.getGameState() != ReversiGame.GameState.PLAYING) {
+                        request(in, out, "CLOSE " + ids[s]);
+                        ids[s] = Long.parseLong(request(in, out, "NEW reversi").substring(3));
+                        game.reset();
+                        this.games++;
+                        continue;
+                    }
+                    long begin = System.nanoTime();
+                    String reply;
+                    int row;
+                    int col;
+                    if (aiEvery > 0 && turn % aiEvery == 0) {
+                        reply = request(in, out, "AI " + ids[s] + " 5");
+                        String[] words = reply.split(" ");
+                        if (!words[0].equals("OK")) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        row = Integer.parseInt(words[1]);
+                        col = Integer.parseInt(words[2]);
+                    } else {
+                        int count = 0;
+                        for (int square = 0; square < 64; square++) {
+                            if (game.isValidMove(square / 8, square % 8)) {
+                                legal[count++] = square;
+                            }
+                        }
+                        int square = legal[random.nextInt(count)];
+                        row = square / 8;
+                        col = square % 8;
+                        reply = request(in, out, "MOVE " + ids[s] + " " + row + " " + col);
+                    }
+                    long elapsed = System.nanoTime() - begin;
+                    if (samples < MAX_SAMPLES) {
+                        latencies[samples++] = elapsed;
+                    }
+                    moves++;
+                    // The server's reply must match the local copy after the same move
+                    game.makeMove(row, col);
+                    if (!reply.endsWith(game.getGameState() + " " + game.getCurrentPlayer())) {
+                        errors.incrementAndGet();
+                    }
+                }
+                for (long id : ids) {
+                    request(in, out, "CLOSE " + id);
+                }
+                request(in, out, "QUIT");
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private static String request(BufferedReader in, OutputStream out, String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String reply = in.readLine();
+            if (reply == null) {
+                throw new IOException("Connection closed by server");
+            }
+            return reply;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = null;
+        int port = GameServer.DEFAULT_PORT;
+        int sessions = 1000;
+        int connections = 8;
+        double seconds = 10;
+        int aiEvery = 0;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions": sessions = Integer.parseInt(args[++i]); break;
+                case "--connections": connections = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Double.parseDouble(args[++i]); break;
+                case "--ai-every": aiEvery = Integer.parseInt(args[++i]); break;
+                default: positional.add(args[i]); break;
+            }
+        }
+        GameServer server = null;
+        if (positional.isEmpty()) {
+            server = new GameServer(0, Runtime.getRuntime().availableProcessors());
+            server.start();
+            host = "localhost";
+            port = server.getPort();
+        } else {
+            host = positional.get(0);
+            if (positional.size() > 1) {
+                port = Integer.parseInt(positional.get(1));
+            }
+        }
+
+        AtomicLong errors = new AtomicLong();
+        long begin = System.nanoTime();
+        long deadline = begin + (long) (seconds * 1e9);
+        Worker[] workers = new Worker[connections];
+        for (int i = 0; i < connections; i++) {
+            int share = sessions / connections + (i < sessions % connections ? 1 : 0);
+            workers[i] = new Worker(host, port, Math.max(share, 1), deadline, aiEvery, i, errors);
+            workers[i].start();
+        }
+        long moves = 0;
+        long games = 0;
+        int total = 0;
+        for (Worker worker : workers) {
+            worker.join();
+            if (worker.failure != null) {
+                System.err.println("Connection failed: " + worker.failure.getMessage());
+            }
+            moves += worker.moves;
+            games += worker.games;
+            total += worker.samples;
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        long[] all = new long[total];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, all, offset, worker.samples);
+            offset += worker.samples;
+        }
+        Arrays.sort(all);
+        System.out.printf(Locale.ROOT, "%d sessions over %d connections: %d moves, %d games in %.1f s, %.0f moves/s, %d errors%n",
+                sessions, connections, moves, games, elapsed, moves / elapsed, errors.get());
+        if (total > 0) {
+            System.out.printf(Locale.ROOT, "Move latency: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                    percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, percentile(all, 0.999) / 1e3,
+                    all[total - 1] / 1e3);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
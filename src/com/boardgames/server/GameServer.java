@@ -0,0 +1,451 @@
+package com.boardgames.server;
+
+import com.boardgames.common.MctsEngine;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.tictactoe.TicTacToeMctsRules;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless server hosting Reversi and Tic-Tac-Toe games over a line-based text protocol.
+ *
+ * <p>One selector thread owns every connection and answers all commands except AI moves
+ * directly, since they only touch an in-memory game. AI moves are searched on a worker
+ * pool, each worker with its own search state, and their replies are handed back to the
+ * selector thread. Sessions live in a concurrent map keyed by id, so any connection may
+ * drive any session; sessions unused for the idle timeout are dropped.
+ *
+ * <p>Commands (one per line, replies are one line starting with {@code OK} or {@code ERR}):
+ * <pre>
+ * NEW reversi|tictactoe        OK &lt;id&gt;
+ * MOVE &lt;id&gt; &lt;row&gt; &lt;col&gt;        OK &lt;state&gt; &lt;player to move&gt;
+ * AI &lt;id&gt; [millis]             OK &lt;row&gt; &lt;col&gt; &lt;state&gt; &lt;player to move&gt;
+ * UNDO &lt;id&gt;                    OK &lt;state&gt; &lt;player to move&gt;
+ * STATE &lt;id&gt;                   OK &lt;state&gt; &lt;player to move&gt; &lt;board, '.' for empty&gt;
+ * CLOSE &lt;id&gt;                   OK
+ * QUIT                         BYE, then the connection is closed
+ * </pre>
+ * Commands on one connection are answered in order, including AI moves.
+ *
+ * <pre>java -cp bin com.boardgames.server.GameServer [port] [aiThreads]</pre>
+ */
+public class GameServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7777;
+    public static final long DEFAULT_AI_MILLIS = 100;
+    public static final long MAX_AI_MILLIS = 10_000;
+
+    private static final int MAX_LINE_BYTES = 256;
+    private static final int AI_TABLE_MB = 4;
+    private static final int TIC_TAC_TOE_PLAYOUTS = 2000;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+    private final AtomicLong commands = new AtomicLong();
+    private final ExecutorService aiPool;
+    private final ThreadLocal<ReversiSearch> searches = ThreadLocal.withInitial(() -> new ReversiSearch(AI_TABLE_MB));
+    private final ThreadLocal<MctsEngine> ticTacToeEngines = ThreadLocal.withInitial(() -> {
+        MctsEngine engine = new MctsEngine(TicTacToeMctsRules.INSTANCE, 1 << 14);
+        engine.setPlayoutLimit(TIC_TAC_TOE_PLAYOUTS);
+        return engine;
+    });
+    /** Replies from the AI pool, applied on the selector thread. */
+    private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+
+    private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(30);
+    private volatile boolean running;
+
+    public GameServer(int port, int aiThreads) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        aiPool = Executors.newFixedThreadPool(aiThreads, runnable -> {
+            Thread thread = new Thread(runnable, "game-server-ai");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** The port the server listens on; useful when it was created with port 0. */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public long getCommandCount() {
+        return commands.get();
+    }
+
+    /** Sessions not used for this long are dropped. */
+    public void setIdleTimeout(long millis) {
+        idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /** Runs the selector loop on a new daemon thread. */
+    public Thread start() {
+        Thread thread = new Thread(() -> {
+            try {
+                run();
+            } catch (IOException e) {
+                System.err.println("Game server stopped: " + e.getMessage());
+            }
+        }, "game-server");
+        thread.setDaemon(true);
+        running = true;
+        thread.start();
+        return thread;
+    }
+
+    /** Runs the selector loop on the calling thread until {@link #close()}. */
+    public void run() throws IOException {
+        running = true;
+        long nextSweep = System.nanoTime() + SWEEP_INTERVAL_NANOS;
+        while (running) {
+            selector.select(1000);
+            Runnable completion;
+            while ((completion = completions.poll()) != null) {
+                completion.run();
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+            }
+            long now = System.nanoTime();
+            if (now >= nextSweep) {
+                sessions.values().removeIf(session -> {
+                    if (now - session.lastUsed <= idleTimeoutNanos) {
+                        return false;
+                    }
+                    session.end("expired");
+                    return true;
+                });
+                nextSweep = now + SWEEP_INTERVAL_NANOS;
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        for (GameSession session : sessions.values()) {
+            session.end("server closed");
+        }
+        sessions.clear();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        aiPool.shutdownNow();
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /** Per-connection buffers and state; only touched by the selector thread. */
+    private final class Connection {
+
+        final SocketChannel channel;
+        SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(4 * MAX_LINE_BYTES);
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        /**
+         * An AI move is being searched; later commands wait in {@link #in}, and reading
+         * pauses until the reply is sent so a full buffer cannot spin the selector.
+         */
+        boolean busy;
+        boolean closeAfterFlush;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            processLines();
+            if (!busy && !in.hasRemaining()) {
+                send("ERR line too long");
+                closeAfterFlush = true;
+                flush();
+            }
+        }
+
+        /** Answers every complete line in {@link #in} until one starts an AI search. */
+        void processLines() throws IOException {
+            int start = 0;
+            int end = in.position();
+            byte[] bytes = in.array();
+            for (int i = 0; i < end && !busy && !closeAfterFlush; i++) {
+                if (bytes[i] == '\n') {
+                    int length = i - start;
+                    if (length > 0 && bytes[start + length - 1] == '\r') {
+                        length--;
+                    }
+                    String reply = handle(this, new String(bytes, start, length, StandardCharsets.US_ASCII).trim());
+                    if (reply != null) {
+                        send(reply);
+                    }
+                    start = i + 1;
+                }
+            }
+            if (start > 0) {
+                in.position(start);
+                in.limit(end);
+                in.compact();
+            }
+            flush();
+        }
+
+        void send(String reply) {
+            byte[] bytes = (reply + "\n").getBytes(StandardCharsets.US_ASCII);
+            if (out.remaining() < bytes.length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes.length));
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+            out.put(bytes);
+        }
+
+        void flush() throws IOException {
+            if (!channel.isOpen()) {
+                return;
+            }
+            out.flip();
+            channel.write(out);
+            out.compact();
+            int interest = busy ? 0 : SelectionKey.OP_READ;
+            if (out.position() > 0) {
+                key.interestOps(interest | SelectionKey.OP_WRITE);
+            } else if (closeAfterFlush) {
+                close();
+            } else {
+                key.interestOps(interest);
+            }
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to do for this connection
+            }
+        }
+    }
+
+    /** Answers one command, or starts an AI search and returns null. */
+    private String handle(Connection connection, String line) {
+        commands.incrementAndGet();
+        String[] words = line.split("\\s+");
+        try {
+            switch (words[0].toUpperCase(Locale.ROOT)) {
+                case "NEW": {
+                    if (words.length != 2) {
+                        return "ERR usage: NEW reversi|tictactoe";
+                    }
+                    long id = nextSessionId.getAndIncrement();
+                    GameSession session = GameSession.create(id, words[1].toLowerCase(Locale.ROOT));
+                    if (session == null) {
+                        return "ERR unknown game " + words[1];
+                    }
+                    sessions.put(id, session);
+                    return "OK " + id;
+                }
+                case "MOVE": {
+                    if (words.length != 4) {
+                        return "ERR usage: MOVE id row col";
+                    }
+                    GameSession session = session(words[1]);
+                    if (session == null) {
+                        return "ERR no such session";
+                    }
+                    if (!session.move(Integer.parseInt(words[2]), Integer.parseInt(words[3]))) {
+                        return "ERR illegal move";
+                    }
+                    return "OK " + session.status();
+                }
+                case "AI": {
+                    if (words.length < 2 || words.length > 3) {
+                        return "ERR usage: AI id [millis]";
+                    }
+                    GameSession session = session(words[1]);
+                    if (session == null) {
+                        return "ERR no such session";
+                    }
+                    if (session.isOver()) {
+                        return "ERR game over";
+                    }
+                    long millis = words.length == 3 ? Long.parseLong(words[2]) : DEFAULT_AI_MILLIS;
+                    long limit = Math.max(1, Math.min(millis, MAX_AI_MILLIS));
+                    connection.busy = true;
+                    aiPool.execute(() -> {
+                        String reply;
+                        try {
+                            reply = aiMove(session, limit);
+                        } catch (RuntimeException e) {
+                            reply = "ERR " + e;
+                        }
+                        String result = reply;
+                        completions.add(() -> {
+                            connection.busy = false;
+                            if (connection.channel.isOpen()) {
+                                connection.send(result);
+                                try {
+                                    connection.processLines();
+                                } catch (IOException e) {
+                                    connection.close();
+                                }
+                            }
+                        });
+                        selector.wakeup();
+                    });
+                    return null;
+                }
+                case "UNDO": {
+                    GameSession session = words.length == 2 ? session(words[1]) : null;
+                    if (session == null) {
+                        return "ERR no such session";
+                    }
+                    return session.undo() ? "OK " + session.status() : "ERR nothing to undo";
+                }
+                case "STATE": {
+                    GameSession session = words.length == 2 ? session(words[1]) : null;
+                    return session == null ? "ERR no such session" : "OK " + session.board();
+                }
+                case "CLOSE": {
+                    GameSession removed = words.length == 2 ? sessions.remove(Long.parseLong(words[1])) : null;
+                    if (removed == null) {
+                        return "ERR no such session";
+                    }
+                    removed.end("closed");
+                    return "OK";
+                }
+                case "QUIT":
+                    connection.closeAfterFlush = true;
+                    return "BYE";
+                default:
+                    return "ERR unknown command";
+            }
+        } catch (NumberFormatException e) {
+            return "ERR bad number";
+        }
+    }
+
+    private GameSession session(String id) {
+        GameSession session = sessions.get(Long.parseLong(id));
+        if (session != null) {
+            session.lastUsed = System.nanoTime();
+        }
+        return session;
+    }
+
+    /** Searches and plays the AI move; runs on the AI pool. */
+    private String aiMove(GameSession session, long millis) {
+        long expectedVersion;
+        int row;
+        int col;
+        if (session instanceof GameSession.Reversi) {
+            long[] position = ((GameSession.Reversi) session).snapshot();
+            expectedVersion = position[3];
+            ReversiSearch search = searches.get();
+            search.setTimeLimit(millis);
+            int move = search.findBestMove(position[0], position[1], (int) position[2]);
+            if (move < 0) {
+                return "ERR game over";
+            }
+            row = move / Bitboard.SIZE;
+            col = move % Bitboard.SIZE;
+        } else {
+            GameSession.TicTacToe ticTacToe = (GameSession.TicTacToe) session;
+            long[] state;
+            synchronized (ticTacToe) {
+                expectedVersion = ticTacToe.getVersion();
+                state = TicTacToeMctsRules.state(ticTacToe.snapshot(), ticTacToe.getCurrentPlayer());
+            }
+            MctsEngine engine = ticTacToeEngines.get();
+            engine.setTimeLimit(millis);
+            int move = engine.search(state);
+            if (move < 0) {
+                return "ERR game over";
+            }
+            row = move / 3;
+            col = move % 3;
+        }
+        synchronized (session) {
+            if (session.getVersion() != expectedVersion) {
+                return "ERR position changed during search";
+            }
+            if (!session.move(row, col)) {
+                return "ERR illegal move";
+            }
+            return "OK " + row + " " + col + " " + session.status();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int aiThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameServer server = new GameServer(port, aiThreads);
+        System.out.println("Game server listening on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,189 @@
+package com.boardgames.server;
+
+import com.boardgames.jfr.SessionEvent;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.tictactoe.TicTacToeGame;
+
+/**
+ * One hosted game. Several connections may drive the same session, so every method
+ * locks the session; AI searches run outside the lock on a snapshot and are applied
+ * only if nobody moved or took a move back in the meantime (see {@link #getVersion()}).
+ */
+abstract class GameSession {
+
+    final long id;
+    volatile long lastUsed = System.nanoTime();
+    private final SessionEvent event;
+    // Bumped by every move and undo, so an AI result can tell whether its position is still current
+    private long version;
+
+    GameSession(long id, String game, int boardSize) {
+        this.id = id;
+        event = SessionEvent.start(game, id, boardSize);
+    }
+
+    static GameSession create(long id, String type) {
+        switch (type) {
+            case "reversi": return new Reversi(id);
+            case "tictactoe": return new TicTacToe(id);
+            default: return null;
+        }
+    }
+
+    /** Plays a move; false if it is illegal. */
+    final synchronized boolean move(int row, int col) {
+        if (!play(row, col)) {
+            return false;
+        }
+        version++;
+        return true;
+    }
+
+    /** Takes back the last move; false if there is none. */
+    final synchronized boolean undo() {
+        if (!takeBack()) {
+            return false;
+        }
+        version++;
+        return true;
+    }
+
+    /** Changes with every move and undo; equal versions of a session mean the same position. */
+    synchronized long getVersion() {
+        return version;
+    }
+
+    abstract boolean play(int row, int col);
+
+    abstract boolean takeBack();
+
+    abstract boolean isOver();
+
+    abstract int getMoveCount();
+
+    /** Game state, e.g. {@code PLAYING}. */
+    abstract String state();
+
+    /** Records the end of the session for JFR, e.g. when it is closed or expires. */
+    synchronized void end(String reason) {
+        event.end(getMoveCount(), state(), reason);
+    }
+
+    /** Game state and side to move, e.g. {@code PLAYING B}. */
+    abstract String status();
+
+    /** {@link #status()} followed by the board, one character per square row by row, '.' for empty. */
+    abstract String board();
+
+    static final class Reversi extends GameSession {
+
+        final ReversiGame game = new ReversiGame();
+
+        Reversi(long id) {
+            super(id, "reversi", Bitboard.SIZE);
+        }
+
+        @Override
+        synchronized boolean play(int row, int col) {
+            return game.makeMove(row, col);
+        }
+
+        @Override
+        synchronized boolean takeBack() {
+            return game.undoMove();
+        }
+
+        @Override
+        synchronized boolean isOver() {
+            return game.getGameState() != ReversiGame.GameState.PLAYING;
+        }
+
+        @Override
+        synchronized int getMoveCount() {
+            return game.getMoveCount();
+        }
+
+        /** Position for the AI as {player, opponent, side, version}. */
+        synchronized long[] snapshot() {
+            return new long[]{game.getPlayerDiscs(), game.getOpponentDiscs(), game.getSide(), getVersion()};
+        }
+
+        @Override
+        synchronized String state() {
+            return game.getGameState().name();
+        }
+
+        @Override
+        synchronized String status() {
+            return game.getGameState() + " " + game.getCurrentPlayer();
+        }
+
+        @Override
+        synchronized String board() {
+            StringBuilder text = new StringBuilder(status()).append(' ');
+            for (int square = 0; square < Bitboard.SQUARES; square++) {
+                char symbol = game.getSymbolAt(square / Bitboard.SIZE, square % Bitboard.SIZE);
+                text.append(symbol == ' ' ? '.' : symbol);
+            }
+            return text.toString();
+        }
+    }
+
+    static final class TicTacToe extends GameSession {
+
+        final TicTacToeGame game = new TicTacToeGame();
+
+        TicTacToe(long id) {
+            super(id, "tictactoe", 3);
+        }
+
+        @Override
+        synchronized boolean play(int row, int col) {
+            return game.makeMove(row, col);
+        }
+
+        @Override
+        synchronized boolean takeBack() {
+            return game.undoMove();
+        }
+
+        @Override
+        synchronized boolean isOver() {
+            return game.getGameState() != TicTacToeGame.GameState.PLAYING;
+        }
+
+        @Override
+        synchronized int getMoveCount() {
+            return game.getMoveCount();
+        }
+
+        synchronized char[][] snapshot() {
+            return game.getBoard();
+        }
+
+        synchronized char getCurrentPlayer() {
+            return game.getCurrentPlayer();
+        }
+
+        @Override
+        synchronized String state() {
+            return game.getGameState().name();
+        }
+
+        @Override
+        synchronized String status() {
+            return game.getGameState() + " " + game.getCurrentPlayer();
+        }
+
+        @Override
+        synchronized String board() {
+            StringBuilder text = new StringBuilder(status()).append(' ');
+            for (int cell = 0; cell < 9; cell++) {
+                char symbol = game.getSymbolAt(cell / 3, cell % 3);
+                text.append(symbol == ' ' ? '.' : symbol);
+            }
+            return text.toString();
+        }
+    }
+}
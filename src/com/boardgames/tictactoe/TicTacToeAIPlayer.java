@@ -1,11 +1,50 @@
 package com.boardgames.tictactoe;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.boardgames.common.MctsEngine;
+import com.boardgames.common.MoveFuture;
+import com.boardgames.metrics.EngineMetrics;
+import com.boardgames.metrics.EngineMetrics.MoveSource;
+
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class TicTacToeAIPlayer {
 
+    /**
+     * How well the table player plays: each move is a perfect one, chosen among the
+     * {@link TicTacToeSolver#bestMoves}, with the given probability and otherwise a
+     * random empty cell.
+     */
+    public enum Difficulty {
+        EASY(20),
+        MEDIUM(50),
+        HARD(80),
+        PERFECT(100);
+
+        private final int perfectPercent;
+
+        Difficulty(int perfectPercent) {
+            this.perfectPercent = perfectPercent;
+        }
+
+        /** Chance, in percent, that a move is a perfect one. */
+        public int getPerfectPercent() {
+            return perfectPercent;
+        }
+    }
+
+    private static final EngineMetrics metrics = EngineMetrics.forEngine("tictactoe");
+    private static final MctsEngine mcts = new MctsEngine(TicTacToeMctsRules.INSTANCE, 1 << 14);
+    private static final ExecutorService aiThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tictactoe-ai");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * Finds a move for the AI player.
      * This is a simple AI that just chooses a random empty cell.
@@ -14,21 +53,158 @@ public class TicTacToeAIPlayer {
      * @return An array with [row, col] of the chosen move, or null if no move is possible.
      */
     public static int[] findRandomMove(char[][] board) {
-        List<int[]> emptyCells = new ArrayList<>();
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j] == ' ') {
-                    emptyCells.add(new int[]{i, j});
-                }
-            }
+        return findRandomMove(board, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Finds a random empty cell using the given generator, so callers such as the
+     * tournament runner can replay a game from its seed.
+     *
+     * @param board The current game board.
+     * @param random Source of randomness.
+     * @return An array with [row, col] of the chosen move, or null if no move is possible.
+     */
+    public static int[] findRandomMove(char[][] board, Random random) {
+        long start = System.nanoTime();
+        int empty = TicTacToeSolver.emptyCells(TicTacToeSymmetry.encode(board));
+        if (empty == 0) {
+            return null; // No available moves
+        }
+        int cell = randomCell(empty, random);
+        metrics.recordMove(MoveSource.RANDOM, System.nanoTime() - start, 0, -1, Integer.bitCount(empty), 0, 0);
+        return new int[]{cell / 3, cell % 3};
+    }
+
+    /**
+     * Finds a move from the {@link TicTacToeSolver} table at the given difficulty: a
+     * table lookup and at most two random numbers, whatever the position.
+     *
+     * @param board The current game board.
+     * @param difficulty How often to play a perfect move rather than a random one.
+     * @param random Source of randomness.
+     * @return An array with [row, col] of the chosen move, or null if no move is possible.
+     */
+    public static int[] findTableMove(char[][] board, Difficulty difficulty, Random random) {
+        long start = System.nanoTime();
+        int code = TicTacToeSymmetry.encode(board);
+        int best = TicTacToeSolver.bestMoves(code);
+        int empty = TicTacToeSolver.emptyCells(code);
+        if (best == 0 || empty == 0) {
+            return null; // Game over
+        }
+        boolean perfect = random.nextInt(100) < difficulty.getPerfectPercent();
+        int cell = randomCell(perfect ? best : empty, random);
+        metrics.recordMove(perfect ? MoveSource.TABLE : MoveSource.RANDOM, System.nanoTime() - start, 0, -1,
+                Integer.bitCount(empty), 0, 0);
+        return new int[]{cell / 3, cell % 3};
+    }
+
+    /** A uniformly random cell of a non-empty mask. */
+    private static int randomCell(int mask, Random random) {
+        for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+            mask &= mask - 1;
         }
+        return Integer.numberOfTrailingZeros(mask);
+    }
 
-        if (emptyCells.isEmpty()) {
+    /**
+     * Finds a move for {@code player} with Monte Carlo tree search, running
+     * {@code playouts} random games.
+     *
+     * @param board The current game board.
+     * @param player The player to move, 'X' or 'O'.
+     * @param playouts Number of playouts to run.
+     * @return An array with [row, col] of the chosen move, or null if no move is possible.
+     */
+    public static synchronized int[] findMctsMove(char[][] board, char player, long playouts) {
+        long start = System.nanoTime();
+        mcts.setTimeLimit(Long.MAX_VALUE);
+        mcts.setPlayoutLimit(playouts);
+        int move = mcts.search(TicTacToeMctsRules.state(board, player));
+        metrics.recordMove(MoveSource.SEARCH, System.nanoTime() - start, mcts.getPlayouts(), -1, emptyCells(board), 0, 0);
+        if (move < 0) {
             return null; // No available moves
         }
+        return new int[]{move / 3, move % 3};
+    }
 
-        Random random = new Random();
-        int[] chosenMove = emptyCells.get(random.nextInt(emptyCells.size()));
-        return chosenMove;
+    /**
+     * Picks a random empty cell at {@code deadlineMillis}, so the move appears after a
+     * short pause. Cancelling the future before then drops the move.
+     *
+     * @param board The current game board; copied, so it may change afterwards.
+     * @param deadlineMillis Wall-clock time, as {@link System#currentTimeMillis()}, of the move.
+     */
+    public static MoveFuture requestRandomMove(char[][] board, long deadlineMillis) {
+        char[][] copy = copy(board);
+        long delay = Math.max(0, deadlineMillis - System.currentTimeMillis());
+        return MoveFuture.submit(future -> findRandomMove(copy), deadlineMillis,
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, aiThread));
+    }
+
+    /**
+     * Picks a move from the {@link TicTacToeSolver} table at {@code deadlineMillis}, so
+     * the move appears after a short pause. Cancelling the future before then drops the move.
+     *
+     * @param board The current game board; copied, so it may change afterwards.
+     * @param difficulty How often to play a perfect move rather than a random one.
+     * @param deadlineMillis Wall-clock time, as {@link System#currentTimeMillis()}, of the move.
+     */
+    public static MoveFuture requestTableMove(char[][] board, Difficulty difficulty, long deadlineMillis) {
+        char[][] copy = copy(board);
+        long delay = Math.max(0, deadlineMillis - System.currentTimeMillis());
+        return MoveFuture.submit(future -> findTableMove(copy, difficulty, ThreadLocalRandom.current()), deadlineMillis,
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, aiThread));
+    }
+
+    /**
+     * Searches for a move for {@code player} with Monte Carlo tree search on the AI
+     * thread until {@code deadlineMillis} and completes with the best move found, or
+     * {@code null} if there is none. Cancelling the future stops the search right away.
+     *
+     * @param board The current game board; copied, so it may change afterwards.
+     * @param player The player to move, 'X' or 'O'.
+     * @param deadlineMillis Wall-clock time, as {@link System#currentTimeMillis()}, by
+     *                       which the move is wanted.
+     */
+    public static MoveFuture requestMove(char[][] board, char player, long deadlineMillis) {
+        long[] state = TicTacToeMctsRules.state(board, player);
+        int legalMoves = emptyCells(board);
+        return MoveFuture.submit(future -> {
+            synchronized (TicTacToeAIPlayer.class) {
+                long start = System.nanoTime();
+                mcts.setTimeLimit(future.remainingMillis());
+                mcts.setPlayoutLimit(Long.MAX_VALUE);
+                mcts.setAbortSignal(future::isDone);
+                try {
+                    int move = mcts.search(state);
+                    metrics.recordMove(MoveSource.SEARCH, System.nanoTime() - start, mcts.getPlayouts(), -1,
+                            legalMoves, 0, 0);
+                    return move < 0 ? null : new int[]{move / 3, move % 3};
+                } finally {
+                    mcts.setAbortSignal(null);
+                }
+            }
+        }, deadlineMillis, aiThread);
+    }
+
+    private static int emptyCells(char[][] board) {
+        int count = 0;
+        for (char[] row : board) {
+            for (char cell : row) {
+                if (cell == ' ') {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static char[][] copy(char[][] board) {
+        char[][] copy = new char[board.length][];
+        for (int i = 0; i < board.length; i++) {
+            copy[i] = board[i].clone();
+        }
+        return copy;
     }
 }
@@ -5,11 +5,18 @@ import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
+import java.io.IOException;
 
 import com.boardgames.GameSelectionGUI;
+import com.boardgames.common.MoveFuture;
+import com.boardgames.jfr.SessionEvent;
+import com.boardgames.jfr.ViewUpdateEvent;
+import com.boardgames.record.GameRecordWriter;
 
 public class TicTacToeGUI extends JFrame {
 
+    private static final long AI_DELAY_MILLIS = 500;
+
     public enum GameMode {
         PLAYER_VS_PLAYER,
         PLAYER_VS_AI
@@ -19,8 +26,17 @@ public class TicTacToeGUI extends JFrame {
     private final JPanel mainPanel = new JPanel(cardLayout);
     private final JButton[][] buttons = new JButton[3][3];
     private JLabel statusLabel;
+    private JButton undoButton;
     private final TicTacToeGame game;
     private GameMode gameMode;
+    private TicTacToeAIPlayer.Difficulty difficulty = TicTacToeAIPlayer.Difficulty.MEDIUM;
+    private boolean aiThinking;
+    // Bumped whenever an AI move is requested or abandoned, so a late result is recognised as stale
+    private int aiGeneration;
+    private MoveFuture pendingAIMove;
+    private boolean recorded;
+    // The game in progress as a JFR session; null on the mode selection screen
+    private SessionEvent session;
 
     // --- Modern, Simple Color Palette (shadcn/ui inspired) ---
     private final Color COLOR_BACKGROUND = new Color(248, 249, 250); // Off-white
@@ -50,6 +66,12 @@ public class TicTacToeGUI extends JFrame {
         setSize(400, 500);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                endSession("window closed");
+            }
+        });
 
         // Create Mode Selection Panel
         JPanel modeSelectionPanel = createModeSelectionPanel();
@@ -89,6 +111,13 @@ public class TicTacToeGUI extends JFrame {
         pvaButton.addActionListener(e -> startGame(GameMode.PLAYER_VS_AI));
         panel.add(pvaButton, gbc);
 
+        // Labels in Difficulty order
+        JComboBox<String> difficultyBox = new JComboBox<>(new String[]{"電腦難度：簡單", "電腦難度：普通", "電腦難度：困難", "電腦難度：完美"});
+        difficultyBox.setFont(FONT_NEW_GAME);
+        difficultyBox.setSelectedIndex(difficulty.ordinal());
+        difficultyBox.addActionListener(e -> difficulty = TicTacToeAIPlayer.Difficulty.values()[difficultyBox.getSelectedIndex()]);
+        panel.add(difficultyBox, gbc);
+
         JButton backButton = new JButton("返回遊戲選擇");
         backButton.setFont(FONT_NEW_GAME);
         backButton.addActionListener(e -> {
@@ -179,7 +208,22 @@ public class TicTacToeGUI extends JFrame {
         newGameButton.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(COLOR_BORDER, 1),
                 BorderFactory.createEmptyBorder(8, 20, 8, 20)));
-        newGameButton.addActionListener(e -> cardLayout.show(mainPanel, "MODE_SELECTION"));
+        newGameButton.addActionListener(e -> {
+            cancelAITurn();
+            endSession("new game");
+            cardLayout.show(mainPanel, "MODE_SELECTION");
+        });
+
+        undoButton = new JButton("悔棋");
+        undoButton.setFont(FONT_NEW_GAME);
+        undoButton.setFocusable(false);
+        undoButton.setBackground(COLOR_CARD);
+        undoButton.setForeground(COLOR_TEXT_PRIMARY);
+        undoButton.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(COLOR_BORDER, 1),
+                BorderFactory.createEmptyBorder(8, 20, 8, 20)));
+        undoButton.addActionListener(e -> undoMove());
+        footerPanel.add(undoButton);
         footerPanel.add(newGameButton);
 
         gamePanel.add(headerPanel, BorderLayout.NORTH);
@@ -189,12 +233,22 @@ public class TicTacToeGUI extends JFrame {
     }
 
     private void startGame(GameMode mode) {
+        cancelAITurn();
         this.gameMode = mode;
         game.reset();
+        recorded = false;
+        session = SessionEvent.start("tictactoe", 0, 3);
         updateView();
         cardLayout.show(mainPanel, "GAME");
     }
 
+    private void endSession(String reason) {
+        if (session != null) {
+            session.end(game.getMoveCount(), game.getGameState().name(), reason);
+            session = null;
+        }
+    }
+
     private class ButtonClickListener implements ActionListener {
         private final int row, col;
 
@@ -218,22 +272,67 @@ public class TicTacToeGUI extends JFrame {
         }
     }
 
+    /** Takes back the last move; against the AI, also the AI's reply so it is the player's turn again. */
+    private void undoMove() {
+        if (aiThinking || !game.undoMove()) {
+            return;
+        }
+        recorded = false;
+        if (gameMode == GameMode.PLAYER_VS_AI && game.getCurrentPlayer() == 'O') {
+            game.undoMove();
+        }
+        updateView();
+    }
+
+    /** Appends the game to the log named by {@link GameRecordWriter#RECORD_PROPERTY} once it is over. */
+    private void recordFinishedGame() {
+        GameRecordWriter writer = GameRecordWriter.getDefault();
+        if (writer == null || recorded || game.getGameState() == TicTacToeGame.GameState.PLAYING) {
+            return;
+        }
+        recorded = true;
+        try {
+            writer.append(game);
+        } catch (IOException e) {
+            System.err.println("Could not record game: " + e.getMessage());
+        }
+    }
+
     private void handleAITurn() {
+        aiThinking = true;
+        undoButton.setEnabled(false);
         for (JButton[] row : buttons)
             for (JButton button : row)
                 button.setEnabled(false);
-        Timer timer = new Timer(500, e -> {
-            int[] aiMove = TicTacToeAIPlayer.findRandomMove(game.getBoard());
+        int generation = ++aiGeneration;
+        pendingAIMove = TicTacToeAIPlayer.requestTableMove(game.getBoard(), difficulty,
+                System.currentTimeMillis() + AI_DELAY_MILLIS);
+        pendingAIMove.whenComplete((aiMove, error) -> SwingUtilities.invokeLater(() -> {
+            if (generation != aiGeneration) {
+                return; // Cancelled, or the board was reset meanwhile
+            }
+            pendingAIMove = null;
+            aiThinking = false;
             if (aiMove != null) {
                 game.makeMove(aiMove[0], aiMove[1]);
-                updateView();
             }
-        });
-        timer.setRepeats(false);
-        timer.start();
+            updateView();
+        }));
+    }
+
+    /** Abandons the AI's move in progress, if any. */
+    private void cancelAITurn() {
+        aiGeneration++;
+        if (pendingAIMove != null) {
+            pendingAIMove.cancel(true);
+            pendingAIMove = null;
+        }
+        aiThinking = false;
     }
 
     private void updateView() {
+        ViewUpdateEvent event = new ViewUpdateEvent();
+        event.begin();
         for (int i = 0; i < 3; i++) {
             for (int j = 0; j < 3; j++) {
                 char symbol = game.getSymbolAt(i, j);
@@ -248,6 +347,9 @@ public class TicTacToeGUI extends JFrame {
             }
         }
 
+        undoButton.setEnabled(!aiThinking && game.getMoveCount() > 0);
+        recordFinishedGame();
+
         TicTacToeGame.GameState state = game.getGameState();
         switch (state) {
             case PLAYING:
@@ -265,6 +367,11 @@ public class TicTacToeGUI extends JFrame {
                 statusLabel.setText("遊戲平局！");
                 break;
         }
+        if (event.shouldCommit()) {
+            event.game = "tictactoe";
+            event.moveCount = game.getMoveCount();
+            event.commit();
+        }
     }
 
     private void highlightWinningButtons(char winner) {
@@ -1,5 +1,7 @@
 package com.boardgames.tictactoe;
 
+import com.boardgames.jfr.MoveEvent;
+
 public class TicTacToeGame {
 
     public enum GameState {
@@ -13,6 +15,12 @@ public class TicTacToeGame {
     private char currentPlayer;
     private GameState gameState;
 
+    // Undo stack, one entry per move played; preallocated so makeMove/undoMove never allocate
+    private final int[] undoCells = new int[9];
+    private final char[] undoPlayers = new char[9];
+    private final GameState[] undoStates = new GameState[9];
+    private int moveCount;
+
     public TicTacToeGame() {
         board = new char[3][3];
         reset();
@@ -26,21 +34,68 @@ public class TicTacToeGame {
         }
         currentPlayer = 'X';
         gameState = GameState.PLAYING;
+        moveCount = 0;
     }
 
     public boolean makeMove(int row, int col) {
         if (row < 0 || row >= 3 || col < 0 || col >= 3 || board[row][col] != ' ' || gameState != GameState.PLAYING) {
             return false; // Invalid move
         }
+        MoveEvent event = new MoveEvent();
+        event.begin();
+        char mover = currentPlayer;
 
+        undoCells[moveCount] = row * 3 + col;
+        undoPlayers[moveCount] = currentPlayer;
+        undoStates[moveCount] = gameState;
+        moveCount++;
         board[row][col] = currentPlayer;
         updateGameState();
         if (gameState == GameState.PLAYING) {
             currentPlayer = (currentPlayer == 'X') ? 'O' : 'X';
         }
+        if (event.shouldCommit()) {
+            event.game = "tictactoe";
+            event.boardSize = 3;
+            event.moveNumber = moveCount - 1;
+            event.row = row;
+            event.col = col;
+            event.player = mover;
+            event.commit();
+        }
+        return true;
+    }
+
+    /**
+     * Takes back the last move, restoring the player to move and the game state.
+     *
+     * @return false if no move has been played since the last reset.
+     */
+    public boolean undoMove() {
+        if (moveCount == 0) {
+            return false;
+        }
+        moveCount--;
+        int cell = undoCells[moveCount];
+        board[cell / 3][cell % 3] = ' ';
+        currentPlayer = undoPlayers[moveCount];
+        gameState = undoStates[moveCount];
         return true;
     }
 
+    /** Number of moves played since the last reset, i.e. how many can be undone. */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /** Cell ({@code row * 3 + col}) of move {@code index}, counting from 0. */
+    public int getMove(int index) {
+        if (index < 0 || index >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + moveCount);
+        }
+        return undoCells[index];
+    }
+
     private void updateGameState() {
         if (checkWin('X')) {
             gameState = GameState.X_WINS;
@@ -0,0 +1,86 @@
+package com.boardgames.tictactoe;
+
+import com.boardgames.common.MctsRules;
+
+/**
+ * Tic-Tac-Toe for {@link com.boardgames.common.MctsEngine}. A position is
+ * {@code {xCells, oCells, side}} with cell {@code row * 3 + col} in bit
+ * {@code row * 3 + col} and side 0 for X; moves are cell indices.
+ */
+public final class TicTacToeMctsRules implements MctsRules {
+
+    public static final TicTacToeMctsRules INSTANCE = new TicTacToeMctsRules();
+
+    private static final int FULL = 0x1ff;
+    private static final int[] LINES = {
+            0x007, 0x038, 0x1c0, // rows
+            0x049, 0x092, 0x124, // columns
+            0x111, 0x054         // diagonals
+    };
+
+    private TicTacToeMctsRules() {
+    }
+
+    /** Builds the search state for a board, with {@code player} ('X' or 'O') to move. */
+    public static long[] state(char[][] board, char player) {
+        long x = 0;
+        long o = 0;
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (board[i][j] == 'X') {
+                    x |= 1L << (i * 3 + j);
+                } else if (board[i][j] == 'O') {
+                    o |= 1L << (i * 3 + j);
+                }
+            }
+        }
+        return new long[]{x, o, player == 'X' ? 0 : 1};
+    }
+
+    @Override
+    public int stateLength() {
+        return 3;
+    }
+
+    @Override
+    public int sideToMove(long[] state) {
+        return (int) state[2];
+    }
+
+    @Override
+    public int maxMoves() {
+        return 9;
+    }
+
+    @Override
+    public int moves(long[] state, int[] moves) {
+        if (winner(state) != DRAW) {
+            return 0;
+        }
+        int count = 0;
+        for (long empty = ~(state[0] | state[1]) & FULL; empty != 0; empty &= empty - 1) {
+            moves[count++] = Long.numberOfTrailingZeros(empty);
+        }
+        return count;
+    }
+
+    @Override
+    public void play(long[] state, int move) {
+        int side = (int) state[2];
+        state[side] |= 1L << move;
+        state[2] = side ^ 1;
+    }
+
+    @Override
+    public int winner(long[] state) {
+        for (int line : LINES) {
+            if ((state[0] & line) == line) {
+                return 0;
+            }
+            if ((state[1] & line) == line) {
+                return 1;
+            }
+        }
+        return DRAW;
+    }
+}
@@ -0,0 +1,102 @@
+package com.boardgames.tictactoe;
+
+/**
+ * Perfect play for Tic-Tac-Toe. The whole game tree is searched once, when the class
+ * is loaded, and the result of every position reachable from the empty board is kept
+ * in a table indexed by its {@link TicTacToeSymmetry} code, so a query is one array
+ * lookup. An entry packs the position's minimax value for the side to move into bits
+ * 9-10 and the mask of cells ({@code 1 << (row * 3 + col)}) that achieve it into bits
+ * 0-8; the table takes 39 KB.
+ */
+public final class TicTacToeSolver {
+
+    /** Value of a code that cannot come up in a game. */
+    public static final int UNREACHABLE = 0;
+    public static final int LOSS = 1;
+    public static final int DRAW = 2;
+    public static final int WIN = 3;
+
+    private static final int MOVES_MASK = 0x1ff;
+    private static final int VALUE_SHIFT = 9;
+
+    private static final int[][] LINES = {
+            {0, 1, 2}, {3, 4, 5}, {6, 7, 8},
+            {0, 3, 6}, {1, 4, 7}, {2, 5, 8},
+            {0, 4, 8}, {2, 4, 6}
+    };
+
+    private static final short[] TABLE = new short[TicTacToeSymmetry.CODES];
+
+    static {
+        solve(0);
+    }
+
+    private TicTacToeSolver() {
+    }
+
+    /** {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the side to move, {@link #UNREACHABLE} if no game reaches the position. */
+    public static int value(int code) {
+        return TABLE[code] >>> VALUE_SHIFT;
+    }
+
+    /** Mask of the cells that keep the position's {@link #value}; 0 once the game is over. */
+    public static int bestMoves(int code) {
+        return TABLE[code] & MOVES_MASK;
+    }
+
+    /** Mask of the empty cells of a position. */
+    public static int emptyCells(int code) {
+        int mask = 0;
+        for (int cell = 0; cell < TicTacToeSymmetry.CELLS; cell++, code /= 3) {
+            if (code % 3 == 0) {
+                mask |= 1 << cell;
+            }
+        }
+        return mask;
+    }
+
+    /** Negamax over the codes, filling in the table; returns the value of {@code code}. */
+    private static int solve(int code) {
+        if (TABLE[code] != 0) {
+            return value(code);
+        }
+        int value;
+        int moves = 0;
+        int empty = emptyCells(code);
+        if (hasLine(code)) {
+            value = LOSS; // The player who just moved completed a line
+        } else if (empty == 0) {
+            value = DRAW;
+        } else {
+            // X moves when both have played as often
+            int content = Integer.bitCount(empty) % 2 == 1 ? 1 : 2;
+            value = LOSS;
+            for (int cell = 0; cell < TicTacToeSymmetry.CELLS; cell++) {
+                if ((empty & 1 << cell) == 0) {
+                    continue;
+                }
+                int childValue = WIN + LOSS - solve(TicTacToeSymmetry.play(code, cell, content));
+                if (childValue > value) {
+                    value = childValue;
+                    moves = 0;
+                }
+                if (childValue == value) {
+                    moves |= 1 << cell;
+                }
+            }
+        }
+        TABLE[code] = (short) (value << VALUE_SHIFT | moves);
+        return value;
+    }
+
+    private static boolean hasLine(int code) {
+        for (int[] line : LINES) {
+            int first = TicTacToeSymmetry.cell(code, line[0]);
+            if (first != 0 && TicTacToeSymmetry.cell(code, line[1]) == first
+                    && TicTacToeSymmetry.cell(code, line[2]) == first) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
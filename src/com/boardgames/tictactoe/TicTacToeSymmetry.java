@@ -0,0 +1,132 @@
+package com.boardgames.tictactoe;
+
+/**
+ * The eight symmetries of the 3x3 board, with the same numbering as the Reversi
+ * {@code Symmetry}: symmetry {@code s} transposes the board if bit 2 is set, then flips
+ * it top-to-bottom if bit 1 is set, then mirrors it left-to-right if bit 0 is set.
+ *
+ * <p>Positions are handled as codes: cell {@code row * 3 + col} is the base-3 digit of
+ * weight {@code 3^cell}, 0 for empty, 1 for X and 2 for O. Codes identify a position
+ * exactly (the side to move follows from the disc counts) and fit in {@link #CODES}.
+ */
+public final class TicTacToeSymmetry {
+
+    public static final int COUNT = 8;
+    public static final int CELLS = 9;
+    /** Number of distinct codes, 3^9. */
+    public static final int CODES = 19683;
+
+    private static final int[][] CELL = new int[COUNT][CELLS];
+    private static final int[] INVERSE = new int[COUNT];
+    private static final int[] POWERS = new int[CELLS];
+
+    static {
+        for (int s = 0; s < COUNT; s++) {
+            for (int cell = 0; cell < CELLS; cell++) {
+                int row = cell / 3;
+                int col = cell % 3;
+                if ((s & 4) != 0) {
+                    int t = row;
+                    row = col;
+                    col = t;
+                }
+                if ((s & 2) != 0) {
+                    row = 2 - row;
+                }
+                if ((s & 1) != 0) {
+                    col = 2 - col;
+                }
+                CELL[s][cell] = row * 3 + col;
+            }
+        }
+        for (int s = 0; s < COUNT; s++) {
+            for (int t = 0; t < COUNT; t++) {
+                boolean undoes = true;
+                for (int cell = 0; cell < CELLS && undoes; cell++) {
+                    undoes = CELL[t][CELL[s][cell]] == cell;
+                }
+                if (undoes) {
+                    INVERSE[s] = t;
+                }
+            }
+        }
+        for (int cell = 0, power = 1; cell < CELLS; cell++, power *= 3) {
+            POWERS[cell] = power;
+        }
+    }
+
+    private TicTacToeSymmetry() {
+    }
+
+    public static int transformCell(int cell, int symmetry) {
+        return CELL[symmetry][cell];
+    }
+
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    /** Code of the game's current position. */
+    public static int encode(TicTacToeGame game) {
+        int code = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            char symbol = game.getSymbolAt(cell / 3, cell % 3);
+            if (symbol == 'X') {
+                code += POWERS[cell];
+            } else if (symbol == 'O') {
+                code += 2 * POWERS[cell];
+            }
+        }
+        return code;
+    }
+
+    /** Code of a board as returned by {@link TicTacToeGame#getBoard()}. */
+    public static int encode(char[][] board) {
+        int code = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            char symbol = board[cell / 3][cell % 3];
+            if (symbol == 'X') {
+                code += POWERS[cell];
+            } else if (symbol == 'O') {
+                code += 2 * POWERS[cell];
+            }
+        }
+        return code;
+    }
+
+    /** Code with {@code cell} set to {@code content}: 1 for X, 2 for O; the cell must be empty. */
+    public static int play(int code, int cell, int content) {
+        return code + content * POWERS[cell];
+    }
+
+    /** Content of {@code cell} in {@code code}: 0 empty, 1 X, 2 O. */
+    public static int cell(int code, int cell) {
+        return code / POWERS[cell] % 3;
+    }
+
+    public static int transform(int code, int symmetry) {
+        int result = 0;
+        for (int cell = 0; cell < CELLS; cell++, code /= 3) {
+            result += code % 3 * POWERS[CELL[symmetry][cell]];
+        }
+        return result;
+    }
+
+    /** Returns the symmetry that maps the position to its canonical form: the orientation with the smallest code. */
+    public static int canonical(int code) {
+        int best = 0;
+        int bestCode = code;
+        for (int s = 1; s < COUNT; s++) {
+            int transformed = transform(code, s);
+            if (transformed < bestCode) {
+                bestCode = transformed;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    public static int canonicalCode(int code) {
+        return transform(code, canonical(code));
+    }
+}
@@ -0,0 +1,159 @@
+package com.boardgames.tournament;
+
+import com.boardgames.common.MctsEngine;
+import com.boardgames.record.GameRecordWriter;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.PatternEvaluator;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.reversi.ReversiMctsRules;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.Symmetry;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Reversi for {@link Tournament}; moves are square indices {@code row * 8 + col}.
+ *
+ * Player specs:
+ * <ul>
+ * <li>{@code random}: a uniformly random legal move.</li>
+ * <li>{@code depth:N}: single-threaded alpha-beta searched to depth N.</li>
+ * <li>{@code time:MS}: single-threaded alpha-beta with MS milliseconds per move.</li>
+ * <li>{@code mcts:N}: single-threaded MCTS with N playouts per move.</li>
+ * </ul>
+ * The alpha-beta specs take an optional {@code @file} suffix naming a pattern weights
+ * file, e.g. {@code depth:6@new.weights}, to compare evaluators.
+ */
+public class ReversiTournamentRules implements TournamentRules<ReversiGame> {
+
+    private static final int TABLE_MB = 4;
+
+    @Override
+    public ReversiGame newGame() {
+        return new ReversiGame();
+    }
+
+    @Override
+    public boolean isOver(ReversiGame game) {
+        return game.getGameState() != ReversiGame.GameState.PLAYING;
+    }
+
+    @Override
+    public int sideToMove(ReversiGame game) {
+        return game.getSide();
+    }
+
+    @Override
+    public int winner(ReversiGame game) {
+        switch (game.getGameState()) {
+            case BLACK_WINS: return 0;
+            case WHITE_WINS: return 1;
+            default: return -1;
+        }
+    }
+
+    @Override
+    public void play(ReversiGame game, int move) {
+        if (!game.makeMove(move / Bitboard.SIZE, move % Bitboard.SIZE)) {
+            throw new IllegalStateException("Illegal move " + move);
+        }
+    }
+
+    @Override
+    public void record(GameRecordWriter writer, ReversiGame game) throws IOException {
+        writer.append(game);
+    }
+
+    @Override
+    public int defaultOpeningPlies() {
+        return 6;
+    }
+
+    @Override
+    public List<int[]> openings(int plies) {
+        List<int[]> openings = new ArrayList<>();
+        collectOpenings(new ReversiGame(), new int[plies], 0, new HashSet<>(), openings);
+        return openings;
+    }
+
+    private static void collectOpenings(ReversiGame game, int[] moves, int ply, Set<Long> seen, List<int[]> openings) {
+        if (game.getGameState() != ReversiGame.GameState.PLAYING) {
+            return;
+        }
+        if (ply == moves.length) {
+            if (seen.add(Symmetry.canonicalHash(game.getBlackDiscs(), game.getWhiteDiscs(), game.getSide()))) {
+                openings.add(moves.clone());
+            }
+            return;
+        }
+        for (long legal = game.getLegalMoves(); legal != 0; legal &= legal - 1) {
+            int square = Long.numberOfTrailingZeros(legal);
+            game.makeMove(square / Bitboard.SIZE, square % Bitboard.SIZE);
+            moves[ply] = square;
+            collectOpenings(game, moves, ply + 1, seen, openings);
+            game.undoMove();
+        }
+    }
+
+    @Override
+    public TournamentPlayer<ReversiGame> createPlayer(String spec) {
+        String[] parts = spec.split("@", 2);
+        String[] kind = parts[0].split(":", 2);
+        switch (kind[0]) {
+            case "random":
+                return ReversiTournamentRules::randomMove;
+            case "depth":
+            case "time": {
+                ReversiSearch search = new ReversiSearch(TABLE_MB);
+                if (parts.length > 1) {
+                    try {
+                        search.setEvaluator(PatternEvaluator.load(Paths.get(parts[1])));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot load weights " + parts[1] + ": " + e.getMessage(), e);
+                    }
+                }
+                if (kind[0].equals("depth")) {
+                    search.setMaxDepth(Integer.parseInt(argument(spec, kind)));
+                    search.setTimeLimit(Long.MAX_VALUE);
+                } else {
+                    search.setTimeLimit(Long.parseLong(argument(spec, kind)));
+                }
+                return (game, random) -> search.findBestMove(game.getPlayerDiscs(), game.getOpponentDiscs(), game.getSide());
+            }
+            case "mcts": {
+                long playouts = Long.parseLong(argument(spec, kind));
+                MctsEngine engine = new MctsEngine(ReversiMctsRules.INSTANCE,
+                        (int) Math.min(MctsEngine.DEFAULT_MAX_NODES, Math.max(1024, playouts * 16)));
+                engine.setTimeLimit(Long.MAX_VALUE);
+                engine.setPlayoutLimit(playouts);
+                return (game, random) -> {
+                    engine.setSeed(random.nextLong());
+                    return engine.search(ReversiMctsRules.state(game.getPlayerDiscs(), game.getOpponentDiscs(), game.getSide()));
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown Reversi player: " + spec);
+        }
+    }
+
+    private static String argument(String spec, String[] kind) {
+        if (kind.length < 2) {
+            throw new IllegalArgumentException("Missing argument in player spec: " + spec);
+        }
+        return kind[1];
+    }
+
+    private static int randomMove(ReversiGame game, Random random) {
+        long legal = game.getLegalMoves();
+        for (int skip = random.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+            legal &= legal - 1;
+        }
+        return Long.numberOfTrailingZeros(legal);
+    }
+}
@@ -0,0 +1,139 @@
+package com.boardgames.tournament;
+
+/**
+ * Win/draw/loss tally for one player of a match, with an Elo estimate and a sequential
+ * probability ratio test. The test weighs H0 "the Elo difference is elo0" against H1
+ * "it is elo1" with the normal approximation to the generalized SPRT, so it can stop a
+ * match as soon as the result is clear at the requested error rates.
+ */
+public final class Sprt {
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    private long wins;
+    private long draws;
+    private long losses;
+
+    /**
+     * @param elo0 Elo difference under H0.
+     * @param elo1 Elo difference under H1.
+     * @param alpha False positive rate (accepting H1 when H0 holds).
+     * @param beta False negative rate (accepting H0 when H1 holds).
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) {
+            throw new IllegalArgumentException("elo1 must be above elo0: " + elo0 + ", " + elo1);
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public synchronized void addWin() {
+        wins++;
+    }
+
+    public synchronized void addDraw() {
+        draws++;
+    }
+
+    public synchronized void addLoss() {
+        losses++;
+    }
+
+    public synchronized long games() {
+        return wins + draws + losses;
+    }
+
+    public synchronized long wins() {
+        return wins;
+    }
+
+    public synchronized long draws() {
+        return draws;
+    }
+
+    public synchronized long losses() {
+        return losses;
+    }
+
+    /** Mean points per game, counting a draw as half. */
+    public synchronized double score() {
+        long games = wins + draws + losses;
+        return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+    }
+
+    /** Elo difference implied by the score so far. */
+    public double elo() {
+        return elo(score());
+    }
+
+    /** Half-width of the 95% confidence interval of {@link #elo()}. */
+    public synchronized double eloError() {
+        long games = wins + draws + losses;
+        if (games < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = (wins + 0.5 * draws) / games;
+        double deviation = Math.sqrt(variance(mean) / games);
+        return (elo(mean + 1.96 * deviation) - elo(mean - 1.96 * deviation)) / 2;
+    }
+
+    /** Log-likelihood ratio of H1 over H0. */
+    public synchronized double llr() {
+        long games = wins + draws + losses;
+        if (games == 0) {
+            return 0;
+        }
+        double mean = (wins + 0.5 * draws) / games;
+        double variance = variance(mean);
+        if (variance == 0) {
+            // Every game had the same result; count one extra draw so the variance is usable
+            mean = (wins + 0.5 * draws + 0.5) / (games + 1);
+            variance = (wins * (1 - mean) * (1 - mean) + (draws + 1) * (0.5 - mean) * (0.5 - mean)
+                    + losses * mean * mean) / (games + 1);
+            games++;
+        }
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games * (s1 - s0) * (2 * mean - s0 - s1) / (2 * variance);
+    }
+
+    /** 1 if H1 is accepted, -1 if H0 is accepted, 0 while the test is still running. */
+    public int decision() {
+        double llr = llr();
+        return llr >= upperBound ? 1 : llr <= lowerBound ? -1 : 0;
+    }
+
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    /** Per-game variance of the score around {@code mean}. */
+    private double variance(double mean) {
+        long games = wins + draws + losses;
+        return (wins * (1 - mean) * (1 - mean) + draws * (0.5 - mean) * (0.5 - mean) + losses * mean * mean) / games;
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+}
@@ -0,0 +1,127 @@
+package com.boardgames.tournament;
+
+import com.boardgames.common.MctsEngine;
+import com.boardgames.record.GameRecordWriter;
+import com.boardgames.tictactoe.TicTacToeAIPlayer;
+import com.boardgames.tictactoe.TicTacToeGame;
+import com.boardgames.tictactoe.TicTacToeMctsRules;
+import com.boardgames.tictactoe.TicTacToeSymmetry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tic-Tac-Toe for {@link Tournament}; moves are cell indices {@code row * 3 + col}.
+ *
+ * Player specs: {@code random} for {@link TicTacToeAIPlayer#findRandomMove},
+ * {@code mcts:N} for MCTS with N playouts per move, and {@code table:DIFFICULTY} for
+ * {@link TicTacToeAIPlayer#findTableMove} at {@code easy}, {@code medium}, {@code hard}
+ * or {@code perfect} (the default for a plain {@code table}).
+ */
+public class TicTacToeTournamentRules implements TournamentRules<TicTacToeGame> {
+
+    @Override
+    public TicTacToeGame newGame() {
+        return new TicTacToeGame();
+    }
+
+    @Override
+    public boolean isOver(TicTacToeGame game) {
+        return game.getGameState() != TicTacToeGame.GameState.PLAYING;
+    }
+
+    @Override
+    public int sideToMove(TicTacToeGame game) {
+        return game.getCurrentPlayer() == 'X' ? 0 : 1;
+    }
+
+    @Override
+    public int winner(TicTacToeGame game) {
+        switch (game.getGameState()) {
+            case X_WINS: return 0;
+            case O_WINS: return 1;
+            default: return -1;
+        }
+    }
+
+    @Override
+    public void play(TicTacToeGame game, int move) {
+        if (!game.makeMove(move / 3, move % 3)) {
+            throw new IllegalStateException("Illegal move " + move);
+        }
+    }
+
+    @Override
+    public void record(GameRecordWriter writer, TicTacToeGame game) throws IOException {
+        writer.append(game);
+    }
+
+    @Override
+    public int defaultOpeningPlies() {
+        return 1;
+    }
+
+    @Override
+    public List<int[]> openings(int plies) {
+        List<int[]> openings = new ArrayList<>();
+        collectOpenings(new TicTacToeGame(), new int[plies], 0, new HashSet<>(), openings);
+        return openings;
+    }
+
+    private static void collectOpenings(TicTacToeGame game, int[] moves, int ply, Set<Integer> seen, List<int[]> openings) {
+        if (game.getGameState() != TicTacToeGame.GameState.PLAYING) {
+            return;
+        }
+        if (ply == moves.length) {
+            if (seen.add(TicTacToeSymmetry.canonicalCode(TicTacToeSymmetry.encode(game)))) {
+                openings.add(moves.clone());
+            }
+            return;
+        }
+        for (int cell = 0; cell < 9; cell++) {
+            if (game.makeMove(cell / 3, cell % 3)) {
+                moves[ply] = cell;
+                collectOpenings(game, moves, ply + 1, seen, openings);
+                game.undoMove();
+            }
+        }
+    }
+
+    @Override
+    public TournamentPlayer<TicTacToeGame> createPlayer(String spec) {
+        String[] kind = spec.split(":", 2);
+        switch (kind[0]) {
+            case "random":
+                return (game, random) -> {
+                    int[] move = TicTacToeAIPlayer.findRandomMove(game.getBoard(), random);
+                    return move[0] * 3 + move[1];
+                };
+            case "table": {
+                TicTacToeAIPlayer.Difficulty difficulty = kind.length < 2 ? TicTacToeAIPlayer.Difficulty.PERFECT
+                        : TicTacToeAIPlayer.Difficulty.valueOf(kind[1].toUpperCase(Locale.ROOT));
+                return (game, random) -> {
+                    int[] move = TicTacToeAIPlayer.findTableMove(game.getBoard(), difficulty, random);
+                    return move[0] * 3 + move[1];
+                };
+            }
+            case "mcts": {
+                if (kind.length < 2) {
+                    throw new IllegalArgumentException("Missing argument in player spec: " + spec);
+                }
+                MctsEngine engine = new MctsEngine(TicTacToeMctsRules.INSTANCE, 1 << 14);
+                engine.setTimeLimit(Long.MAX_VALUE);
+                engine.setPlayoutLimit(Long.parseLong(kind[1]));
+                return (game, random) -> {
+                    engine.setSeed(random.nextLong());
+                    return engine.search(TicTacToeMctsRules.state(game.getBoard(), game.getCurrentPlayer()));
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown Tic-Tac-Toe player: " + spec);
+        }
+    }
+}
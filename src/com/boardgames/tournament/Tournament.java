@@ -0,0 +1,264 @@
+package com.boardgames.tournament;
+
+import com.boardgames.record.GameRecordWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays engine-vs-engine matches without a GUI, one game per worker thread at a time.
+ *
+ * Games are played in pairs from a balanced opening set: both games of a pair start
+ * from the same opening with the colours swapped, so neither player profits from a
+ * lopsided opening. Game {@code i} gets its own {@link Random} seeded from the match
+ * seed and {@code i}, so any single game can be replayed. Results are tallied from the
+ * first player's point of view in a {@link Sprt}; when the test is enabled the match
+ * stops as soon as it reaches a decision.
+ *
+ * <pre>java -cp bin com.boardgames.tournament.Tournament &lt;reversi|tictactoe&gt; &lt;player1&gt; &lt;player2&gt;
+ *     [--games 1000] [--threads N] [--seed 1] [--openings PLIES] [--sprt ELO0,ELO1] [--alpha 0.05] [--beta 0.05]
+ *     [--record games.log]</pre>
+ *
+ * See {@link ReversiTournamentRules} and {@link TicTacToeTournamentRules} for the player specs.
+ *
+ * @param <G> The game class.
+ */
+public class Tournament<G> {
+
+    private final TournamentRules<G> rules;
+    private final String firstSpec;
+    private final String secondSpec;
+
+    private int games = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 1;
+    private int openingPlies;
+    private boolean sprtEnabled;
+    private double elo0 = 0;
+    private double elo1 = 10;
+    private double alpha = 0.05;
+    private double beta = 0.05;
+    private int reportInterval = 100;
+    private GameRecordWriter recordWriter;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private volatile boolean stopped;
+    private Sprt result;
+    private List<int[]> openings;
+    private long start;
+
+    public Tournament(TournamentRules<G> rules, String firstSpec, String secondSpec) {
+        this.rules = rules;
+        this.firstSpec = firstSpec;
+        this.secondSpec = secondSpec;
+        this.openingPlies = rules.defaultOpeningPlies();
+        // Fail on a bad spec now rather than inside a worker
+        rules.createPlayer(firstSpec);
+        rules.createPlayer(secondSpec);
+    }
+
+    public void setGames(int games) {
+        this.games = games;
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setOpeningPlies(int plies) {
+        this.openingPlies = plies;
+    }
+
+    /** Enables early stopping with an SPRT of H0 "elo0" against H1 "elo1". */
+    public void setSprt(double elo0, double elo1, double alpha, double beta) {
+        this.sprtEnabled = true;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /** Appends every finished game to {@code writer}; {@code null} turns recording off. */
+    public void setRecordWriter(GameRecordWriter writer) {
+        this.recordWriter = writer;
+    }
+
+    /** Prints a progress line every {@code games} finished games; 0 turns progress off. */
+    public void setReportInterval(int games) {
+        this.reportInterval = games;
+    }
+
+    /** Plays the match and returns the first player's results. */
+    public Sprt run() throws InterruptedException {
+        result = new Sprt(elo0, elo1, alpha, beta);
+        openings = new ArrayList<>(rules.openings(openingPlies));
+        if (openings.isEmpty()) {
+            throw new IllegalStateException("No openings of " + openingPlies + " plies");
+        }
+        Collections.shuffle(openings, new Random(seed));
+        nextGame.set(0);
+        stopped = false;
+        start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                running.add(pool.submit(this::playGames));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tournament game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    /** Finished games per hour of wall-clock time since the match started. */
+    public double getGamesPerHour() {
+        double hours = (System.nanoTime() - start) / 3.6e12;
+        return result == null || hours == 0 ? 0 : result.games() / hours;
+    }
+
+    private void playGames() {
+        List<TournamentPlayer<G>> players = new ArrayList<>();
+        players.add(rules.createPlayer(firstSpec));
+        players.add(rules.createPlayer(secondSpec));
+        int index;
+        while (!stopped && (index = nextGame.getAndIncrement()) < games) {
+            int firstPlayerSide = index % 2;
+            int winner = playGame(index, players, firstPlayerSide);
+            if (winner < 0) {
+                result.addDraw();
+            } else if (winner == firstPlayerSide) {
+                result.addWin();
+            } else {
+                result.addLoss();
+            }
+            long finished = result.games();
+            if (reportInterval > 0 && finished % reportInterval == 0) {
+                report();
+            }
+            if (sprtEnabled && result.decision() != 0) {
+                stopped = true;
+            }
+        }
+    }
+
+    /** Plays game {@code index}; returns the winning side or -1 for a draw. */
+    private int playGame(int index, List<TournamentPlayer<G>> players, int firstPlayerSide) {
+        Random random = new Random(seed * 0x9e3779b97f4a7c15L + index);
+        G game = rules.newGame();
+        for (int move : openings.get(index / 2 % openings.size())) {
+            rules.play(game, move);
+        }
+        while (!rules.isOver(game)) {
+            TournamentPlayer<G> player = players.get(rules.sideToMove(game) == firstPlayerSide ? 0 : 1);
+            rules.play(game, player.chooseMove(game, random));
+        }
+        if (recordWriter != null) {
+            try {
+                rules.record(recordWriter, game);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not record game " + index, e);
+            }
+        }
+        return rules.winner(game);
+    }
+
+    /** Prints one line with the results so far. */
+    public synchronized void report() {
+        System.out.printf(Locale.ROOT, "%7d games  +%d =%d -%d  score %.1f%%  elo %+.1f +- %.1f  llr %.2f [%.2f, %.2f]  %.0f games/h%n",
+                result.games(), result.wins(), result.draws(), result.losses(), 100 * result.score(),
+                result.elo(), result.eloError(), result.llr(), result.getLowerBound(), result.getUpperBound(),
+                getGamesPerHour());
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: Tournament <reversi|tictactoe> <player1> <player2> [--games N] [--threads T] "
+                    + "[--seed S] [--openings PLIES] [--sprt ELO0,ELO1] [--alpha A] [--beta B] [--record FILE]");
+            System.exit(1);
+        }
+        Tournament<?> tournament;
+        switch (args[0]) {
+            case "reversi":
+                tournament = new Tournament<>(new ReversiTournamentRules(), args[1], args[2]);
+                break;
+            case "tictactoe":
+                tournament = new Tournament<>(new TicTacToeTournamentRules(), args[1], args[2]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown game: " + args[0]);
+        }
+        double alpha = 0.05;
+        double beta = 0.05;
+        double[] sprt = null;
+        GameRecordWriter writer = null;
+        for (int i = 3; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--games": tournament.setGames(Integer.parseInt(value)); break;
+                case "--threads": tournament.setThreads(Integer.parseInt(value)); break;
+                case "--seed": tournament.setSeed(Long.parseLong(value)); break;
+                case "--openings": tournament.setOpeningPlies(Integer.parseInt(value)); break;
+                case "--alpha": alpha = Double.parseDouble(value); break;
+                case "--beta": beta = Double.parseDouble(value); break;
+                case "--record": writer = GameRecordWriter.open(Paths.get(value)); break;
+                case "--sprt": {
+                    String[] bounds = value.split(",");
+                    sprt = new double[]{Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1])};
+                    break;
+                }
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (sprt != null) {
+            tournament.setSprt(sprt[0], sprt[1], alpha, beta);
+        }
+
+        tournament.setRecordWriter(writer);
+
+        Sprt result;
+        try {
+            result = tournament.run();
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        if (result.games() % tournament.reportInterval != 0) {
+            tournament.report();
+        }
+        if (sprt != null) {
+            int decision = result.decision();
+            System.out.println(decision > 0 ? "SPRT: H1 accepted (" + args[1] + " is stronger)"
+                    : decision < 0 ? "SPRT: H0 accepted" : "SPRT: no decision");
+        }
+    }
+}
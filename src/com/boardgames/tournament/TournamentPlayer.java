@@ -0,0 +1,20 @@
+package com.boardgames.tournament;
+
+import java.util.Random;
+
+/**
+ * One side of a tournament game. Each worker thread gets its own instances, so a player
+ * may keep search state between moves without synchronizing.
+ *
+ * @param <G> The game class.
+ */
+public interface TournamentPlayer<G> {
+
+    /**
+     * Chooses a move for the side to move. All randomness must come from {@code random},
+     * which is seeded per game so every game can be replayed.
+     *
+     * @return The move, encoded as {@link TournamentRules#play} expects.
+     */
+    int chooseMove(G game, Random random);
+}
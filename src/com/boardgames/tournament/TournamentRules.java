@@ -0,0 +1,46 @@
+package com.boardgames.tournament;
+
+import com.boardgames.record.GameRecordWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * What {@link Tournament} needs to know about a game: how to play it, how it ends, which
+ * openings to start from and how to build players from a command-line spec.
+ *
+ * @param <G> The game class.
+ */
+public interface TournamentRules<G> {
+
+    G newGame();
+
+    boolean isOver(G game);
+
+    /** 0 if the first player is to move, 1 otherwise. */
+    int sideToMove(G game);
+
+    /** 0 or 1 for the side that won a finished game, -1 for a draw. */
+    int winner(G game);
+
+    void play(G game, int move);
+
+    /** Appends a finished game to a game-record log. */
+    void record(GameRecordWriter writer, G game) throws IOException;
+
+    /**
+     * Returns the distinct positions reachable in {@code plies} moves as move sequences,
+     * with positions equal up to board symmetry listed once.
+     */
+    List<int[]> openings(int plies);
+
+    /** Opening length used when the caller does not choose one. */
+    int defaultOpeningPlies();
+
+    /**
+     * Builds a player from a spec such as {@code random} or {@code mcts:2000}.
+     *
+     * @throws IllegalArgumentException if the spec is not understood.
+     */
+    TournamentPlayer<G> createPlayer(String spec);
+}